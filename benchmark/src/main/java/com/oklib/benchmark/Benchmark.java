@@ -0,0 +1,89 @@
+package com.oklib.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * @Description: 简单的基准测试基类，按JMH的方式先预热再测量多轮，输出每次操作的平均耗时；
+ * 只依赖JDK，operation返回值会被累加，避免JIT把被测代码当作死代码消除
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:20
+ */
+public abstract class Benchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final long ROUND_NANOS = 200 * 1000 * 1000L;//每轮最少运行时间
+
+    private static volatile long sink;
+
+    /**
+     * 基准测试名称
+     *
+     * @return
+     */
+    public abstract String name();
+
+    /**
+     * 执行一次被测操作
+     *
+     * @return 任意结果，用于防止死代码消除
+     */
+    protected abstract long operation();
+
+    /**
+     * 测量前的准备，比如注册订阅者
+     */
+    protected void setUp() {
+    }
+
+    /**
+     * 测量后的清理
+     */
+    protected void tearDown() {
+    }
+
+    public final void run() {
+        setUp();
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                round();
+            }
+            double[] results = new double[MEASURE_ROUNDS];
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                results[i] = round();
+            }
+            Arrays.sort(results);
+            double sum = 0;
+            for (double result : results) {
+                sum += result;
+            }
+            System.out.println(String.format(Locale.US, "%-48s %12.2f ns/op  (min %.2f, max %.2f)",
+                    name(), sum / results.length, results[0], results[results.length - 1]));
+        } finally {
+            tearDown();
+        }
+    }
+
+    /**
+     * 运行一轮，操作次数按倍数增加直到超过最少运行时间
+     *
+     * @return 每次操作的平均纳秒数
+     */
+    private double round() {
+        long result = 0;
+        long operations = 0;
+        long batch = 1;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (long i = 0; i < batch; i++) {
+                result += operation();
+            }
+            operations += batch;
+            batch = Math.min(batch * 2, 1 << 20);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        sink += result;
+        return (double) elapsed / operations;
+    }
+}
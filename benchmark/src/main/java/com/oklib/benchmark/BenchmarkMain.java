@@ -0,0 +1,37 @@
+package com.oklib.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Description: 基准测试入口，./gradlew :benchmark:run 运行全部，
+ * 带参数时只运行名称包含该参数的基准，如 ./gradlew :benchmark:run --args='CacheStrategy'
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:20
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.addAll(CacheStrategyLookupBenchmark.all());
+        benchmarks.addAll(RxBusPostBenchmark.all());
+        benchmarks.addAll(LoggerBenchmark.all());
+        for (Benchmark benchmark : benchmarks) {
+            if (matches(benchmark, args)) {
+                benchmark.run();
+            }
+        }
+    }
+
+    private static boolean matches(Benchmark benchmark, String[] filters) {
+        if (filters == null || filters.length == 0) {
+            return true;
+        }
+        for (String filter : filters) {
+            if (benchmark.name().contains(filter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
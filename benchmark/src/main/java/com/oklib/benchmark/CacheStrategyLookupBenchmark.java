@@ -0,0 +1,65 @@
+package com.oklib.benchmark;
+
+import com.oklib.utils.network.http.mode.CacheMode;
+import com.oklib.utils.network.http.strategy.CacheStrategyRegistry;
+import com.oklib.utils.network.http.strategy.ICacheStrategy;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @Description: 每次请求获取缓存策略的开销，对比原来ApiCache.loadStrategy按类名反射创建策略和
+ * 现在CacheStrategyRegistry查找共享单例，均使用core中真实的CacheMode和策略类
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:20
+ */
+public class CacheStrategyLookupBenchmark {
+    private static final String PACKAGE_NAME = ICacheStrategy.class.getPackage().getName();
+    private static final CacheMode[] MODES = CacheMode.values();
+
+    public static List<Benchmark> all() {
+        return Arrays.asList(new ReflectionLookup(), new RegistryLookup());
+    }
+
+    /**
+     * 原来的方式：每次请求Class.forName后newInstance
+     */
+    static class ReflectionLookup extends Benchmark {
+        private int index;
+
+        @Override
+        public String name() {
+            return "CacheStrategy.reflection";
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        protected long operation() {
+            CacheMode mode = MODES[index++ % MODES.length];
+            try {
+                ICacheStrategy strategy = (ICacheStrategy) Class.forName(PACKAGE_NAME + "." + mode.getClassName()).newInstance();
+                return strategy.hashCode();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 现在的方式：按模式查找共享的单例
+     */
+    static class RegistryLookup extends Benchmark {
+        private int index;
+
+        @Override
+        public String name() {
+            return "CacheStrategy.registry";
+        }
+
+        @Override
+        protected long operation() {
+            CacheMode mode = MODES[index++ % MODES.length];
+            return CacheStrategyRegistry.get(mode).hashCode();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.oklib.benchmark;
+
+import android.util.Log;
+
+import com.oklib.utils.Logger.Logger;
+import com.oklib.utils.Logger.common.LogConvert;
+import com.oklib.utils.Logger.common.LogSupplier;
+import com.oklib.utils.Logger.inner.Tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @Description: 日志级别关闭时调用Logger的开销，级别设为ERROR后调用d/i，应接近空调用；
+ * 作为对照，eager为原来先格式化再判断级别的做法，enabled为级别打开时输出到空日志树的完整开销
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 18:20
+ */
+public class LoggerBenchmark {
+
+    /**
+     * 网络请求日志中常见的对象
+     */
+    public static class RequestInfo {
+        String url = "https://api.example.com/v1/users?page=1";
+        String method = "GET";
+        int code = 200;
+        long tookMillis = 42;
+        List<String> headers = new ArrayList<>(Arrays.asList("Accept: application/json",
+                "Cache-Control: max-age=60", "User-Agent: oklib"));
+    }
+
+    /**
+     * 只计数不输出的日志树
+     */
+    static class CountingTree extends Tree {
+        long count;
+
+        @Override
+        protected void log(int type, String tag, String message) {
+            count += message.length();
+        }
+    }
+
+    private static final RequestInfo INFO = new RequestInfo();
+    private static final CountingTree TREE = new CountingTree();
+
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.add(new LoggerCase("Logger.disabled d(format, args)", Log.ERROR) {
+            @Override
+            protected long operation() {
+                Logger.d("%s %s took %dms", INFO.method, INFO.url, INFO.tookMillis);
+                return TREE.count;
+            }
+        });
+        benchmarks.add(new LoggerCase("Logger.disabled i(Object)", Log.ERROR) {
+            @Override
+            protected long operation() {
+                Logger.i(INFO);
+                return TREE.count;
+            }
+        });
+        benchmarks.add(new LoggerCase("Logger.disabled i(LogSupplier)", Log.ERROR) {
+            @Override
+            protected long operation() {
+                Logger.i(new LogSupplier() {
+                    @Override
+                    public Object get() {
+                        return INFO;
+                    }
+                });
+                return TREE.count;
+            }
+        });
+        benchmarks.add(new LoggerCase("Logger.eager objectToString (old path)", Log.ERROR) {
+            @Override
+            protected long operation() {
+                //原来Logger.i(Object)在判断级别前就把对象转换为字符串
+                String message = LogConvert.objectToString(INFO);
+                if (Logger.isLoggable(Log.INFO)) {
+                    Logger.i(message);
+                }
+                return message.length();
+            }
+        });
+        benchmarks.add(new LoggerCase("Logger.enabled i(Object)", Log.VERBOSE) {
+            @Override
+            protected long operation() {
+                Logger.i(INFO);
+                return TREE.count;
+            }
+        });
+        return benchmarks;
+    }
+
+    abstract static class LoggerCase extends Benchmark {
+        private final String name;
+        private final int level;
+
+        LoggerCase(String name, int level) {
+            this.name = name;
+            this.level = level;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        protected void setUp() {
+            Logger.getLogConfig().configAllowLog(true).configLevel(level);
+            Logger.plant(TREE);
+        }
+
+        @Override
+        protected void tearDown() {
+            Logger.uprootAll();
+            Logger.getLogConfig().configLevel(Log.VERBOSE);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.oklib.benchmark;
+
+import com.oklib.utils.rxbus.IEvent;
+import com.oklib.utils.rxbus.RxBusImpl;
+import com.oklib.utils.rxbus.Subscribe;
+import com.oklib.utils.rxbus.inner.ThreadMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.subjects.PublishSubject;
+
+/**
+ * @Description: RxBus发送事件的吞吐量与订阅者数量的关系，订阅者中只有一个接收发送的事件，其余订阅其他事件；
+ * 对比原来所有订阅者共用一个PublishSubject、各自ofType过滤的方式和现在按事件类型分发的RxBusImpl；
+ * 订阅者均使用TRAMPOLINE在发送线程处理，原来方式也省去了toFlowable和io线程切换，只统计分发本身的开销
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:50
+ */
+public class RxBusPostBenchmark {
+    private static final int[] SUBSCRIBER_COUNTS = {1, 10, 100, 500};
+
+    public static class PingEvent implements IEvent {
+    }
+
+    public static class OtherEvent implements IEvent {
+    }
+
+    private static final PingEvent PING = new PingEvent();
+
+    public static class PingReceiver {
+        long count;
+
+        @Subscribe(threadMode = ThreadMode.TRAMPOLINE)
+        public void onPing(PingEvent event) {
+            count++;
+        }
+    }
+
+    public static class OtherReceiver {
+        long count;
+
+        @Subscribe(threadMode = ThreadMode.TRAMPOLINE)
+        public void onOther(OtherEvent event) {
+            count++;
+        }
+    }
+
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (int count : SUBSCRIBER_COUNTS) {
+            benchmarks.add(new OfTypeChainPost(count));
+            benchmarks.add(new TypeIndexedPost(count));
+        }
+        return benchmarks;
+    }
+
+    /**
+     * 原来的方式：每次发送都要经过每个订阅者的ofType过滤
+     */
+    static class OfTypeChainPost extends Benchmark {
+        private final int subscriberCount;
+        private final PublishSubject<Object> subject = PublishSubject.create();
+        private final CompositeDisposable disposables = new CompositeDisposable();
+        private final PingReceiver receiver = new PingReceiver();
+
+        OfTypeChainPost(int subscriberCount) {
+            this.subscriberCount = subscriberCount;
+        }
+
+        @Override
+        public String name() {
+            return "RxBus.ofTypeChain subscribers=" + subscriberCount;
+        }
+
+        @Override
+        protected void setUp() {
+            disposables.add(subject.ofType(PingEvent.class).subscribe(new Consumer<PingEvent>() {
+                @Override
+                public void accept(PingEvent event) {
+                    receiver.onPing(event);
+                }
+            }));
+            for (int i = 1; i < subscriberCount; i++) {
+                final OtherReceiver other = new OtherReceiver();
+                disposables.add(subject.ofType(OtherEvent.class).subscribe(new Consumer<OtherEvent>() {
+                    @Override
+                    public void accept(OtherEvent event) {
+                        other.onOther(event);
+                    }
+                }));
+            }
+        }
+
+        @Override
+        protected long operation() {
+            subject.onNext(PING);
+            return receiver.count;
+        }
+
+        @Override
+        protected void tearDown() {
+            disposables.dispose();
+        }
+    }
+
+    /**
+     * 现在的方式：只分发给事件类型及其父类、接口的订阅者
+     */
+    static class TypeIndexedPost extends Benchmark {
+        private final int subscriberCount;
+        private final RxBusImpl bus = new RxBusImpl();
+        private final PingReceiver receiver = new PingReceiver();
+        private final List<Object> subscribers = new ArrayList<>();
+
+        TypeIndexedPost(int subscriberCount) {
+            this.subscriberCount = subscriberCount;
+        }
+
+        @Override
+        public String name() {
+            return "RxBus.typeIndexed subscribers=" + subscriberCount;
+        }
+
+        @Override
+        protected void setUp() {
+            subscribers.add(receiver);
+            for (int i = 1; i < subscriberCount; i++) {
+                subscribers.add(new OtherReceiver());
+            }
+            for (Object subscriber : subscribers) {
+                bus.register(subscriber);
+            }
+        }
+
+        @Override
+        protected long operation() {
+            bus.post(PING);
+            return receiver.count;
+        }
+
+        @Override
+        protected void tearDown() {
+            for (Object subscriber : subscribers) {
+                bus.unregister(subscriber);
+            }
+            subscribers.clear();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package android.content;
+
+import android.os.Bundle;
+
+import java.util.Set;
+
+/**
+ * @Description: android.content.Intent在JVM上的替代实现，只提供日志解析用到的方法
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 18:20
+ */
+public class Intent {
+    public static final int FLAG_ACTIVITY_NEW_TASK = 0x10000000;
+    public static final int FLAG_ACTIVITY_CLEAR_TOP = 0x04000000;
+
+    public String getScheme() {
+        return null;
+    }
+
+    public String getAction() {
+        return null;
+    }
+
+    public String getDataString() {
+        return null;
+    }
+
+    public String getType() {
+        return null;
+    }
+
+    public String getPackage() {
+        return null;
+    }
+
+    public Object getComponent() {
+        return null;
+    }
+
+    public int getFlags() {
+        return 0;
+    }
+
+    public Set<String> getCategories() {
+        return null;
+    }
+
+    public Bundle getExtras() {
+        return null;
+    }
+}
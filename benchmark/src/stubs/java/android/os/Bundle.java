@@ -0,0 +1,26 @@
+package android.os;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @Description: android.os.Bundle在JVM上的替代实现，只提供日志解析用到的方法
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 18:20
+ */
+public final class Bundle {
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public Set<String> keySet() {
+        return values.keySet();
+    }
+
+    public Object get(String key) {
+        return values.get(key);
+    }
+}
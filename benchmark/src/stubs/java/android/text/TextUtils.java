@@ -0,0 +1,16 @@
+package android.text;
+
+/**
+ * @Description: android.text.TextUtils在JVM上的替代实现
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 18:20
+ */
+public final class TextUtils {
+
+    private TextUtils() {
+    }
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+}
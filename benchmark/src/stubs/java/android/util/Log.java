@@ -0,0 +1,47 @@
+package android.util;
+
+/**
+ * @Description: android.util.Log在JVM上的替代实现，输出到标准输出
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 18:20
+ */
+public final class Log {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    private Log() {
+    }
+
+    public static int v(String tag, String msg) {
+        return println("V", tag, msg);
+    }
+
+    public static int d(String tag, String msg) {
+        return println("D", tag, msg);
+    }
+
+    public static int i(String tag, String msg) {
+        return println("I", tag, msg);
+    }
+
+    public static int w(String tag, String msg) {
+        return println("W", tag, msg);
+    }
+
+    public static int e(String tag, String msg) {
+        return println("E", tag, msg);
+    }
+
+    public static int wtf(String tag, String msg) {
+        return println("A", tag, msg);
+    }
+
+    private static int println(String level, String tag, String msg) {
+        System.out.println(level + "/" + tag + ": " + msg);
+        return msg == null ? 0 : msg.length();
+    }
+}
@@ -0,0 +1,19 @@
+package io.reactivex.android.schedulers;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * @Description: 基准测试在JVM上运行，没有主线程Looper，主线程调度器用当前线程代替
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:50
+ */
+public final class AndroidSchedulers {
+
+    private AndroidSchedulers() {
+    }
+
+    public static Scheduler mainThread() {
+        return Schedulers.trampoline();
+    }
+}
@@ -0,0 +1,13 @@
+package org.json;
+
+/**
+ * @Description: org.json.JSONException在JVM上的替代实现
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 18:20
+ */
+public class JSONException extends Exception {
+
+    public JSONException(String message) {
+        super(message);
+    }
+}
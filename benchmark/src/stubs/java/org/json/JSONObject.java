@@ -0,0 +1,26 @@
+package org.json;
+
+/**
+ * @Description: org.json.JSONObject在JVM上的替代实现，基准测试不格式化JSON，原样输出
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 18:20
+ */
+public class JSONObject {
+    private final String json;
+
+    public JSONObject(String json) throws JSONException {
+        if (json == null) {
+            throw new JSONException("json == null");
+        }
+        this.json = json;
+    }
+
+    public String toString(int indentSpaces) throws JSONException {
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+}
@@ -0,0 +1,60 @@
+package com.oklib.utils.rxbus;
+
+import com.oklib.utils.rxbus.inner.ThreadMode;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @Description: RxBusImpl注册、重复注册和取消注册后的事件分发
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 23:40
+ */
+public class RxBusImplTest {
+
+    public static class CountEvent implements IEvent {
+    }
+
+    public static class CountReceiver {
+        int count;
+
+        @Subscribe(threadMode = ThreadMode.TRAMPOLINE)
+        public void onCount(CountEvent event) {
+            count++;
+        }
+    }
+
+    private final RxBusImpl bus = new RxBusImpl();
+    private final CountReceiver receiver = new CountReceiver();
+
+    @After
+    public void tearDown() {
+        bus.unregister(receiver);
+    }
+
+    @Test
+    public void postDeliversToRegisteredSubscriber() {
+        bus.register(receiver);
+        bus.post(new CountEvent());
+        assertEquals(1, receiver.count);
+    }
+
+    @Test
+    public void registerTwiceDeliversOnce() {
+        bus.register(receiver);
+        bus.register(receiver);
+        bus.post(new CountEvent());
+        assertEquals(1, receiver.count);
+    }
+
+    @Test
+    public void unregisterAfterRegisterTwiceStopsDelivery() {
+        bus.register(receiver);
+        bus.register(receiver);
+        bus.unregister(receiver);
+        bus.post(new CountEvent());
+        assertEquals(0, receiver.count);
+    }
+}
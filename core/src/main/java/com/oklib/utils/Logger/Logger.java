@@ -1,6 +1,9 @@
 package com.oklib.utils.Logger;
 
 
+import android.util.Log;
+
+import com.oklib.utils.Logger.common.LogSupplier;
 import com.oklib.utils.Logger.config.LogConfig;
 import com.oklib.utils.Logger.config.LogDefaultConfig;
 import com.oklib.utils.Logger.inner.SoulsTree;
@@ -13,7 +16,8 @@ import java.util.List;
 import static java.util.Collections.unmodifiableList;
 
 /**
- * @Description: 日志操作
+ * @Description: 日志操作，各方法先判断级别再交给日志树，关闭的级别不做任何格式化；
+ * 日志内容构造代价较大时可使用LogSupplier，只在需要输出时才生成
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 16/12/10 21:49.
  */
@@ -30,59 +34,141 @@ public class Logger {
     }
 
     public static void wtf(String message, Object... args) {
-        TREE_OF_SOULS.wtf(message, args);
+        if (isLoggable(Log.ASSERT)) {
+            TREE_OF_SOULS.wtf(message, args);
+        }
     }
 
     public static void wtf(Object object) {
-        TREE_OF_SOULS.wtf(object);
+        if (isLoggable(Log.ASSERT)) {
+            TREE_OF_SOULS.wtf(object);
+        }
+    }
+
+    public static void wtf(LogSupplier supplier) {
+        if (isLoggable(Log.ASSERT)) {
+            TREE_OF_SOULS.wtf(supplier != null ? supplier.get() : null);
+        }
     }
 
     public static void e(String message, Object... args) {
-        TREE_OF_SOULS.e(message, args);
+        if (isLoggable(Log.ERROR)) {
+            TREE_OF_SOULS.e(message, args);
+        }
     }
 
     public static void e(Object object) {
-        TREE_OF_SOULS.e(object);
+        if (isLoggable(Log.ERROR)) {
+            TREE_OF_SOULS.e(object);
+        }
+    }
+
+    public static void e(LogSupplier supplier) {
+        if (isLoggable(Log.ERROR)) {
+            TREE_OF_SOULS.e(supplier != null ? supplier.get() : null);
+        }
     }
 
     public static void w(String message, Object... args) {
-        TREE_OF_SOULS.w(message, args);
+        if (isLoggable(Log.WARN)) {
+            TREE_OF_SOULS.w(message, args);
+        }
     }
 
     public static void w(Object object) {
-        TREE_OF_SOULS.w(object);
+        if (isLoggable(Log.WARN)) {
+            TREE_OF_SOULS.w(object);
+        }
+    }
+
+    public static void w(LogSupplier supplier) {
+        if (isLoggable(Log.WARN)) {
+            TREE_OF_SOULS.w(supplier != null ? supplier.get() : null);
+        }
     }
 
     public static void d(String message, Object... args) {
-        TREE_OF_SOULS.d(message, args);
+        if (isLoggable(Log.DEBUG)) {
+            TREE_OF_SOULS.d(message, args);
+        }
     }
 
     public static void d(Object object) {
-        TREE_OF_SOULS.d(object);
+        if (isLoggable(Log.DEBUG)) {
+            TREE_OF_SOULS.d(object);
+        }
+    }
+
+    public static void d(LogSupplier supplier) {
+        if (isLoggable(Log.DEBUG)) {
+            TREE_OF_SOULS.d(supplier != null ? supplier.get() : null);
+        }
     }
 
     public static void i(String message, Object... args) {
-        TREE_OF_SOULS.i(message, args);
+        if (isLoggable(Log.INFO)) {
+            TREE_OF_SOULS.i(message, args);
+        }
     }
 
     public static void i(Object object) {
-        TREE_OF_SOULS.i(object);
+        if (isLoggable(Log.INFO)) {
+            TREE_OF_SOULS.i(object);
+        }
+    }
+
+    public static void i(LogSupplier supplier) {
+        if (isLoggable(Log.INFO)) {
+            TREE_OF_SOULS.i(supplier != null ? supplier.get() : null);
+        }
     }
 
     public static void v(String message, Object... args) {
-        TREE_OF_SOULS.v(message, args);
+        if (isLoggable(Log.VERBOSE)) {
+            TREE_OF_SOULS.v(message, args);
+        }
     }
 
     public static void v(Object object) {
-        TREE_OF_SOULS.v(object);
+        if (isLoggable(Log.VERBOSE)) {
+            TREE_OF_SOULS.v(object);
+        }
+    }
+
+    public static void v(LogSupplier supplier) {
+        if (isLoggable(Log.VERBOSE)) {
+            TREE_OF_SOULS.v(supplier != null ? supplier.get() : null);
+        }
     }
 
     public static void json(String json) {
-        TREE_OF_SOULS.json(json);
+        if (isLoggable(Log.DEBUG)) {
+            TREE_OF_SOULS.json(json);
+        }
     }
 
     public static void xml(String xml) {
-        TREE_OF_SOULS.xml(xml);
+        if (isLoggable(Log.DEBUG)) {
+            TREE_OF_SOULS.xml(xml);
+        }
+    }
+
+    /**
+     * 判断该级别的日志是否会输出，日志内容需要拼接或解析时可先判断，避免关闭日志后仍做无用的格式化
+     *
+     * @param type 日志级别，如Log.INFO
+     * @return
+     */
+    public static boolean isLoggable(int type) {
+        return LOG_DEFAULT_CONFIG.isEnable() && type >= LOG_DEFAULT_CONFIG.getLogLevel()
+                && ((SoulsTree) TREE_OF_SOULS).getForestAsArray().length > 0;
+    }
+
+    /**
+     * 把各日志树缓存中的日志写入存储，崩溃或退出前调用
+     */
+    public static void flush() {
+        TREE_OF_SOULS.flush();
     }
 
     public static Tree asTree() {
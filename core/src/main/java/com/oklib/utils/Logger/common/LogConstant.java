@@ -26,6 +26,12 @@ public class LogConstant {
     // 解析属性最大层级
     public static final int MAX_CHILD_LEVEL = 2;
 
+    // 数组、集合默认最多输出的元素个数
+    public static final int MAX_ELEMENTS = 100;
+
+    // 对象转换后默认最大字符数
+    public static final int MAX_CHARS = 32 * 1024;
+
     public static final int MIN_STACK_OFFSET = 5;
 
     // 换行符
@@ -1,160 +1,48 @@
 package com.oklib.utils.Logger.common;
 
 
+import com.oklib.utils.Logger.config.LogDefaultConfig;
 import com.oklib.utils.Logger.parser.Parser;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * @Description: 日志转换工具
+ * @Description: 日志转换工具，对象按类缓存字段信息，输出受最大层级、元素个数和字符数限制
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 16/12/11 10:55.
  */
 public class LogConvert {
 
-    /**
-     * 获取数组的纬度
-     *
-     * @param object
-     * @return
-     */
-    private static int getArrayDimension(Object object) {
-        int dim = 0;
-        for (int i = 0; i < object.toString().length(); ++i) {
-            if (object.toString().charAt(i) == '[') {
-                ++dim;
-            } else {
-                break;
-            }
+    private static final String TRUNCATED = "...(truncated)";
+    //类 -> 预先取出的字段信息
+    private static final Map<Class, ClassFormat> CLASS_FORMATS = new ConcurrentHashMap<>();
+    //当前解析层级，解析器内部再调用objectToString时沿用，避免层级从0重新开始
+    private static final ThreadLocal<int[]> CHILD_LEVEL = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
         }
-        return dim;
-    }
+    };
 
     /**
-     * 是否为数组
-     *
-     * @param object
-     * @return
-     */
-    private static boolean isArray(Object object) {
-        return object.getClass().isArray();
-    }
-
-    /**
-     * 获取数组类型
-     *
-     * @param object 如L为int型
-     * @return
-     */
-    private static char getType(Object object) {
-        if (isArray(object)) {
-            String str = object.toString();
-            return str.substring(str.lastIndexOf("[") + 1, str.lastIndexOf("[") + 2).charAt(0);
-        }
-        return 0;
-    }
-
-    /**
-     * 遍历数组
-     *
-     * @param result
-     * @param array
-     */
-    private static void traverseArray(StringBuilder result, Object array) {
-        if (isArray(array)) {
-            if (getArrayDimension(array) == 1) {
-                switch (getType(array)) {
-                    case 'I':
-                        result.append(Arrays.toString((int[]) array));
-                        break;
-                    case 'D':
-                        result.append(Arrays.toString((double[]) array));
-                        break;
-                    case 'Z':
-                        result.append(Arrays.toString((boolean[]) array));
-                        break;
-                    case 'B':
-                        result.append(Arrays.toString((byte[]) array));
-                        break;
-                    case 'S':
-                        result.append(Arrays.toString((short[]) array));
-                        break;
-                    case 'J':
-                        result.append(Arrays.toString((long[]) array));
-                        break;
-                    case 'F':
-                        result.append(Arrays.toString((float[]) array));
-                        break;
-                    case 'L':
-                        Object[] objects = (Object[]) array;
-                        result.append("[");
-                        for (int i = 0; i < objects.length; ++i) {
-                            result.append(objectToString(objects[i]));
-                            if (i != objects.length - 1) {
-                                result.append(",");
-                            }
-                        }
-                        result.append("]");
-                        break;
-                    default:
-                        result.append(Arrays.toString((Object[]) array));
-                        break;
-                }
-            } else {
-                result.append("[");
-                for (int i = 0; i < ((Object[]) array).length; i++) {
-                    traverseArray(result, ((Object[]) array)[i]);
-                    if (i != ((Object[]) array).length - 1) {
-                        result.append(",");
-                    }
-                }
-                result.append("]");
-            }
-        } else {
-            result.append("not a array!!");
-        }
-    }
-
-    /**
-     * 将数组内容转化为字符串
-     *
-     * @param array
-     * @return
-     */
-    private static String parseArray(Object array) {
-        StringBuilder result = new StringBuilder();
-        traverseArray(result, array);
-        return result.toString();
-    }
-
-    /**
-     * 将对象转化为String
+     * 将对象转化为String，结果不超过配置的最大字符数
      *
      * @param object
      * @return
      */
     public static String objectToString(Object object) {
-        return objectToString(object, 0);
-    }
-
-    /**
-     * 是否为静态内部类
-     *
-     * @param cla
-     * @return
-     */
-    private static boolean isStaticInnerClass(Class cla) {
-        if (cla != null && cla.isMemberClass()) {
-            int modifiers = cla.getModifiers();
-            if ((modifiers & Modifier.STATIC) == Modifier.STATIC) {
-                return true;
-            }
+        LogDefaultConfig config = LogDefaultConfig.getInstance();
+        String result = objectToString(object, CHILD_LEVEL.get()[0], config);
+        int maxChars = config.getMaxChars();
+        if (result != null && result.length() > maxChars) {
+            return result.substring(0, maxChars) + TRUNCATED;
         }
-        return false;
+        return result;
     }
 
     /**
@@ -162,97 +50,187 @@ public class LogConvert {
      *
      * @param object
      * @param childLevel 对象包含子对象层级
+     * @param config
      * @return
      */
-    private static String objectToString(Object object, int childLevel) {
+    private static String objectToString(Object object, int childLevel, LogDefaultConfig config) {
         if (object == null) {
             return LogConstant.STRING_OBJECT_NULL;
         }
-        if (childLevel > LogConstant.MAX_CHILD_LEVEL) {
+        if (childLevel > config.getMaxDepth()) {
             return object.toString();
         }
-        if (LogConstant.getParsers() != null && LogConstant.getParsers().size() > 0) {
-            for (Parser parser : LogConstant.getParsers()) {
-                if (parser.parseClassType().isAssignableFrom(object.getClass())) {
-                    return parser.parseString(object);
-                }
+        Class cla = object.getClass();
+        Parser parser = config.getParser(cla);
+        if (parser != null) {
+            int[] level = CHILD_LEVEL.get();
+            int parentLevel = level[0];
+            level[0] = childLevel + 1;
+            try {
+                return parser.parseString(object);
+            } finally {
+                level[0] = parentLevel;
             }
         }
-        if (isArray(object)) {
-            return parseArray(object);
-        }
-        if (object.toString().startsWith(object.getClass().getName() + "@")) {
+        if (cla.isArray()) {
             StringBuilder builder = new StringBuilder();
-            getClassFields(object.getClass(), builder, object, false, childLevel);
-            Class superClass = object.getClass().getSuperclass();
-            while (!superClass.equals(Object.class)) {
-                getClassFields(superClass, builder, object, true, childLevel);
-                superClass = superClass.getSuperclass();
-            }
+            traverseArray(builder, object, childLevel, config);
             return builder.toString();
-        } else {
+        }
+        ClassFormat format = getClassFormat(cla);
+        if (format.customToString) {
             // 若对象重写toString()方法默认走toString()
             return object.toString();
         }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < format.names.length; i++) {
+            if (i > 0) {
+                builder.append(LogConstant.BR).append(LogConstant.BR).append("=> ");
+            }
+            appendClassFields(builder, format.names[i], format.fields[i], object, childLevel, config);
+            if (builder.length() > config.getMaxChars()) {
+                break;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 遍历数组，超过最大元素个数的部分只输出剩余个数
+     *
+     * @param result
+     * @param array
+     * @param childLevel
+     * @param config
+     */
+    private static void traverseArray(StringBuilder result, Object array, int childLevel, LogDefaultConfig config) {
+        int length = Array.getLength(array);
+        int count = Math.min(length, config.getMaxElements());
+        boolean primitive = array.getClass().getComponentType().isPrimitive();
+        result.append("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            Object item = Array.get(array, i);
+            if (primitive) {
+                result.append(item);
+            } else if (item != null && item.getClass().isArray()) {
+                traverseArray(result, item, childLevel, config);
+            } else {
+                result.append(objectToString(item, childLevel + 1, config));
+            }
+            if (result.length() > config.getMaxChars()) {
+                result.append(TRUNCATED);
+                return;
+            }
+        }
+        if (length > count) {
+            result.append(", ...(").append(length - count).append(" more)");
+        }
+        result.append("]");
     }
 
     /**
      * 拼接class的字段和值
      *
-     * @param cla
      * @param builder
-     * @param o           对象
-     * @param isSubClass  死否为子class
-     * @param childOffset 递归解析属性的层级
+     * @param name       类名
+     * @param fields     需要输出的字段
+     * @param o          对象
+     * @param childLevel 递归解析属性的层级
+     * @param config
      */
-    private static void getClassFields(Class cla, StringBuilder builder, Object o, boolean
-            isSubClass,
-                                       int childOffset) {
-        if (cla.equals(Object.class)) {
-            return;
-        }
-        if (isSubClass) {
-            builder.append(LogConstant.BR).append(LogConstant.BR).append("=> ");
-        }
-        String breakLine = "";
-        builder.append(cla.getSimpleName()).append(" {");
-        Field[] fields = cla.getDeclaredFields();
+    private static void appendClassFields(StringBuilder builder, String name, Field[] fields, Object o,
+                                          int childLevel, LogDefaultConfig config) {
+        builder.append(name).append(" {");
         for (int i = 0; i < fields.length; ++i) {
             Field field = fields[i];
-            field.setAccessible(true);
-            if (cla.isMemberClass() && !isStaticInnerClass(cla) && i == 0) {
-                continue;
-            }
-            Object subObject = null;
+            Object subObject;
             try {
                 subObject = field.get(o);
             } catch (IllegalAccessException e) {
                 subObject = e;
-            } finally {
-                if (subObject != null) {
-                    // 解决Instant Run情况下内部类死循环的问题
-                    if (!isStaticInnerClass(cla) && (field.getName().equals("$change") || field
-                            .getName().equalsIgnoreCase("this$0"))) {
-                        continue;
-                    }
-                    if (subObject instanceof String) {
-                        subObject = "\"" + subObject + "\"";
-                    } else if (subObject instanceof Character) {
-                        subObject = "\'" + subObject + "\'";
-                    }
-                    if (childOffset < LogConstant.MAX_CHILD_LEVEL) {
-                        subObject = objectToString(subObject, childOffset + 1);
-                    }
+            }
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(field.getName()).append(" = ");
+            if (subObject == null) {
+                builder.append("null");
+            } else if (subObject instanceof String) {
+                builder.append('"').append(subObject).append('"');
+            } else if (subObject instanceof Character) {
+                builder.append('\'').append(subObject).append('\'');
+            } else if (subObject instanceof Number || subObject instanceof Boolean
+                    || childLevel >= config.getMaxDepth()) {
+                builder.append(subObject);
+            } else {
+                builder.append(objectToString(subObject, childLevel + 1, config));
+            }
+            if (builder.length() > config.getMaxChars()) {
+                builder.append(TRUNCATED);
+                break;
+            }
+        }
+        builder.append("}");
+    }
+
+    private static ClassFormat getClassFormat(Class cla) {
+        ClassFormat format = CLASS_FORMATS.get(cla);
+        if (format == null) {
+            format = new ClassFormat(cla);
+            CLASS_FORMATS.put(cla, format);
+        }
+        return format;
+    }
+
+    /**
+     * 类的输出信息：是否重写了toString，以及从自身到父类各层需要输出的字段（已设置可访问）
+     */
+    private static final class ClassFormat {
+        final boolean customToString;
+        final String[] names;
+        final Field[][] fields;
+
+        ClassFormat(Class cla) {
+            customToString = overridesToString(cla);
+            List<String> names = new ArrayList<>();
+            List<Field[]> fields = new ArrayList<>();
+            if (!customToString) {
+                for (Class c = cla; c != null && !c.equals(Object.class); c = c.getSuperclass()) {
+                    names.add(c.getSimpleName());
+                    fields.add(accessibleFields(c));
                 }
-                String formatString = breakLine + "%s = %s, ";
-                builder.append(String.format(formatString, field.getName(),
-                        subObject == null ? "null" : subObject.toString()));
             }
+            this.names = names.toArray(new String[names.size()]);
+            this.fields = fields.toArray(new Field[fields.size()][]);
         }
-        if (builder.toString().endsWith("{")) {
-            builder.append("}");
-        } else {
-            builder.replace(builder.length() - 2, builder.length() - 1, breakLine + "}");
+
+        private static boolean overridesToString(Class cla) {
+            try {
+                return cla.getMethod("toString").getDeclaringClass() != Object.class;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private static Field[] accessibleFields(Class cla) {
+            List<Field> result = new ArrayList<>();
+            for (Field field : cla.getDeclaredFields()) {
+                // 跳过外部类引用和Instant Run生成的字段，避免内部类死循环
+                if (field.isSynthetic() || field.getName().equals("$change")
+                        || field.getName().equalsIgnoreCase("this$0")) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    result.add(field);
+                } catch (SecurityException e) {
+                    e.printStackTrace();
+                }
+            }
+            return result.toArray(new Field[result.size()]);
         }
     }
 
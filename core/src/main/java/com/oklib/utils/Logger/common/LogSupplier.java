@@ -0,0 +1,10 @@
+package com.oklib.utils.Logger.common;
+
+/**
+ * @Description: 延迟生成日志内容，只有对应级别的日志会输出时才调用
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-19 00:20
+ */
+public interface LogSupplier {
+    Object get();
+}
@@ -24,6 +24,15 @@ public interface LogConfig {
     //设置日志最小显示级别
     LogConfig configLevel(int logLevel);
 
+    //设置对象解析的最大层级
+    LogConfig configMaxDepth(int maxDepth);
+
+    //设置数组、集合最多输出的元素个数
+    LogConfig configMaxElements(int maxElements);
+
+    //设置对象转换后的最大字符数
+    LogConfig configMaxChars(int maxChars);
+
     //添加自定义解析器
     LogConfig addParserClass(Class<? extends Parser>... classes);
 }
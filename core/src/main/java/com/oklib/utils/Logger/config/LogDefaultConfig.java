@@ -3,11 +3,14 @@ package com.oklib.utils.Logger.config;
 import android.text.TextUtils;
 import android.util.Log;
 
+import com.oklib.utils.Logger.common.LogConstant;
 import com.oklib.utils.Logger.common.LogPattern;
 import com.oklib.utils.Logger.parser.Parser;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @Description: 日志默认配置实现
@@ -15,17 +18,34 @@ import java.util.List;
  * @date: 16/12/11 11:08.
  */
 public class LogDefaultConfig implements LogConfig {
-    private boolean enable = true;
+    private volatile boolean enable = true;
     private String tagPrefix;
     private boolean showBorder = false;
-    private int logLevel = Log.VERBOSE;
-    private List<Parser> parseList;
+    private volatile int logLevel = Log.VERBOSE;
+    private volatile int maxDepth = LogConstant.MAX_CHILD_LEVEL;
+    private volatile int maxElements = LogConstant.MAX_ELEMENTS;
+    private volatile int maxChars = LogConstant.MAX_CHARS;
+    private final List<Parser> parseList;
+    //对象类型 -> 解析器，没有对应解析器时为NO_PARSER
+    private final Map<Class, Parser> parserCache = new ConcurrentHashMap<>();
+    private static final Parser NO_PARSER = new Parser<Object>() {
+        @Override
+        public Class<Object> parseClassType() {
+            return Object.class;
+        }
+
+        @Override
+        public String parseString(Object o) {
+            return null;
+        }
+    };
     private String formatTag;
+    private volatile LogPattern formatPattern;
 
     private static LogDefaultConfig singleton;
 
     private LogDefaultConfig() {
-        parseList = new ArrayList<>();
+        parseList = new CopyOnWriteArrayList<>();
     }
 
     public static LogDefaultConfig getInstance() {
@@ -54,19 +74,16 @@ public class LogDefaultConfig implements LogConfig {
     @Override
     public LogConfig configFormatTag(String formatTag) {
         this.formatTag = formatTag;
+        this.formatPattern = TextUtils.isEmpty(formatTag) ? null : LogPattern.compile(formatTag);
         return this;
     }
 
     public String getFormatTag(StackTraceElement caller) {
-        if (TextUtils.isEmpty(formatTag) || caller == null) {
-            return null;
-        }
-        LogPattern logPattern = LogPattern.compile(formatTag);
-        if (logPattern != null) {
-            return logPattern.apply(caller);
-        } else {
+        LogPattern logPattern = formatPattern;
+        if (logPattern == null || caller == null) {
             return null;
         }
+        return logPattern.apply(caller);
     }
 
     @Override
@@ -82,17 +99,63 @@ public class LogDefaultConfig implements LogConfig {
     }
 
     @Override
-    public LogConfig addParserClass(Class<? extends Parser>... classes) {
+    public LogConfig configMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(0, maxDepth);
+        return this;
+    }
+
+    @Override
+    public LogConfig configMaxElements(int maxElements) {
+        this.maxElements = Math.max(1, maxElements);
+        return this;
+    }
+
+    @Override
+    public LogConfig configMaxChars(int maxChars) {
+        this.maxChars = Math.max(LogConstant.LINE_MAX, maxChars);
+        return this;
+    }
+
+    @Override
+    public synchronized LogConfig addParserClass(Class<? extends Parser>... classes) {
         for (Class<? extends Parser> cla : classes) {
             try {
+                //每棵日志树都会添加默认解析器，同一解析器只保留一个，后添加的优先
+                for (Parser parser : parseList) {
+                    if (parser.getClass() == cla) {
+                        parseList.remove(parser);
+                    }
+                }
                 parseList.add(0, cla.newInstance());
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
+        parserCache.clear();
         return this;
     }
 
+    /**
+     * 获取对象类型对应的解析器，按类型缓存查找结果
+     *
+     * @param cla
+     * @return 没有对应解析器时返回null
+     */
+    public Parser getParser(Class cla) {
+        Parser parser = parserCache.get(cla);
+        if (parser == null) {
+            parser = NO_PARSER;
+            for (Parser p : parseList) {
+                if (p.parseClassType().isAssignableFrom(cla)) {
+                    parser = p;
+                    break;
+                }
+            }
+            parserCache.put(cla, parser);
+        }
+        return parser == NO_PARSER ? null : parser;
+    }
+
     public boolean isEnable() {
         return enable;
     }
@@ -112,6 +175,18 @@ public class LogDefaultConfig implements LogConfig {
         return logLevel;
     }
 
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxElements() {
+        return maxElements;
+    }
+
+    public int getMaxChars() {
+        return maxChars;
+    }
+
     public List<Parser> getParseList() {
         return parseList;
     }
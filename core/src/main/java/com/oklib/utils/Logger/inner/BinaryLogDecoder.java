@@ -0,0 +1,198 @@
+package com.oklib.utils.Logger.inner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * @Description: 二进制日志解码，把BinaryLogEncoder写出的文件还原为与文本日志相同的格式，
+ * 只依赖JDK，可在电脑上直接运行：
+ * java -cp classes com.oklib.utils.Logger.inner.BinaryLogDecoder log_xxx.blog [...]
+ * <p>
+ * 文件格式：
+ * 文件头 "OKLG" | 版本(1字节) | 标志(1字节，bit0为deflate压缩) | 文件头文本(varint长度 + UTF-8)
+ * 记录 时间差(zigzag varint) | 级别(1字节) | 标签引用 | 调用位置引用 | 内容(varint长度 + UTF-8)
+ * 引用 varint，0为空，1~n为已出现的字符串，n+1表示随后是新字符串(varint长度 + UTF-8)
+ * 压缩时记录按块存放：原始长度(varint) | 压缩长度(varint) | deflate数据，记录不跨块
+ * 级别为0或块长度为0表示文件结束（进程意外结束时映射文件末尾为0）
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 23:40
+ */
+public class BinaryLogDecoder {
+    static final byte[] MAGIC = {'O', 'K', 'L', 'G'};
+    static final int VERSION = 1;
+    static final int FLAG_DEFLATE = 1;
+    static final int MAX_TABLE_SIZE = 4096;//字符串表最大条数
+    static final int MAX_CALLER_LENGTH = 256;//调用位置最大长度
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final char[] LEVELS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private final Date date = new Date();
+    private final List<String> tags = new ArrayList<>();
+    private final List<String> callers = new ArrayList<>();
+    private long lastTime;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: BinaryLogDecoder <file.blog> [file.blog ...]");
+            System.exit(1);
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF8));
+        try {
+            for (String path : args) {
+                InputStream in = new FileInputStream(path);
+                try {
+                    new BinaryLogDecoder().decode(in, out);
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * 解码一个文件，输出文本日志
+     *
+     * @param in
+     * @param out
+     * @throws IOException
+     */
+    public void decode(InputStream in, Writer out) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+        byte[] magic = new byte[MAGIC.length];
+        input.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Not a binary log file");
+            }
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary log version " + version);
+        }
+        int flags = input.readUnsignedByte();
+        out.write(readString(input));
+        tags.clear();
+        callers.clear();
+        lastTime = 0;
+        if ((flags & FLAG_DEFLATE) == 0) {
+            decodeRecords(input, out);
+            return;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            while (true) {
+                int rawLength;
+                try {
+                    rawLength = (int) readVarLong(input);
+                } catch (EOFException e) {
+                    return;
+                }
+                if (rawLength == 0) {
+                    return;
+                }
+                byte[] compressed = new byte[(int) readVarLong(input)];
+                input.readFully(compressed);
+                byte[] raw = new byte[rawLength];
+                inflater.reset();
+                inflater.setInput(compressed);
+                try {
+                    if (inflater.inflate(raw) != rawLength) {
+                        throw new IOException("Corrupt log block");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt log block", e);
+                }
+                decodeRecords(new DataInputStream(new ByteArrayInputStream(raw)), out);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void decodeRecords(DataInputStream input, Writer out) throws IOException {
+        while (true) {
+            long zigzag;
+            int type;
+            try {
+                zigzag = readVarLong(input);
+                type = input.readUnsignedByte();
+            } catch (EOFException e) {
+                return;
+            }
+            if (type == 0) {
+                return;
+            }
+            lastTime += (zigzag >>> 1) ^ -(zigzag & 1);
+            String tag = readRef(input, tags);
+            String caller = readRef(input, callers);
+            String message = readString(input);
+            date.setTime(lastTime);
+            out.write(timeFormat.format(date));
+            out.write(' ');
+            out.write(type < LEVELS.length ? LEVELS[type] : '?');
+            out.write('/');
+            out.write(String.valueOf(tag));
+            out.write(": ");
+            if (caller != null) {
+                out.write(caller);
+                out.write(": ");
+            }
+            out.write(message);
+            out.write('\n');
+        }
+    }
+
+    private static String readRef(DataInputStream input, List<String> table) throws IOException {
+        int ref = (int) readVarLong(input);
+        if (ref == 0) {
+            return null;
+        }
+        if (ref <= table.size()) {
+            return table.get(ref - 1);
+        }
+        if (ref != table.size() + 1) {
+            throw new IOException("Corrupt string reference " + ref);
+        }
+        String value = readString(input);
+        if (table.size() < MAX_TABLE_SIZE) {
+            table.add(value);
+        }
+        return value;
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(input)];
+        input.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
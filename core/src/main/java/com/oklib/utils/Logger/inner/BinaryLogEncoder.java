@@ -0,0 +1,163 @@
+package com.oklib.utils.Logger.inner;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * @Description: 二进制日志编码，格式见BinaryLogDecoder：时间记录与上一条的差值(varint)，
+ * 标签和调用位置在每个文件内只写一次，之后用序号引用；可选按块deflate压缩
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 23:40
+ */
+public class BinaryLogEncoder implements MappedLogWriter.Encoder {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;//默认压缩块大小
+
+    private final boolean compress;
+    private final int blockSize;
+    private final Map<String, Integer> tags = new HashMap<>();
+    private final Map<String, Integer> callers = new HashMap<>();
+    private final Buffer records = new Buffer(1024);
+    private final Buffer output = new Buffer(1024);
+    private Deflater deflater;
+    private byte[] deflateBuffer;
+    private long lastTime;
+
+    /**
+     * @param compress 是否按块压缩
+     */
+    public BinaryLogEncoder(boolean compress) {
+        this(compress, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BinaryLogEncoder(boolean compress, int blockSize) {
+        this.compress = compress;
+        this.blockSize = Math.max(1024, blockSize);
+    }
+
+    /**
+     * 文件头中保存的文本信息，比如手机信息
+     *
+     * @return
+     */
+    protected String headerText() {
+        return "";
+    }
+
+    @Override
+    public byte[] header() {
+        //每个文件单独解码，字符串表和时间基准都重新开始
+        tags.clear();
+        callers.clear();
+        records.reset();
+        lastTime = 0;
+        output.reset();
+        output.write(BinaryLogDecoder.MAGIC, 0, BinaryLogDecoder.MAGIC.length);
+        output.write(BinaryLogDecoder.VERSION);
+        output.write(compress ? BinaryLogDecoder.FLAG_DEFLATE : 0);
+        writeString(output, headerText());
+        return output.toByteArray();
+    }
+
+    @Override
+    public byte[] encode(long time, int type, String tag, String message) {
+        long delta = time - lastTime;
+        lastTime = time;
+        writeVarLong(records, (delta << 1) ^ (delta >> 63));
+        records.write(type);
+        writeRef(records, tags, tag);
+        String caller = null;
+        if (message != null) {
+            //Tree输出的日志以"类.方法(文件:行号): "开头，调用位置重复度高，单独放入字符串表
+            int end = message.indexOf("): ");
+            if (end > 0 && end < BinaryLogDecoder.MAX_CALLER_LENGTH && message.lastIndexOf('(', end) > 0) {
+                caller = message.substring(0, end + 1);
+                message = message.substring(end + 3);
+            }
+        }
+        writeRef(records, callers, caller);
+        writeString(records, message);
+        if (!compress) {
+            byte[] bytes = records.toByteArray();
+            records.reset();
+            return bytes;
+        }
+        return records.size() >= blockSize ? flush() : null;
+    }
+
+    @Override
+    public byte[] flush() {
+        if (!compress || records.size() == 0) {
+            return null;
+        }
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            deflateBuffer = new byte[4096];
+        }
+        Buffer block = new Buffer(records.size() / 2 + 16);
+        deflater.reset();
+        deflater.setInput(records.array(), 0, records.size());
+        deflater.finish();
+        while (!deflater.finished()) {
+            int count = deflater.deflate(deflateBuffer);
+            block.write(deflateBuffer, 0, count);
+        }
+        output.reset();
+        writeVarLong(output, records.size());
+        writeVarLong(output, block.size());
+        output.write(block.array(), 0, block.size());
+        records.reset();
+        return output.toByteArray();
+    }
+
+    /**
+     * 写入字符串引用：0表示空，1~n引用已出现的字符串，n+1表示随后是新字符串
+     */
+    private static void writeRef(Buffer out, Map<String, Integer> table, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        Integer index = table.get(value);
+        if (index != null) {
+            writeVarLong(out, index);
+            return;
+        }
+        writeVarLong(out, table.size() + 1);
+        writeString(out, value);
+        //字符串表满后不再加入，解码端按相同规则处理
+        if (table.size() < BinaryLogDecoder.MAX_TABLE_SIZE) {
+            table.put(value, table.size() + 1);
+        }
+    }
+
+    private static void writeString(Buffer out, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(UTF8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarLong(Buffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * 可直接访问内部数组的ByteArrayOutputStream，避免压缩时拷贝
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -7,145 +7,178 @@ import android.os.Build;
 import android.os.Environment;
 import android.util.Log;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
- * @Description: 文件树-输出日志信息到文件
+ * @Description: 文件树-输出日志信息到文件，日志放入队列后由MappedLogWriter在后台线程写入，
+ * 所有级别写入同一个按大小和时间滚动的文件，每行带时间和级别
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2017-03-31 14:26
  */
 public class FileTree extends Tree {
 
     private static final String PATH = Environment.getExternalStorageDirectory().getPath() + File.separator;
-    private static final String FILE_NAME_VERBOSE = "verbose_";
-    private static final String FILE_NAME_INFO = "info_";
-    private static final String FILE_NAME_DEBUG = "debug_";
-    private static final String FILE_NAME_WARN = "warn_";
-    private static final String FILE_NAME_ERROR = "error_";
-    private static final String FILE_NAME_ASSERT = "assert_";
+    private static final String FILE_NAME_PREFIX = "log_";
     private static final String FILE_NAME_SUFFIX = ".log";
+    private static final String FILE_NAME_SUFFIX_BINARY = ".blog";
+    private static final long FLUSH_TIMEOUT_MILLIS = 2000;//崩溃时最多等待写入的时间
     private Context mContext;
     private String mDirectory;
-    private File mLogFile;
-    private boolean mIsPrintPhoneInfo = false;
+    private MappedLogWriter mWriter;
+
+    /**
+     * 日志文件格式
+     */
+    public enum Format {
+        TEXT,           //文本，可直接查看
+        BINARY,         //二进制，使用BinaryLogDecoder还原
+        BINARY_DEFLATE  //二进制并按块压缩，适合需要上传的日志
+    }
 
     public FileTree(Context mContext, String mDirectory) {
-        this.mContext = mContext;
+        this(mContext, mDirectory, MappedLogWriter.DEFAULT_MAX_FILE_SIZE, MappedLogWriter.DEFAULT_MAX_FILES);
+    }
+
+    public FileTree(Context mContext, String mDirectory, long maxFileSize, int maxFiles) {
+        this(mContext, mDirectory, maxFileSize, maxFiles, Format.TEXT);
+    }
+
+    /**
+     * @param mContext
+     * @param mDirectory   日志目录，位于SD卡根目录下
+     * @param maxFileSize  单个日志文件最大大小
+     * @param maxFiles     最多保留的日志文件数
+     * @param format       日志文件格式
+     */
+    public FileTree(Context mContext, String mDirectory, long maxFileSize, int maxFiles, Format format) {
+        this.mContext = mContext.getApplicationContext() != null ? mContext.getApplicationContext() : mContext;
         this.mDirectory = mDirectory;
+        MappedLogWriter.Encoder encoder;
+        String suffix;
+        if (format == Format.BINARY || format == Format.BINARY_DEFLATE) {
+            encoder = new BinaryLogEncoder(format == Format.BINARY_DEFLATE) {
+                @Override
+                protected String headerText() {
+                    StringBuilder builder = new StringBuilder(256);
+                    printPhoneInfo(builder);
+                    return builder.append('\n').toString();
+                }
+            };
+            suffix = FILE_NAME_SUFFIX_BINARY;
+        } else {
+            encoder = new TextEncoder();
+            suffix = FILE_NAME_SUFFIX;
+        }
+        this.mWriter = new MappedLogWriter(new File(PATH + mDirectory), FILE_NAME_PREFIX, suffix, encoder)
+                .rolling(maxFileSize, MappedLogWriter.DEFAULT_MAX_FILE_AGE_MILLIS, maxFiles)
+                .start();
     }
 
     @Override
     protected void log(int type, String tag, String message) {
-        saveMessageToSDCard(type, tag, message);
-    }
-
-    private void saveMessageToSDCard(int type, String tag, String message) {
         //如果SD卡不存在或无法使用，则无法把日志信息写入SD卡
         if (!Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
-            System.out.print("sdcard unmounted, skip dump exception");
             return;
         }
-        File dir = new File(PATH + mDirectory);
-        if (!dir.exists()) {
-            dir.mkdirs();
+        mWriter.append(type, tag, message);
+    }
+
+    @Override
+    public void flush() {
+        mWriter.flush(FLUSH_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 获取因积压过多被丢弃的日志条数
+     *
+     * @return
+     */
+    public int getDroppedCount() {
+        return mWriter.getDroppedCount();
+    }
+
+    /**
+     * 文本格式，新文件开头打印手机信息，之后每条日志一行：时间 级别/标签: 内容
+     */
+    private class TextEncoder implements MappedLogWriter.Encoder {
+        private final Charset charset = Charset.forName("UTF-8");
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        private final Date date = new Date();
+        private final StringBuilder builder = new StringBuilder(256);
+
+        @Override
+        public byte[] header() {
+            builder.setLength(0);
+            printPhoneInfo(builder);
+            builder.append('\n');
+            return builder.toString().getBytes(charset);
         }
-        String timeDay = new SimpleDateFormat("yyyy-MM-dd").format(new Date(System.currentTimeMillis()));
-        String timeHour = new SimpleDateFormat("yyyy-MM-dd-HH").format(new Date(System.currentTimeMillis()));
-        String timeMinute = new SimpleDateFormat("yyyy-MM-dd-HH-mm").format(new Date(System.currentTimeMillis()));
-        String timeSecond = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss").format(new Date(System.currentTimeMillis()));
-        String fileName = FILE_NAME_VERBOSE;
+
+        @Override
+        public byte[] encode(long time, int type, String tag, String message) {
+            date.setTime(time);
+            builder.setLength(0);
+            builder.append(timeFormat.format(date)).append(' ')
+                    .append(levelLetter(type)).append('/').append(tag).append(": ")
+                    .append(message).append('\n');
+            return builder.toString().getBytes(charset);
+        }
+
+        @Override
+        public byte[] flush() {
+            return null;
+        }
+    }
+
+    private static char levelLetter(int type) {
         switch (type) {
             case Log.VERBOSE:
-                fileName = FILE_NAME_VERBOSE + timeMinute;
-                break;
-            case Log.INFO:
-                fileName = FILE_NAME_INFO + timeHour;
-                break;
+                return 'V';
             case Log.DEBUG:
-                fileName = FILE_NAME_DEBUG + timeMinute;
-                break;
+                return 'D';
+            case Log.INFO:
+                return 'I';
             case Log.WARN:
-                fileName = FILE_NAME_WARN + timeDay;
-                break;
+                return 'W';
             case Log.ERROR:
-                fileName = FILE_NAME_ERROR + timeSecond;
-                break;
+                return 'E';
             case Log.ASSERT:
-                fileName = FILE_NAME_ASSERT + timeDay;
-                break;
+                return 'A';
             default:
-                break;
-        }
-        mLogFile = new File(PATH + mDirectory + File.separator + fileName + FILE_NAME_SUFFIX);
-        try {
-            if (!mLogFile.exists()) {
-                mLogFile.createNewFile();
-                mIsPrintPhoneInfo = true;
-            } else {
-                mIsPrintPhoneInfo = false;
-            }
-            PrintWriter printWriter = new PrintWriter(new BufferedWriter(new FileWriter(mLogFile, true)));
-            if (!mIsPrintPhoneInfo) {
-                //换行
-                printWriter.println();
-                printWriter.println();
-            }
-            //打印发生异常的时间
-            printWriter.println(timeSecond);
-            if (mIsPrintPhoneInfo) {
-                //打印手机信息
-                printPhoneInfo(printWriter);
-                //换行
-                printWriter.println();
-            }
-            //打印日志信息
-            printWriter.print(tag + "\t" + message);
-            printWriter.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+                return '?';
         }
     }
 
     /**
      * 打印手机信息
      *
-     * @param printWriter
+     * @param builder
      */
-    private void printPhoneInfo(PrintWriter printWriter) {
+    private void printPhoneInfo(StringBuilder builder) {
         try {
             //应用的版本名称和版本号
             PackageManager packageManager = mContext.getPackageManager();
             PackageInfo packageInfo = packageManager.getPackageInfo(mContext.getPackageName(), PackageManager.GET_ACTIVITIES);
-            printWriter.print("App Version:");
-            printWriter.print(packageInfo.versionName);
-            printWriter.print('_');
-            printWriter.println(packageInfo.versionCode);
-
-            //android版本号
-            printWriter.print("OS Version:");
-            printWriter.print(Build.VERSION.RELEASE);
-            printWriter.print('_');
-            printWriter.println(Build.VERSION.SDK_INT);
-
-            //手机制造商
-            printWriter.print("Vendor:");
-            printWriter.println(Build.MANUFACTURER);
-
-            //手机型号
-            printWriter.print("Model:");
-            printWriter.println(Build.MODEL);
-
-            //cpu架构
-            printWriter.print("CPU ABI:");
-            printWriter.println(Build.CPU_ABI);
+            builder.append("App Version:").append(packageInfo.versionName)
+                    .append('_').append(packageInfo.versionCode).append('\n');
         } catch (PackageManager.NameNotFoundException e) {
             e.printStackTrace();
         }
+
+        //android版本号
+        builder.append("OS Version:").append(Build.VERSION.RELEASE)
+                .append('_').append(Build.VERSION.SDK_INT).append('\n');
+
+        //手机制造商
+        builder.append("Vendor:").append(Build.MANUFACTURER).append('\n');
+
+        //手机型号
+        builder.append("Model:").append(Build.MODEL).append('\n');
+
+        //cpu架构
+        builder.append("CPU ABI:").append(Build.CPU_ABI).append('\n');
     }
 }
@@ -0,0 +1,384 @@
+package com.oklib.utils.Logger.inner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @Description: 异步日志文件写入，调用线程只把日志放入无锁队列，由单独的写线程编码后写入内存映射的文件分段，
+ * 定时刷盘；文件按大小和时间滚动，只保留最近的若干个文件，积压超过上限时按丢弃策略丢弃；
+ * 文件滚动时会截掉映射多出的空白，进程意外结束时当前文件末尾可能留有未写入的0字节
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 23:10
+ */
+public class MappedLogWriter implements Runnable {
+    public static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;//默认每次映射的大小
+    public static final long DEFAULT_MAX_FILE_SIZE = 4 * 1024 * 1024;//默认单个文件最大大小
+    public static final long DEFAULT_MAX_FILE_AGE_MILLIS = 24 * 60 * 60 * 1000L;//默认单个文件最长时间
+    public static final int DEFAULT_MAX_FILES = 10;//默认保留的文件数
+    public static final int DEFAULT_MAX_BACKLOG = 2048;//默认最大积压条数
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 3000;//默认刷盘间隔
+
+    /**
+     * 积压超过上限时的丢弃策略
+     */
+    public enum DropPolicy {
+        DROP_NEWEST,//丢弃新日志
+        DROP_OLDEST //丢弃最早的日志
+    }
+
+    /**
+     * 日志编码，只在写线程调用
+     */
+    public interface Encoder {
+        /**
+         * 新文件的文件头，可以为null
+         *
+         * @return
+         */
+        byte[] header();
+
+        /**
+         * 编码一条日志
+         *
+         * @param time
+         * @param type
+         * @param tag
+         * @param message
+         * @return
+         */
+        byte[] encode(long time, int type, String tag, String message);
+
+        /**
+         * 输出编码器中缓存的数据，按块压缩时使用，刷盘和关闭文件前调用，可以为null
+         *
+         * @return
+         */
+        byte[] flush();
+    }
+
+    private static final class Record {
+        final long time;
+        final int type;
+        final String tag;
+        final String message;
+
+        Record(long time, int type, String tag, String message) {
+            this.time = time;
+            this.type = type;
+            this.tag = tag;
+            this.message = message;
+        }
+    }
+
+    private final File directory;
+    private final String prefix;
+    private final String suffix;
+    private final Encoder encoder;
+    private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicLong flushRequested = new AtomicLong();
+    private final Object flushLock = new Object();
+    private final Thread thread;
+    private final SimpleDateFormat fileNameFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");//只在写线程使用
+
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+    private long maxFileAgeMillis = DEFAULT_MAX_FILE_AGE_MILLIS;
+    private int maxFiles = DEFAULT_MAX_FILES;
+    private int maxBacklog = DEFAULT_MAX_BACKLOG;
+    private DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+
+    //以下只在写线程访问
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long fileSize;
+    private long fileCreateTime;
+    private long lastFlushTime;
+    private long flushCompleted;//由flushLock保护
+
+    /**
+     * @param directory 日志目录
+     * @param prefix    文件名前缀
+     * @param suffix    文件名后缀
+     * @param encoder   日志编码
+     */
+    public MappedLogWriter(File directory, String prefix, String suffix, Encoder encoder) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.encoder = encoder;
+        this.thread = new Thread(this, "MappedLogWriter");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 设置文件滚动条件
+     *
+     * @param maxFileSize      单个文件最大大小
+     * @param maxFileAgeMillis 单个文件最长时间
+     * @param maxFiles         保留的文件数
+     * @return
+     */
+    public MappedLogWriter rolling(long maxFileSize, long maxFileAgeMillis, int maxFiles) {
+        this.maxFileSize = Math.max(segmentSize, maxFileSize);
+        this.maxFileAgeMillis = maxFileAgeMillis > 0 ? maxFileAgeMillis : Long.MAX_VALUE;
+        this.maxFiles = Math.max(1, maxFiles);
+        return this;
+    }
+
+    /**
+     * 设置积压上限和丢弃策略
+     *
+     * @param maxBacklog
+     * @param dropPolicy
+     * @return
+     */
+    public MappedLogWriter backlog(int maxBacklog, DropPolicy dropPolicy) {
+        this.maxBacklog = Math.max(1, maxBacklog);
+        if (dropPolicy != null) {
+            this.dropPolicy = dropPolicy;
+        }
+        return this;
+    }
+
+    /**
+     * 设置刷盘间隔
+     *
+     * @param flushIntervalMillis
+     * @return
+     */
+    public MappedLogWriter flushInterval(long flushIntervalMillis) {
+        this.flushIntervalMillis = Math.max(100, flushIntervalMillis);
+        return this;
+    }
+
+    /**
+     * 启动写线程，配置需在启动前完成
+     *
+     * @return
+     */
+    public MappedLogWriter start() {
+        thread.start();
+        return this;
+    }
+
+    /**
+     * 放入一条日志，不等待写入
+     *
+     * @param type
+     * @param tag
+     * @param message
+     */
+    public void append(int type, String tag, String message) {
+        if (backlog.incrementAndGet() > maxBacklog) {
+            if (dropPolicy == DropPolicy.DROP_NEWEST || queue.poll() == null) {
+                backlog.decrementAndGet();
+                dropped.incrementAndGet();
+                return;
+            }
+            //丢弃最早的一条，积压数不变
+            backlog.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+        queue.offer(new Record(System.currentTimeMillis(), type, tag, message));
+        if (backlog.get() == 1) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 写入已放入的日志并刷盘，最多等待timeoutMillis，用于崩溃或退出前保存日志
+     *
+     * @param timeoutMillis
+     */
+    public void flush(long timeoutMillis) {
+        long target = flushRequested.incrementAndGet();
+        LockSupport.unpark(thread);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (flushLock) {
+            while (flushCompleted < target) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return;
+                }
+                try {
+                    flushLock.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public int getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void run() {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (true) {
+            long requested = flushRequested.get();
+            Record record;
+            while ((record = queue.poll()) != null) {
+                backlog.decrementAndGet();
+                write(record);
+            }
+            long now = System.currentTimeMillis();
+            if (requested > completedFlush() || now - lastFlushTime >= flushIntervalMillis) {
+                force();
+                lastFlushTime = now;
+                synchronized (flushLock) {
+                    flushCompleted = requested;
+                    flushLock.notifyAll();
+                }
+            }
+            if (queue.isEmpty() && flushRequested.get() == requested) {
+                LockSupport.parkNanos(this, nanos);
+            }
+        }
+    }
+
+    private long completedFlush() {
+        synchronized (flushLock) {
+            return flushCompleted;
+        }
+    }
+
+    private void write(Record record) {
+        try {
+            //先判断是否滚动，保证同一条记录的编码状态（如字符串表）和写入的文件一致
+            long now = System.currentTimeMillis();
+            if (file == null || fileSize >= maxFileSize || now - fileCreateTime >= maxFileAgeMillis) {
+                roll(now);
+            }
+            int lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                put(encoder.encode(record.time, record.type, "MappedLogWriter", lost + " logs dropped"));
+            }
+            put(encoder.encode(record.time, record.type, record.tag, record.message));
+        } catch (Exception e) {
+            //写入失败时关闭当前文件，下一条日志重新创建文件
+            e.printStackTrace();
+            closeFile();
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes == null) {
+            return;
+        }
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (segment == null || !segment.hasRemaining()) {
+                map(fileSize);
+            }
+            int length = Math.min(segment.remaining(), bytes.length - offset);
+            segment.put(bytes, offset, length);
+            offset += length;
+            fileSize += length;
+        }
+    }
+
+    private void roll(long now) throws IOException {
+        closeFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create log directory " + directory);
+        }
+        String name = prefix + fileNameFormat.format(new Date(now));
+        File logFile = new File(directory, name + suffix);
+        for (int i = 1; logFile.exists(); i++) {
+            logFile = new File(directory, name + "-" + i + suffix);
+        }
+        file = new RandomAccessFile(logFile, "rw");
+        channel = file.getChannel();
+        fileSize = 0;
+        fileCreateTime = now;
+        deleteOldFiles();
+        put(encoder.header());
+    }
+
+    private void map(long position) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, position, segmentSize);
+    }
+
+    private void force() {
+        if (file == null) {
+            return;
+        }
+        try {
+            put(encoder.flush());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * 关闭当前文件，截掉映射时多出的空白部分
+     */
+    private void closeFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            force();
+            segment = null;
+            channel.truncate(fileSize);
+            file.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        file = null;
+        channel = null;
+    }
+
+    private void deleteOldFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        int count = 0;
+        for (File f : files) {
+            if (isLogFile(f)) {
+                files[count++] = f;
+            }
+        }
+        if (count <= maxFiles) {
+            return;
+        }
+        File[] logFiles = Arrays.copyOf(files, count);
+        Arrays.sort(logFiles, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+        for (int i = 0; i < count - maxFiles; i++) {
+            logFiles[i].delete();
+        }
+    }
+
+    private boolean isLogFile(File f) {
+        String name = f.getName();
+        return name.startsWith(prefix) && name.endsWith(suffix);
+    }
+}
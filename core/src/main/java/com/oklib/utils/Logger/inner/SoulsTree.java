@@ -9,6 +9,14 @@ public class SoulsTree extends Tree {
 
     private volatile Tree[] forestAsArray = new Tree[0];
 
+    @Override
+    public void flush() {
+        Tree[] forest = forestAsArray;
+        for (int i = 0, count = forest.length; i < count; i++) {
+            forest[i].flush();
+        }
+    }
+
     @Override
     public void wtf(String message, Object... args) {
         Tree[] forest = forestAsArray;
@@ -14,6 +14,8 @@ import org.json.JSONObject;
 
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.MissingFormatArgumentException;
 
 import javax.xml.transform.OutputKeys;
@@ -31,6 +33,16 @@ import javax.xml.transform.stream.StreamSource;
  */
 public abstract class Tree implements ITree {
 
+    private static final int CALLER_CACHE_SIZE = 256;
+    //调用位置 -> 格式化后的堆栈信息
+    private static final Map<StackTraceElement, String> CALLER_CACHE =
+            new LinkedHashMap<StackTraceElement, String>(CALLER_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StackTraceElement, String> eldest) {
+                    return size() > CALLER_CACHE_SIZE;
+                }
+            };
+
     private LogDefaultConfig mLogConfig;
     private final ThreadLocal<String> localTags = new ThreadLocal<>();
 
@@ -108,6 +120,9 @@ public abstract class Tree implements ITree {
 
     @Override
     public void json(String json) {
+        if (!isLoggable(Log.DEBUG)) {
+            return;
+        }
         int indent = 4;
         if (TextUtils.isEmpty(json)) {
             d("JSON{json is empty}");
@@ -130,6 +145,9 @@ public abstract class Tree implements ITree {
 
     @Override
     public void xml(String xml) {
+        if (!isLoggable(Log.DEBUG)) {
+            return;
+        }
         if (TextUtils.isEmpty(xml)) {
             d("XML{xml is empty}");
             return;
@@ -148,34 +166,42 @@ public abstract class Tree implements ITree {
     }
 
     private void logObject(int type, Object object) {
+        if (!isLoggable(type)) {//先判断级别，再解析对象
+            return;
+        }
         logString(type, LogConvert.objectToString(object));
     }
 
-    private synchronized void logString(int type, String msg, Object... args) {
-        logString(type, msg, false, args);
-    }
-
-    private void logString(int type, String msg, boolean isPart, Object... args) {
-        if (!mLogConfig.isEnable()) {//判定是否显示日志
+    private void logString(int type, String msg, Object... args) {
+        if (!isLoggable(type)) {
             return;
         }
-        if (type < mLogConfig.getLogLevel()) {//判断日志显示最小级别
-            return;
+        //调用位置每条日志只取一次，分段和排版线条的各行共用
+        String caller = getTopStackInfo();
+        synchronized (this) {
+            logString(type, msg, caller, false, args);
         }
+    }
+
+    private boolean isLoggable(int type) {
+        //判定是否显示日志，以及日志显示最小级别
+        return mLogConfig.isEnable() && type >= mLogConfig.getLogLevel();
+    }
+
+    private void logString(int type, String msg, String caller, boolean isPart, Object... args) {
         String tag = generateTag();
         //判断信息是否超过一行最大显示
         if (msg.length() > LogConstant.LINE_MAX) {//超过一行
             if (mLogConfig.isShowBorder()) {
-                printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_TOP));
-                printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_NORMAL) +
-                        getTopStackInfo());
-                printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_CENTER));
+                printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_TOP));
+                printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_NORMAL) + caller);
+                printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_CENTER));
             }
             for (String subMsg : LogConvert.largeStringToList(msg)) {
-                logString(type, subMsg, true, args);
+                logString(type, subMsg, caller, true, args);
             }
             if (mLogConfig.isShowBorder()) {
-                printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_BOTTOM));
+                printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_BOTTOM));
             }
             return;
         }
@@ -191,22 +217,21 @@ public abstract class Tree implements ITree {
             //判定是否需要分段显示
             if (isPart) {//需要分段显示
                 for (String sub : msg.split(LogConstant.BR)) {
-                    printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_NORMAL)
+                    printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_NORMAL)
                             + sub);
                 }
             } else {//不需要分段显示
-                printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_TOP));
-                printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_NORMAL) +
-                        getTopStackInfo());
-                printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_CENTER));
+                printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_TOP));
+                printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_NORMAL) + caller);
+                printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_CENTER));
                 for (String sub : msg.split(LogConstant.BR)) {
-                    printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_NORMAL)
+                    printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_NORMAL)
                             + sub);
                 }
-                printLog(type, tag, LogConvert.printDividingLine(LogConstant.DIVIDER_BOTTOM));
+                printLog(type, tag, caller, LogConvert.printDividingLine(LogConstant.DIVIDER_BOTTOM));
             }
         } else {//直接显示
-            printLog(type, tag, msg);
+            printLog(type, tag, caller, msg);
         }
     }
 
@@ -237,24 +262,32 @@ public abstract class Tree implements ITree {
     }
 
     /**
-     * 获取顶部堆栈信息
+     * 获取顶部堆栈信息，同一调用位置的默认格式结果会缓存
      * @return
      */
     private String getTopStackInfo() {
-        String customTag = mLogConfig.getFormatTag(getCurrentStackTrace());
+        StackTraceElement caller = getCurrentStackTrace();
+        String customTag = mLogConfig.getFormatTag(caller);
         if (customTag != null) {
             return customTag;
         }
-        StackTraceElement caller = getCurrentStackTrace();
         if (caller == null) {
             return "";
         }
+        synchronized (CALLER_CACHE) {
+            String tag = CALLER_CACHE.get(caller);
+            if (tag != null) {
+                return tag;
+            }
+        }
         String stackTrace = caller.toString();
         stackTrace = stackTrace.substring(stackTrace.lastIndexOf('('), stackTrace.length());
-        String tag = "%s.%s%s";
         String callerClazzName = caller.getClassName();
         callerClazzName = callerClazzName.substring(callerClazzName.lastIndexOf(".") + 1);
-        tag = String.format(tag, callerClazzName, caller.getMethodName(), stackTrace);
+        String tag = callerClazzName + "." + caller.getMethodName() + stackTrace;
+        synchronized (CALLER_CACHE) {
+            CALLER_CACHE.put(caller, tag);
+        }
         return tag;
     }
 
@@ -283,15 +316,22 @@ public abstract class Tree implements ITree {
      * 输出日志
      * @param type
      * @param tag
+     * @param caller
      * @param msg
      */
-    private void printLog(int type, String tag, String msg) {
+    private void printLog(int type, String tag, String caller, String msg) {
         if (!mLogConfig.isShowBorder()) {
-            msg = getTopStackInfo() + ": " + msg;
+            msg = caller + ": " + msg;
         }
         log(type, tag, msg);
     }
 
+    /**
+     * 把缓存中的日志写入存储，默认不做处理，异步输出的日志树需要实现
+     */
+    public void flush() {
+    }
+
     /**
      * 日志具体实现方式，可以是打印、文件存储等
      * @param type
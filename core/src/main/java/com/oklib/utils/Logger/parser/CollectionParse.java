@@ -1,11 +1,9 @@
 package com.oklib.utils.Logger.parser;
 
-import android.annotation.SuppressLint;
-
 import com.oklib.utils.Logger.common.LogConvert;
+import com.oklib.utils.Logger.config.LogDefaultConfig;
 
 import java.util.Collection;
-import java.util.Iterator;
 
 /**
  * @Description: Collection解析器
@@ -18,22 +16,23 @@ public class CollectionParse implements Parser<Collection> {
         return Collection.class;
     }
 
-    @SuppressLint("DefaultLocale")
     @Override
     public String parseString(Collection collection) {
-        String simpleName = collection.getClass().getName();
-        String msg = "%s size = %d [" + LINE_SEPARATOR;
-        msg = String.format(msg, simpleName, collection.size());
-        if (!collection.isEmpty()) {
-            Iterator iterator = collection.iterator();
-            int flag = 0;
-            while (iterator.hasNext()) {
-                String itemString = "[%d]:%s%s";
-                Object item = iterator.next();
-                msg += String.format(itemString, flag, LogConvert.objectToString(item),
-                        flag++ < collection.size() - 1 ? "," + LINE_SEPARATOR : LINE_SEPARATOR);
+        int size = collection.size();
+        int maxElements = LogDefaultConfig.getInstance().getMaxElements();
+        int maxChars = LogDefaultConfig.getInstance().getMaxChars();
+        StringBuilder builder = new StringBuilder();
+        builder.append(collection.getClass().getName()).append(" size = ").append(size).append(" [")
+                .append(LINE_SEPARATOR);
+        int flag = 0;
+        for (Object item : collection) {
+            if (flag >= maxElements || builder.length() > maxChars) {
+                builder.append("...(").append(size - flag).append(" more)").append(LINE_SEPARATOR);
+                break;
             }
+            builder.append('[').append(flag).append("]:").append(LogConvert.objectToString(item))
+                    .append(++flag < size ? "," + LINE_SEPARATOR : LINE_SEPARATOR);
         }
-        return msg + "]";
+        return builder.append("]").toString();
     }
 }
@@ -2,9 +2,9 @@ package com.oklib.utils.Logger.parser;
 
 
 import com.oklib.utils.Logger.common.LogConvert;
+import com.oklib.utils.Logger.config.LogDefaultConfig;
 
 import java.util.Map;
-import java.util.Set;
 
 /**
  * @Description: Map解析器
@@ -19,11 +19,18 @@ public class MapParse implements Parser<Map> {
 
     @Override
     public String parseString(Map map) {
-        String msg = map.getClass().getName() + " [" + LINE_SEPARATOR;
-        Set keys = map.keySet();
-        for (Object key : keys) {
-            String itemString = "%s -> %s" + LINE_SEPARATOR;
-            Object value = map.get(key);
+        int maxElements = LogDefaultConfig.getInstance().getMaxElements();
+        int maxChars = LogDefaultConfig.getInstance().getMaxChars();
+        StringBuilder builder = new StringBuilder();
+        builder.append(map.getClass().getName()).append(" [").append(LINE_SEPARATOR);
+        int count = 0;
+        for (Object object : map.entrySet()) {
+            if (count >= maxElements || builder.length() > maxChars) {
+                builder.append("...(").append(map.size() - count).append(" more)").append(LINE_SEPARATOR);
+                break;
+            }
+            Map.Entry entry = (Map.Entry) object;
+            Object value = entry.getValue();
             if (value != null) {
                 if (value instanceof String) {
                     value = "\"" + value + "\"";
@@ -31,9 +38,10 @@ public class MapParse implements Parser<Map> {
                     value = "\'" + value + "\'";
                 }
             }
-            msg += String.format(itemString, LogConvert.objectToString(key),
-                    LogConvert.objectToString(value));
+            builder.append(LogConvert.objectToString(entry.getKey())).append(" -> ")
+                    .append(LogConvert.objectToString(value)).append(LINE_SEPARATOR);
+            count++;
         }
-        return msg + "]";
+        return builder.append("]").toString();
     }
 }
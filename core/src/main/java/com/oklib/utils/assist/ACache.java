@@ -11,11 +11,18 @@ import android.graphics.drawable.Drawable;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import com.oklib.utils.cipher.Md5;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -24,16 +31,15 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
-import java.util.Collections;
+import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 /**
- * 自定义一个缓存实现
+ * 自定义一个缓存实现，文件名为key的MD5，索引和淘汰顺序见ACacheManager
  */
 public class ACache {
 
@@ -41,6 +47,8 @@ public class ACache {
     public static final int TIME_DAY = TIME_HOUR * 24;
     private static final int MAX_SIZE = 1000 * 1000 * 50; // 50 MB
     private static final int MAX_COUNT = Integer.MAX_VALUE;
+    private static final Pattern LEGACY_FILE_NAME = Pattern.compile("-?\\d+");//旧版本以key.hashCode()为文件名
+    private static final Pattern CACHE_FILE_NAME = Pattern.compile("[0-9a-f]{32}");//key的MD5
     private static Map<String, ACache> mInstanceMap = new HashMap<String, ACache>();
     private ACacheManager mCache;
 
@@ -363,89 +371,104 @@ public class ACache {
         mCache.clear();
     }
 
+    /**
+     * 缓存文件管理：内存中按访问顺序保存索引，淘汰时直接取最久未使用的条目；
+     * 写入和删除追加到日志文件，启动时读取日志恢复索引，不再逐个读取文件信息；
+     * 读取只在内存中更新顺序，访问记录随下次写入一起落盘
+     */
     public class ACacheManager {
-        private final AtomicLong cacheSize;
-        private final AtomicInteger cacheCount;
+        private static final String JOURNAL_FILE = "journal";
+        private static final String JOURNAL_FILE_TEMP = "journal.tmp";
+        private static final int OP_PUT = 1;
+        private static final int OP_REMOVE = 2;
+        private static final int OP_READ = 3;
+        private static final int COMPACT_THRESHOLD = 2000;//冗余记录超过该数量且多于条目数时重写日志
+
         private final long sizeLimit;
         private final int countLimit;
-        private final Map<File, Long> lastUsageDates = Collections
-                .synchronizedMap(new HashMap<File, Long>());
+        //文件名 -> 文件大小，按访问顺序排列，最早的在前
+        private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final File journalFile;
+        private long cacheSize;//由this保护
+        private int redundantOps;//由this保护
+        private boolean loaded;//由this保护
+        private DataOutputStream journal;//由this保护
         protected File cacheDir;
 
         private ACacheManager(File cacheDir, long sizeLimit, int countLimit) {
             this.cacheDir = cacheDir;
             this.sizeLimit = sizeLimit;
             this.countLimit = countLimit;
-            cacheSize = new AtomicLong();
-            cacheCount = new AtomicInteger();
-            calculateCacheSizeAndCacheCount();
-        }
-
-        private void calculateCacheSizeAndCacheCount() {
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    int size = 0;
-                    int count = 0;
-                    File[] cachedFiles = cacheDir.listFiles();
-                    if (cachedFiles != null) {
-                        for (File cachedFile : cachedFiles) {
-                            size += calculateSize(cachedFile);
-                            count += 1;
-                            lastUsageDates.put(cachedFile,
-                                    cachedFile.lastModified());
-                        }
-                        cacheSize.set(size);
-                        cacheCount.set(count);
-                    }
-                }
-            }).start();
+            this.journalFile = new File(cacheDir, JOURNAL_FILE);
         }
 
-        private void put(File file) {
-            int curCacheCount = cacheCount.get();
-            while (curCacheCount + 1 > countLimit) {
-                long freedSize = removeNext();
-                cacheSize.addAndGet(-freedSize);
-
-                curCacheCount = cacheCount.addAndGet(-1);
+        private synchronized void put(File file) {
+            ensureLoaded();
+            String name = file.getName();
+            long size = calculateSize(file);
+            Long oldSize = entries.put(name, size);
+            if (oldSize != null) {
+                cacheSize -= oldSize;
+                redundantOps++;
             }
-            cacheCount.addAndGet(1);
-
-            long valueSize = calculateSize(file);
-            long curCacheSize = cacheSize.get();
-            while (curCacheSize + valueSize > sizeLimit) {
-                long freedSize = removeNext();
-                curCacheSize = cacheSize.addAndGet(-freedSize);
+            cacheSize += size;
+            writeJournal(OP_PUT, name, size, true);
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while ((entries.size() > countLimit || cacheSize > sizeLimit) && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                if (eldest.getKey().equals(name)) {
+                    continue;
+                }
+                iterator.remove();
+                cacheSize -= eldest.getValue();
+                new File(cacheDir, eldest.getKey()).delete();
+                writeJournal(OP_REMOVE, eldest.getKey(), 0, false);
+                redundantOps += 2;
             }
-            cacheSize.addAndGet(valueSize);
-
-            Long currentTime = System.currentTimeMillis();
-            file.setLastModified(currentTime);
-            lastUsageDates.put(file, currentTime);
+            compact(false);
         }
 
-        private File get(String key) {
+        private synchronized File get(String key) {
+            ensureLoaded();
             File file = newFile(key);
-            Long currentTime = System.currentTimeMillis();
-            file.setLastModified(currentTime);
-            lastUsageDates.put(file, currentTime);
-
+            if (entries.get(file.getName()) != null) {
+                //只写入缓冲区，不刷盘
+                writeJournal(OP_READ, file.getName(), 0, false);
+                redundantOps++;
+            }
             return file;
         }
 
-        private File newFile(String key) {
-            return new File(cacheDir, key.hashCode() + "");
+        private synchronized File newFile(String key) {
+            //旧版本缓存需在写入新文件前清理
+            ensureLoaded();
+            String name = null;
+            try {
+                name = Md5.getMessageDigest(key.getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                e.printStackTrace();
+            }
+            return new File(cacheDir, name != null ? name : String.valueOf(key.hashCode()));
         }
 
-        private boolean remove(String key) {
-            File image = get(key);
-            return image.delete();
+        private synchronized boolean remove(String key) {
+            ensureLoaded();
+            File file = newFile(key);
+            Long size = entries.remove(file.getName());
+            if (size != null) {
+                cacheSize -= size;
+                writeJournal(OP_REMOVE, file.getName(), 0, true);
+                redundantOps += 2;
+            }
+            return file.delete();
         }
 
-        private void clear() {
-            lastUsageDates.clear();
-            cacheSize.set(0);
+        private synchronized void clear() {
+            closeJournal();
+            entries.clear();
+            cacheSize = 0;
+            redundantOps = 0;
+            loaded = true;
             File[] files = cacheDir.listFiles();
             if (files != null) {
                 for (File f : files) {
@@ -454,34 +477,159 @@ public class ACache {
             }
         }
 
-        private long removeNext() {
-            if (lastUsageDates.isEmpty()) {
-                return 0;
+        /**
+         * 首次使用时从日志恢复索引；没有日志时（首次使用或旧版本的缓存）重建索引
+         */
+        private void ensureLoaded() {
+            if (loaded) {
+                return;
             }
-
-            Long oldestUsage = null;
-            File mostLongUsedFile = null;
-            Set<Entry<File, Long>> entries = lastUsageDates.entrySet();
-            synchronized (lastUsageDates) {
-                for (Entry<File, Long> entry : entries) {
-                    if (mostLongUsedFile == null) {
-                        mostLongUsedFile = entry.getKey();
-                        oldestUsage = entry.getValue();
-                    } else {
-                        Long lastValueUsage = entry.getValue();
-                        if (lastValueUsage < oldestUsage) {
-                            oldestUsage = lastValueUsage;
-                            mostLongUsedFile = entry.getKey();
+            loaded = true;
+            if (!journalFile.exists()) {
+                rebuildWithoutJournal();
+                return;
+            }
+            int ops = 0;
+            boolean intact = false;
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+                while (true) {
+                    int op = in.read();
+                    if (op == -1) {
+                        intact = true;
+                        break;
+                    }
+                    String name = in.readUTF();
+                    ops++;
+                    if (op == OP_PUT) {
+                        long size = in.readLong();
+                        Long oldSize = entries.put(name, size);
+                        cacheSize += size - (oldSize != null ? oldSize : 0);
+                    } else if (op == OP_REMOVE) {
+                        Long size = entries.remove(name);
+                        if (size != null) {
+                            cacheSize -= size;
                         }
+                    } else if (op == OP_READ) {
+                        entries.get(name);
+                    } else {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                //末尾记录不完整时忽略，重写日志
+                e.printStackTrace();
+            } finally {
+                closeQuietly(in);
+            }
+            redundantOps = ops - entries.size();
+            //日志不完整时立即重写，避免之后追加的记录接在损坏的数据后面
+            compact(!intact);
+        }
+
+        private void writeJournal(int op, String name, long size, boolean flush) {
+            try {
+                if (journal == null) {
+                    journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+                }
+                journal.write(op);
+                journal.writeUTF(name);
+                if (op == OP_PUT) {
+                    journal.writeLong(size);
+                }
+                if (flush) {
+                    journal.flush();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                closeJournal();
+            }
+        }
+
+        /**
+         * 没有日志时只删除旧版本以hashCode命名的缓存文件，已有的MD5命名文件按当前大小加入索引，
+         * 缓存目录可能与其他文件共用，其他文件不做处理
+         */
+        private void rebuildWithoutJournal() {
+            File[] files = cacheDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.isFile()) {
+                        continue;
+                    }
+                    String name = file.getName();
+                    if (LEGACY_FILE_NAME.matcher(name).matches()) {
+                        file.delete();
+                    } else if (CACHE_FILE_NAME.matcher(name).matches()) {
+                        long size = file.length();
+                        entries.put(name, size);
+                        cacheSize += size;
+                    }
+                }
+            }
+            new File(cacheDir, JOURNAL_FILE_TEMP).delete();
+            compact(true);
+        }
+
+        /**
+         * 冗余记录过多时按当前访问顺序重写日志
+         *
+         * @param force 是否忽略冗余记录数直接重写
+         */
+        private void compact(boolean force) {
+            if (!force && (redundantOps < COMPACT_THRESHOLD || redundantOps < entries.size())) {
+                return;
+            }
+            closeJournal();
+            File temp = new File(cacheDir, JOURNAL_FILE_TEMP);
+            DataOutputStream out = null;
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+                for (Map.Entry<String, Long> entry : entries.entrySet()) {
+                    out.write(OP_PUT);
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                out.close();
+                out = null;
+                if (!temp.renameTo(journalFile)) {
+                    journalFile.delete();
+                    temp.renameTo(journalFile);
+                }
+                redundantOps = 0;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
                     }
                 }
             }
+        }
 
-            long fileSize = calculateSize(mostLongUsedFile);
-            if (mostLongUsedFile.delete()) {
-                lastUsageDates.remove(mostLongUsedFile);
+        private void closeJournal() {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                journal = null;
+            }
+        }
+
+        private void closeQuietly(DataInputStream in) {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
             }
-            return fileSize;
         }
 
         private long calculateSize(File file) {
@@ -1,17 +1,9 @@
 package com.oklib.utils.cipher;
 
-import java.io.UnsupportedEncodingException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
+import com.oklib.utils.network.cache.AesCodec;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.KeyGenerator;
-import javax.crypto.NoSuchPaddingException;
-import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 
 public class Aes {
 
@@ -26,34 +18,33 @@ public class Aes {
 	 */
 	public static byte[] encrypt(String content, String password) {
 		try {
-			KeyGenerator kgen = KeyGenerator.getInstance("Aes");
-			kgen.init(128, new SecureRandom(password.getBytes()));
-			SecretKey secretKey = kgen.generateKey();
-			byte[] enCodeFormat = secretKey.getEncoded();
-			SecretKeySpec key = new SecretKeySpec(enCodeFormat, "Aes");
-			Cipher cipher = Cipher.getInstance("Aes");// 创建密码器
-			byte[] byteContent = content.getBytes("utf-8");
-			cipher.init(Cipher.ENCRYPT_MODE, key);// 初始化
-			byte[] result = cipher.doFinal(byteContent);
-			return result; // 加密
-		} catch (NoSuchAlgorithmException e) {
-			e.printStackTrace();
-		} catch (NoSuchPaddingException e) {
-			e.printStackTrace();
-		} catch (InvalidKeyException e) {
-			e.printStackTrace();
+			return encrypt(content.getBytes("utf-8"), password);
 		} catch (UnsupportedEncodingException e) {
 			e.printStackTrace();
-		} catch (IllegalBlockSizeException e) {
-			e.printStackTrace();
-		} catch (BadPaddingException e) {
+		}
+		return null;
+	}
+
+	/**
+	 * 加密，与缓存加密使用同一实现{@link AesCodec}，密钥由密码派生，输出包含随机IV和HMAC校验
+	 * 
+	 * @param byteContent
+	 *            需要加密的内容
+	 * @param password
+	 *            加密密码
+	 * @return
+	 */
+	public static byte[] encrypt(byte[] byteContent, String password) {
+		try {
+			return new AesCodec(password).encode(byteContent);
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
 		return null;
 	}
 
 	/**
-	 * 解密
+	 * 解密，只能解密{@link #encrypt(byte[], String)}的结果
 	 * 
 	 * @param content
 	 *            待解密内容
@@ -63,24 +54,8 @@ public class Aes {
 	 */
 	public static byte[] decrypt(byte[] content, String password) {
 		try {
-			KeyGenerator kgen = KeyGenerator.getInstance("Aes");
-			kgen.init(128, new SecureRandom(password.getBytes()));
-			SecretKey secretKey = kgen.generateKey();
-			byte[] enCodeFormat = secretKey.getEncoded();
-			SecretKeySpec key = new SecretKeySpec(enCodeFormat, "Aes");
-			Cipher cipher = Cipher.getInstance("Aes");// 创建密码器
-			cipher.init(Cipher.DECRYPT_MODE, key);// 初始化
-			byte[] result = cipher.doFinal(content);
-			return result; // 加密
-		} catch (NoSuchAlgorithmException e) {
-			e.printStackTrace();
-		} catch (NoSuchPaddingException e) {
-			e.printStackTrace();
-		} catch (InvalidKeyException e) {
-			e.printStackTrace();
-		} catch (IllegalBlockSizeException e) {
-			e.printStackTrace();
-		} catch (BadPaddingException e) {
+			return new AesCodec(password).decode(content);
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
 		return null;
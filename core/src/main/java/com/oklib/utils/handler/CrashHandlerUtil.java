@@ -65,6 +65,8 @@ public class CrashHandlerUtil implements Thread.UncaughtExceptionHandler {
 
     @Override
     public void uncaughtException(Thread thread, Throwable ex) {
+        //先把已记录的日志写入文件，避免进程结束时丢失
+        Logger.flush();
         //导出异常信息到SD卡中
         dumpExceptionToSDCard(ex);
         //这里可以通过网络上传异常信息到服务器，便于开发人员分析日志从而解决bug
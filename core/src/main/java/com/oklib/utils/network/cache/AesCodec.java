@@ -0,0 +1,137 @@
+package com.oklib.utils.network.cache;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * @Description: AES加密，读写必须使用相同密码和盐，一般放在压缩之后；
+ * 密钥由PBKDF2从密码派生，派生较慢，应创建一次后重复使用；
+ * 每条数据使用随机IV的AES/CBC加密，并用HMAC-SHA256校验，数据格式：版本(1字节) | IV(16字节) | 密文 | HMAC(32字节)
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:26
+ */
+public class AesCodec implements CacheCodec {
+    public static final int ID = 3;
+    private static final int VERSION = 1;
+    private static final int IV_LENGTH = 16;
+    private static final int MAC_LENGTH = 32;
+    private static final int AES_KEY_LENGTH = 16;
+    private static final int MAC_KEY_LENGTH = 32;
+    private static final int ITERATIONS = 10000;
+    private static final byte[] DEFAULT_SALT = {'o', 'k', 'l', 'i', 'b', '.', 'c', 'a', 'c', 'h', 'e', '.', 'a', 'e', 's'};
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec aesKey;
+    private final SecretKeySpec macKey;
+    private final SecureRandom random = new SecureRandom();
+
+    public AesCodec(String password) {
+        this(password, DEFAULT_SALT);
+    }
+
+    /**
+     * @param password 密码
+     * @param salt     派生密钥使用的盐，同一个应用固定即可
+     */
+    public AesCodec(String password, byte[] salt) {
+        if (password == null || password.length() == 0) {
+            throw new IllegalArgumentException("password is empty");
+        }
+        if (salt == null || salt.length == 0) {
+            throw new IllegalArgumentException("salt is empty");
+        }
+        byte[] keys = deriveKeys(password, salt);
+        this.aesKey = new SecretKeySpec(keys, 0, AES_KEY_LENGTH, "AES");
+        this.macKey = new SecretKeySpec(keys, AES_KEY_LENGTH, MAC_KEY_LENGTH, MAC_ALGORITHM);
+        Arrays.fill(keys, (byte) 0);
+        checkRoundTrip();
+    }
+
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] data) throws IOException {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, aesKey, new IvParameterSpec(iv));
+            int cipherLength = cipher.getOutputSize(data.length);
+            byte[] result = new byte[1 + IV_LENGTH + cipherLength + MAC_LENGTH];
+            result[0] = VERSION;
+            System.arraycopy(iv, 0, result, 1, IV_LENGTH);
+            cipherLength = cipher.doFinal(data, 0, data.length, result, 1 + IV_LENGTH);
+            int macOffset = 1 + IV_LENGTH + cipherLength;
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            mac.update(result, 0, macOffset);
+            mac.doFinal(result, macOffset);
+            return macOffset + MAC_LENGTH == result.length ? result : Arrays.copyOf(result, macOffset + MAC_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("aes encrypt failed", e);
+        }
+    }
+
+    @Override
+    public byte[] decode(byte[] data) throws IOException {
+        if (data.length < 1 + IV_LENGTH + MAC_LENGTH || data[0] != VERSION) {
+            throw new IOException("aes decrypt failed: unsupported data");
+        }
+        try {
+            int macOffset = data.length - MAC_LENGTH;
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            mac.update(data, 0, macOffset);
+            byte[] expected = mac.doFinal();
+            if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(data, macOffset, data.length))) {
+                throw new IOException("aes decrypt failed: mac mismatch");
+            }
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, aesKey, new IvParameterSpec(data, 1, IV_LENGTH));
+            return cipher.doFinal(data, 1 + IV_LENGTH, macOffset - 1 - IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("aes decrypt failed", e);
+        }
+    }
+
+    private static byte[] deriveKeys(String password, byte[] salt) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATIONS,
+                (AES_KEY_LENGTH + MAC_KEY_LENGTH) * 8);
+        try {
+            //PBKDF2WithHmacSHA256在API 26才提供，这里使用各版本都支持的SHA1
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("aes key derivation failed", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * 创建时加解密一次，平台不支持所需算法时尽早失败，而不是在写缓存时才发现
+     */
+    private void checkRoundTrip() {
+        byte[] probe = {'o', 'k', 'l', 'i', 'b'};
+        try {
+            if (!Arrays.equals(probe, decode(encode(probe)))) {
+                throw new IllegalStateException("aes round trip mismatch");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("aes round trip failed", e);
+        }
+    }
+}
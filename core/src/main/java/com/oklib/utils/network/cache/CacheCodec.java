@@ -0,0 +1,35 @@
+package com.oklib.utils.network.cache;
+
+import java.io.IOException;
+
+/**
+ * @Description: 磁盘缓存数据编解码接口，如压缩、加密。DiskCache按配置顺序依次编码，并在条目头部记录使用的编解码器
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:05
+ */
+public interface CacheCodec {
+    /**
+     * 编解码器标识，写入条目头部，取值范围1~255，不同实现不能重复
+     *
+     * @return
+     */
+    int id();
+
+    /**
+     * 编码
+     *
+     * @param data
+     * @return 编码后的数据，返回null表示跳过该编码（如数据太小不值得压缩）
+     * @throws IOException
+     */
+    byte[] encode(byte[] data) throws IOException;
+
+    /**
+     * 解码
+     *
+     * @param data
+     * @return
+     * @throws IOException
+     */
+    byte[] decode(byte[] data) throws IOException;
+}
@@ -0,0 +1,48 @@
+package com.oklib.utils.network.cache;
+
+/**
+ * @Description: 缓存读取结果，包含数据及其新鲜、过期时间点
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 15:20
+ */
+public class CacheEntry<T> {
+    private final T value;
+    private final long freshUntil;
+    private final long expireAt;
+
+    public CacheEntry(T value, long freshUntil, long expireAt) {
+        this.value = value;
+        this.freshUntil = freshUntil;
+        this.expireAt = expireAt;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public long getFreshUntil() {
+        return freshUntil;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    /**
+     * 是否已超过新鲜时长（但尚未过期）
+     *
+     * @return
+     */
+    public boolean isStale() {
+        return System.currentTimeMillis() >= freshUntil;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheEntry{" +
+                "value=" + value +
+                ", freshUntil=" + freshUntil +
+                ", expireAt=" + expireAt +
+                '}';
+    }
+}
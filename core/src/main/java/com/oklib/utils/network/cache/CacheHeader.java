@@ -0,0 +1,131 @@
+package com.oklib.utils.network.cache;
+
+import com.oklib.utils.network.common.ViseConfig;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * @Description: 磁盘缓存条目头部，定长二进制格式：魔数 + 创建时间 + 新鲜时长 + 过期时长 + 编解码器 + 数据长度 + CRC32校验值，
+ * 头部之后紧跟（经过编码的）数据，长度和校验值针对写入磁盘的数据，判断是否过期时只需读取头部。超过新鲜时长但未超过过期时长的数据为陈旧数据，
+ * 可先返回再后台刷新；超过过期时长的数据会被删除
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 10:12
+ */
+final class CacheHeader {
+    static final int MAGIC_V1 = 0x4F4B4331;//"OKC1"，不含新鲜时长和编解码器
+    static final int MAGIC_V2 = 0x4F4B4332;//"OKC2"，不含编解码器
+    static final int MAGIC = 0x4F4B4333;//"OKC3"
+    static final int MAGIC_SIZE = 4;
+    static final int SIZE = MAGIC_SIZE + 8 + 8 + 8 + 4 + 4 + 4;
+    static final int MAX_CODECS = 4;
+    static final int STREAMED = -1;//流式写入时长度未知，数据长度由文件长度推算，CRC32校验值写在数据之后
+    static final int TRAILER_SIZE = 4;
+
+    final long createTime;//创建时间（毫秒）
+    final long freshMills;//新鲜时长（毫秒），ViseConfig.CACHE_NEVER_EXPIRE表示永远新鲜
+    final long expireMills;//过期时长（毫秒），ViseConfig.CACHE_NEVER_EXPIRE表示永不过期
+    final int codecs;//按编码顺序从低位到高位，每字节一个编解码器标识，0表示无
+    final int length;//数据长度（字节）
+    final int checksum;//数据CRC32校验值
+
+    CacheHeader(long createTime, long freshMills, long expireMills, int codecs, int length, int checksum) {
+        this.createTime = createTime;
+        this.freshMills = freshMills;
+        this.expireMills = expireMills;
+        this.codecs = codecs;
+        this.length = length;
+        this.checksum = checksum;
+    }
+
+    static CacheHeader create(long createTime, long freshMills, long expireMills, int codecs, byte[] payload) {
+        return new CacheHeader(createTime, freshMills, expireMills, codecs, payload.length, checksum(payload));
+    }
+
+    static boolean isMagic(int magic) {
+        return magic == MAGIC || magic == MAGIC_V2 || magic == MAGIC_V1;
+    }
+
+    /**
+     * 读取魔数之后的头部字段，调用前需已读取并校验魔数
+     *
+     * @param magic 已读取的魔数
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static CacheHeader readFrom(int magic, DataInputStream in) throws IOException {
+        long createTime = in.readLong();
+        long freshMills = magic == MAGIC_V1 ? 0 : in.readLong();
+        long expireMills = in.readLong();
+        if (magic == MAGIC_V1) {
+            freshMills = expireMills;
+        }
+        int codecs = magic == MAGIC ? in.readInt() : 0;
+        int length = in.readInt();
+        int checksum = in.readInt();
+        if (length < 0 && length != STREAMED) {
+            throw new IOException("bad cache entry length: " + length);
+        }
+        return new CacheHeader(createTime, freshMills, expireMills, codecs, length, checksum);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(createTime);
+        out.writeLong(freshMills);
+        out.writeLong(expireMills);
+        out.writeInt(codecs);
+        out.writeInt(length);
+        out.writeInt(checksum);
+    }
+
+    boolean isExpired(long now) {
+        return now >= expireAt();
+    }
+
+    /**
+     * 过期时间点（毫秒），永不过期返回Long.MAX_VALUE
+     *
+     * @return
+     */
+    long expireAt() {
+        return expireMills == ViseConfig.CACHE_NEVER_EXPIRE ? Long.MAX_VALUE : createTime + expireMills;
+    }
+
+    /**
+     * 新鲜时间点（毫秒），永远新鲜返回Long.MAX_VALUE
+     *
+     * @return
+     */
+    long freshUntil() {
+        return freshMills == ViseConfig.CACHE_NEVER_EXPIRE ? Long.MAX_VALUE : createTime + freshMills;
+    }
+
+    boolean isStreamed() {
+        return length == STREAMED;
+    }
+
+    /**
+     * 流式写入的条目读取数据和尾部校验值后，生成包含实际长度和校验值的头部
+     *
+     * @param length
+     * @param checksum
+     * @return
+     */
+    CacheHeader withPayload(int length, int checksum) {
+        return new CacheHeader(createTime, freshMills, expireMills, codecs, length, checksum);
+    }
+
+    boolean verify(byte[] payload) {
+        return payload.length == length && checksum(payload) == checksum;
+    }
+
+    static int checksum(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        return (int) crc32.getValue();
+    }
+}
@@ -0,0 +1,284 @@
+package com.oklib.utils.network.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Description: 分段加锁的并发LRU缓存，按权重淘汰。每个分段持有独立的锁，不同Key的读写不会互相阻塞；
+ * 容量由所有分段共享，超出时淘汰各分段中最久未访问的条目，单个条目最大可占用全部容量；
+ * 同时统计命中、未命中和淘汰次数
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 13:52
+ */
+public class ConcurrentLruCache<K, V> {
+    private static final int DEFAULT_CONCURRENCY = 16;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final Weigher<K, V> weigher;
+    private final long maxWeight;
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public ConcurrentLruCache(long maxWeight, Weigher<K, V> weigher) {
+        this(maxWeight, weigher, DEFAULT_CONCURRENCY);
+    }
+
+    public ConcurrentLruCache(long maxWeight, Weigher<K, V> weigher, int concurrency) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight <= 0");
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("weigher == null");
+        }
+        int segmentCount = 1;
+        while (segmentCount < concurrency && maxWeight / (segmentCount << 1) > 0) {
+            segmentCount <<= 1;
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.segmentMask = segmentCount - 1;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    public V get(K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+        V value = segmentFor(key).get(key);
+        if (value != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 写入条目，按weigher计算权重
+     *
+     * @param key
+     * @param value
+     * @return 被替换的旧值
+     */
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("key == null || value == null");
+        }
+        return put(key, value, weigher.weigh(key, value));
+    }
+
+    /**
+     * 写入条目并指定权重，权重超过总容量的条目不缓存（同时移除该Key的旧值），也不会淘汰其它条目
+     *
+     * @param key
+     * @param value
+     * @param weight
+     * @return 被替换的旧值
+     */
+    public V put(K key, V value, int weight) {
+        if (key == null || value == null) {
+            throw new NullPointerException("key == null || value == null");
+        }
+        if (weight <= 0) {
+            throw new IllegalStateException("Negative or zero weight: " + key + "=" + value);
+        }
+        if (weight > maxWeight) {
+            remove(key);
+            return null;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        V previous;
+        synchronized (segment) {
+            long before = segment.weight;
+            previous = segment.put(key, value, weight);
+            totalWeight.addAndGet(segment.weight - before);
+        }
+        evict(key);
+        return previous;
+    }
+
+    public V remove(K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Node<V> previous = segment.remove(key);
+            if (previous == null) {
+                return null;
+            }
+            totalWeight.addAndGet(-previous.weight);
+            return previous.value;
+        }
+    }
+
+    public boolean containsKey(K key) {
+        return key != null && segmentFor(key).containsKey(key);
+    }
+
+    public void evictAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                totalWeight.addAndGet(-segment.weight);
+                segment.map.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    public long weight() {
+        return totalWeight.get();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+    public long evictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        long hits = hitCount.get();
+        long accesses = hits + missCount.get();
+        int hitPercent = accesses != 0 ? (int) (100 * hits / accesses) : 0;
+        return String.format("ConcurrentLruCache[weight=%d,maxWeight=%d,hits=%d,misses=%d,evictions=%d,hitRate=%d%%]",
+                weight(), maxWeight, hits, missCount.get(), evictionCount.get(), hitPercent);
+    }
+
+    /**
+     * 总权重超出容量时，淘汰各分段最久未访问条目中最早的一个，直到不超出；刚写入的Key不参与淘汰
+     *
+     * @param protectedKey
+     */
+    private void evict(K protectedKey) {
+        while (totalWeight.get() > maxWeight) {
+            Segment<K, V> victim = null;
+            long oldest = Long.MAX_VALUE;
+            for (Segment<K, V> segment : segments) {
+                long accessTime = segment.eldestAccessTime(protectedKey);
+                if (accessTime < oldest) {
+                    oldest = accessTime;
+                    victim = segment;
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            synchronized (victim) {
+                Node<V> removed = victim.removeEldest(protectedKey);
+                if (removed != null) {
+                    totalWeight.addAndGet(-removed.weight);
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    private static final class Node<V> {
+        final V value;
+        final int weight;
+        long accessTime;//由分段锁保护
+
+        Node(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+            this.accessTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * 分段内按访问顺序排列，方法调用方需持有分段锁（get、containsKey除外）
+     */
+    private static final class Segment<K, V> {
+        final LinkedHashMap<K, Node<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        long weight;
+
+        synchronized V get(K key) {
+            Node<V> node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            node.accessTime = System.nanoTime();
+            return node.value;
+        }
+
+        synchronized boolean containsKey(K key) {
+            return map.containsKey(key);
+        }
+
+        V put(K key, V value, int valueWeight) {
+            weight += valueWeight;
+            Node<V> previous = map.put(key, new Node<V>(value, valueWeight));
+            if (previous != null) {
+                weight -= previous.weight;
+                return previous.value;
+            }
+            return null;
+        }
+
+        Node<V> remove(K key) {
+            Node<V> previous = map.remove(key);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            return previous;
+        }
+
+        synchronized long eldestAccessTime(K protectedKey) {
+            for (Map.Entry<K, Node<V>> entry : map.entrySet()) {
+                if (!entry.getKey().equals(protectedKey)) {
+                    return entry.getValue().accessTime;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        Node<V> removeEldest(K protectedKey) {
+            Iterator<Map.Entry<K, Node<V>>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, Node<V>> entry = iterator.next();
+                if (!entry.getKey().equals(protectedKey)) {
+                    iterator.remove();
+                    weight -= entry.getValue().weight;
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.oklib.utils.network.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @Description: Deflate压缩，可设置预置字典，对结构重复的JSON数据压缩率更高；小于最小长度的数据不压缩
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:12
+ */
+public class DeflateCodec implements CacheCodec {
+    public static final int ID = 1;
+    private static final int DEFAULT_MIN_SIZE = 256;
+
+    private final byte[] dictionary;
+    private final int minSize;
+    private final int level;
+
+    public DeflateCodec() {
+        this(null);
+    }
+
+    public DeflateCodec(byte[] dictionary) {
+        this(dictionary, DEFAULT_MIN_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param dictionary 预置字典，读写必须使用相同字典，可为null
+     * @param minSize    最小压缩长度（字节）
+     * @param level      压缩等级，见Deflater
+     */
+    public DeflateCodec(byte[] dictionary, int minSize, int level) {
+        this.dictionary = dictionary;
+        this.minSize = minSize;
+        this.level = level;
+    }
+
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] data) throws IOException {
+        if (data.length < minSize) {
+            return null;
+        }
+        Deflater deflater = new Deflater(level);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(data.length / 4, 64));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            byte[] result = out.toByteArray();
+            return result.length < data.length ? result : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decode(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (dictionary == null) {
+                            throw new IOException("deflate dictionary required");
+                        }
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.needsInput()) {
+                        throw new IOException("truncated deflate data");
+                    }
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
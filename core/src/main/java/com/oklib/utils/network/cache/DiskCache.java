@@ -4,6 +4,8 @@ import android.content.Context;
 import android.os.Environment;
 import android.os.StatFs;
 import android.text.TextUtils;
+import android.util.SparseArray;
+import androidx.annotation.NonNull;
 
 
 import com.oklib.utils.Logger.Logger;
@@ -12,14 +14,22 @@ import com.oklib.utils.network.common.GsonUtil;
 import com.oklib.utils.network.common.ViseConfig;
 import com.oklib.utils.system.AppUtil;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.Calendar;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 /**
- * @Description: 磁盘缓存，KEY加密存储，可定制缓存时长
+ * @Description: 磁盘缓存，KEY加密存储，可定制缓存时长，可配置压缩、加密，条目以定长二进制头部 + 数据存储
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2016-12-19 15:10
  */
@@ -27,9 +37,14 @@ public class DiskCache implements ICache {
     private static final int MIN_DISK_CACHE_SIZE = 5 * 1024 * 1024; // 5MB
     private static final int MAX_DISK_CACHE_SIZE = 20 * 1024 * 1024; // 20MB
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String LEGACY_TAG = "@createTime{";
+
     private DiskLruCache cache;
-    private Pattern compile;
+    private Pattern compile;//仅用于解析旧格式缓存
     private long cacheTime = ViseConfig.CACHE_NEVER_EXPIRE;
+    private volatile CacheCodec[] codecs = new CacheCodec[0];//写入时依次使用的编解码器
+    private final SparseArray<CacheCodec> decoders = new SparseArray<>();//读取时可用的编解码器
 
     public DiskCache(Context context) {
         this(context, getDiskCacheDir(context, ViseConfig.CACHE_DISK_DIR),
@@ -37,6 +52,8 @@ public class DiskCache implements ICache {
     }
 
     public DiskCache(Context context, File diskDir, long diskMaxSize) {
+        decoders.put(DeflateCodec.ID, new DeflateCodec());
+        decoders.put(GzipCodec.ID, new GzipCodec());
         final String REGEX = "@createTime\\{(\\d+)\\}expireMills\\{((-)?\\d+)\\}@";
         compile = Pattern.compile(REGEX);
         try {
@@ -48,22 +65,35 @@ public class DiskCache implements ICache {
     }
 
     public void put(String key, String value) {
+        put(key, value, cacheTime);
+    }
+
+    /**
+     * 指定缓存时长写入，不影响当前实例的默认缓存时长
+     *
+     * @param key
+     * @param value
+     * @param cacheTime 缓存时长（毫秒）
+     */
+    public void put(String key, String value, long cacheTime) {
+        put(key, value, cacheTime, cacheTime);
+    }
+
+    /**
+     * 分别指定新鲜时长和过期时长写入，超过新鲜时长但未过期的数据仍可通过getRecord读取
+     *
+     * @param key
+     * @param value
+     * @param freshTime  新鲜时长（毫秒）
+     * @param expireTime 过期时长（毫秒），不小于新鲜时长
+     */
+    public void put(String key, String value, long freshTime, long expireTime) {
         if (TextUtils.isEmpty(key) || TextUtils.isEmpty(value)) {
             return;
         }
 
-        String name = getMd5Key(key);
         try {
-            if (!TextUtils.isEmpty(get(name))) {
-                cache.remove(name);
-            }
-
-            DiskLruCache.Editor editor = cache.edit(name);
-            final String TAG_CACHE = "@createTime{createTime_v}expireMills{expireMills_v}@";
-            String content = value + TAG_CACHE.replace("createTime_v", "" + Calendar.getInstance().getTimeInMillis())
-                    .replace("expireMills_v", "" + cacheTime);
-            editor.set(0, content);
-            editor.commit();
+            write(getMd5Key(key), System.currentTimeMillis(), freshTime, expireTime, value.getBytes(UTF_8));
         } catch (IOException e) {
             e.printStackTrace();
             Logger.e(e);
@@ -77,38 +107,243 @@ public class DiskCache implements ICache {
 
     @Override
     public String get(String key) {
+        Record record = getRecord(key);
+        return record != null ? record.value : null;
+    }
+
+    /**
+     * 读取缓存数据及其头部信息
+     *
+     * @param key
+     * @return 不存在或已过期返回null
+     */
+    Record getRecord(String key) {
+        DiskLruCache.Snapshot snapshot = null;
         try {
             String md5Key = getMd5Key(key);
-            DiskLruCache.Snapshot snapshot = cache.get(md5Key);
-            if (snapshot != null) {
-                String content = snapshot.getString(0);
-
-                if (!TextUtils.isEmpty(content)) {
-                    Matcher matcher = compile.matcher(content);
-                    long createTime = 0;
-                    long expireMills = 0;
-                    while (matcher.find()) {
-                        createTime = Long.parseLong(matcher.group(1));
-                        expireMills = Long.parseLong(matcher.group(2));
-                    }
-                    int index = content.indexOf("@createTime");
-
-                    if ((createTime + expireMills > Calendar.getInstance().getTimeInMillis())
-                            || expireMills == ViseConfig.CACHE_NEVER_EXPIRE) {
-                        return content.substring(0, index);
-                    } else {
-                        cache.remove(md5Key);
-                    }
+            snapshot = cache.get(md5Key);
+            if (snapshot == null) {
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(snapshot.getInputStream(0)));
+            in.mark(CacheHeader.MAGIC_SIZE);
+            int magic = in.readInt();
+            if (!CacheHeader.isMagic(magic)) {
+                in.reset();
+                return readLegacy(md5Key, in);
+            }
+            CacheHeader header = CacheHeader.readFrom(magic, in);
+            if (header.isExpired(System.currentTimeMillis())) {
+                snapshot.close();
+                snapshot = null;
+                cache.remove(md5Key);
+                return null;
+            }
+            byte[] payload;
+            if (header.isStreamed()) {
+                long length = snapshot.getLength(0) - CacheHeader.SIZE - CacheHeader.TRAILER_SIZE;
+                if (length < 0 || length > Integer.MAX_VALUE) {
+                    throw new IOException("bad streamed cache entry length: " + length);
                 }
+                payload = new byte[(int) length];
+                in.readFully(payload);
+                header = header.withPayload(payload.length, in.readInt());
+            } else {
+                payload = new byte[header.length];
+                in.readFully(payload);
+            }
+            if (!header.verify(payload)) {
+                Logger.e("DiskCache checksum mismatch, drop entry: " + key);
+                snapshot.close();
+                snapshot = null;
+                cache.remove(md5Key);
+                return null;
+            }
+            try {
+                payload = decode(header.codecs, payload);
+            } catch (IOException e) {
+                Logger.e("DiskCache decode failed, drop entry: " + key + " " + e);
+                snapshot.close();
+                snapshot = null;
+                cache.remove(md5Key);
+                return null;
+            }
+            return new Record(header, new String(payload, UTF_8));
+        } catch (Exception e) {
+            e.printStackTrace();
+            Logger.e(e);
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 打开流式写入，数据按原样写入磁盘，写完后调用StreamEditor.commit生效；
+     * 编解码器需要完整数据，配置了编解码器时不支持流式写入，由调用方解析后通过put写入
+     *
+     * @param key
+     * @param freshTime  新鲜时长（毫秒）
+     * @param expireTime 过期时长（毫秒）
+     * @return 配置了编解码器或同一个Key正在被写入时返回null
+     */
+    public StreamEditor openStream(String key, long freshTime, long expireTime) {
+        if (TextUtils.isEmpty(key) || codecs.length > 0) {
+            return null;
+        }
+        DiskLruCache.Editor editor = null;
+        try {
+            editor = cache.edit(getMd5Key(key));
+            if (editor == null) {
+                return null;
             }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(editor.newOutputStream(0)));
+            new CacheHeader(System.currentTimeMillis(), freshTime, expireTime, 0, CacheHeader.STREAMED, 0).writeTo(out);
+            return new StreamEditor(editor, out);
+        } catch (Exception e) {
+            Logger.e(e);
+            if (editor != null) {
+                editor.abortUnlessCommitted();
+            }
+        }
+        return null;
+    }
 
+    /**
+     * 只读取头部判断是否过期，不读取数据
+     *
+     * @param key
+     * @return 缓存不存在或已过期返回true
+     */
+    public boolean isExpired(String key) {
+        DiskLruCache.Snapshot snapshot = null;
+        try {
+            snapshot = cache.get(getMd5Key(key));
+            if (snapshot == null) {
+                return true;
+            }
+            DataInputStream in = new DataInputStream(snapshot.getInputStream(0));
+            int magic = in.readInt();
+            if (!CacheHeader.isMagic(magic)) {
+                //旧格式只能完整读取，由get负责判断并迁移
+                snapshot.close();
+                snapshot = null;
+                return get(key) == null;
+            }
+            return CacheHeader.readFrom(magic, in).isExpired(System.currentTimeMillis());
         } catch (Exception e) {
             e.printStackTrace();
             Logger.e(e);
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
         }
+        return true;
+    }
+
+    /**
+     * 读取旧格式（数据 + "@createTime{..}expireMills{..}@" 字符串尾部）的缓存，未过期时迁移为二进制格式
+     */
+    private Record readLegacy(String md5Key, InputStream in) throws IOException {
+        String content = readFully(in);
+        if (TextUtils.isEmpty(content)) {
+            return null;
+        }
+        int index = content.lastIndexOf(LEGACY_TAG);
+        if (index < 0) {
+            return null;
+        }
+        Matcher matcher = compile.matcher(content);
+        if (!matcher.find(index)) {
+            return null;
+        }
+        long createTime = Long.parseLong(matcher.group(1));
+        long expireMills = Long.parseLong(matcher.group(2));
+        String value = content.substring(0, index);
+        if ((createTime + expireMills > System.currentTimeMillis())
+                || expireMills == ViseConfig.CACHE_NEVER_EXPIRE) {
+            byte[] payload = value.getBytes(UTF_8);
+            try {
+                write(md5Key, createTime, expireMills, expireMills, payload);
+            } catch (IOException e) {
+                Logger.e(e);
+            }
+            return new Record(CacheHeader.create(createTime, expireMills, expireMills, 0, payload), value);
+        }
+        cache.remove(md5Key);
         return null;
     }
 
+    private void write(String md5Key, long createTime, long freshMills, long expireMills, byte[] payload)
+            throws IOException {
+        DiskLruCache.Editor editor = cache.edit(md5Key);
+        if (editor == null) {
+            //同一个Key正在被写入
+            return;
+        }
+        DataOutputStream out = null;
+        try {
+            int codecIds = 0;
+            int shift = 0;
+            for (CacheCodec codec : codecs) {
+                byte[] encoded = codec.encode(payload);
+                if (encoded != null) {
+                    payload = encoded;
+                    codecIds |= codec.id() << shift;
+                    shift += 8;
+                }
+            }
+            out = new DataOutputStream(new BufferedOutputStream(editor.newOutputStream(0)));
+            CacheHeader.create(createTime, freshMills, expireMills, codecIds, payload).writeTo(out);
+            out.write(payload);
+            out.close();
+            out = null;
+            editor.commit();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+            editor.abortUnlessCommitted();
+        }
+    }
+
+    /**
+     * 按编码的相反顺序解码
+     */
+    private byte[] decode(int codecIds, byte[] data) throws IOException {
+        for (int shift = (CacheHeader.MAX_CODECS - 1) * 8; shift >= 0; shift -= 8) {
+            int id = (codecIds >>> shift) & 0xFF;
+            if (id == 0) {
+                continue;
+            }
+            CacheCodec codec;
+            synchronized (decoders) {
+                codec = decoders.get(id);
+            }
+            if (codec == null) {
+                throw new IOException("unknown cache codec: " + id);
+            }
+            data = codec.decode(data);
+        }
+        return data;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return new String(out.toByteArray(), UTF_8);
+    }
+
     @Override
     public void remove(String key) {
         try {
@@ -121,14 +356,7 @@ public class DiskCache implements ICache {
 
     @Override
     public boolean contains(String key) {
-        try {
-            DiskLruCache.Snapshot snapshot = cache.get(getMd5Key(key));
-            return snapshot != null;
-        } catch (IOException e) {
-            e.printStackTrace();
-            Logger.e(e);
-        }
-        return false;
+        return !isExpired(key);
     }
 
     public boolean isClosed() {
@@ -145,6 +373,32 @@ public class DiskCache implements ICache {
         }
     }
 
+    /**
+     * 设置写入时依次使用的编解码器，如先压缩再加密：setCodecs(new DeflateCodec(), new AesCodec(password))，
+     * 最多4个；读取时按条目头部记录的编解码器解码，旧条目不受影响
+     *
+     * @param codecs
+     * @return
+     */
+    public DiskCache setCodecs(CacheCodec... codecs) {
+        if (codecs == null) {
+            codecs = new CacheCodec[0];
+        }
+        if (codecs.length > CacheHeader.MAX_CODECS) {
+            throw new IllegalArgumentException("at most " + CacheHeader.MAX_CODECS + " codecs");
+        }
+        synchronized (decoders) {
+            for (CacheCodec codec : codecs) {
+                if (codec.id() <= 0 || codec.id() > 0xFF) {
+                    throw new IllegalArgumentException("codec id out of range: " + codec.id());
+                }
+                decoders.put(codec.id(), codec);
+            }
+        }
+        this.codecs = codecs.clone();
+        return this;
+    }
+
     public DiskCache setCacheTime(long cacheTime) {
         this.cacheTime = cacheTime;
         return this;
@@ -154,6 +408,89 @@ public class DiskCache implements ICache {
         return Md5.getMessageDigest(key.getBytes());
     }
 
+    /**
+     * 流式写入，边写入边计算校验值；commit之前的数据对读取不可见，未commit就close会放弃本次写入
+     */
+    public static final class StreamEditor extends OutputStream {
+        private final DiskLruCache.Editor editor;
+        private final DataOutputStream out;
+        private final CRC32 crc32 = new CRC32();
+        private long size;
+        private boolean done;
+
+        private StreamEditor(DiskLruCache.Editor editor, DataOutputStream out) {
+            this.editor = editor;
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            crc32.update(b);
+            size++;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            crc32.update(b, off, len);
+            size += len;
+        }
+
+        /**
+         * 已写入的数据长度（字节）
+         *
+         * @return
+         */
+        public long size() {
+            return size;
+        }
+
+        public void commit() throws IOException {
+            if (done) {
+                return;
+            }
+            done = true;
+            try {
+                out.writeInt((int) crc32.getValue());
+                out.close();
+                editor.commit();
+            } finally {
+                editor.abortUnlessCommitted();
+            }
+        }
+
+        public void abort() {
+            if (done) {
+                return;
+            }
+            done = true;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            editor.abortUnlessCommitted();
+        }
+
+        @Override
+        public void close() {
+            abort();
+        }
+    }
+
+    /**
+     * 缓存数据及其头部信息
+     */
+    static final class Record {
+        final CacheHeader header;
+        final String value;
+
+        Record(CacheHeader header, String value) {
+            this.header = header;
+            this.value = value;
+        }
+    }
+
     private static File getDiskCacheDir(Context context, String dirName) {
         String cachePath;
         if ((Environment.MEDIA_MOUNTED.equals(Environment.getExternalStorageState())
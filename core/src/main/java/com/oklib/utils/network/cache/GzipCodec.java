@@ -0,0 +1,61 @@
+package com.oklib.utils.network.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @Description: Gzip压缩，小于最小长度的数据不压缩
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 17:20
+ */
+public class GzipCodec implements CacheCodec {
+    public static final int ID = 2;
+    private static final int DEFAULT_MIN_SIZE = 256;
+
+    private final int minSize;
+
+    public GzipCodec() {
+        this(DEFAULT_MIN_SIZE);
+    }
+
+    public GzipCodec(int minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] data) throws IOException {
+        if (data.length < minSize) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(data.length / 4, 64));
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(data);
+        gzip.close();
+        byte[] result = out.toByteArray();
+        return result.length < data.length ? result : null;
+    }
+
+    @Override
+    public byte[] decode(byte[] data) throws IOException {
+        GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data));
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = gzip.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            gzip.close();
+        }
+    }
+}
@@ -1,25 +1,32 @@
 package com.oklib.utils.network.cache;
 
+import android.graphics.Bitmap;
 import android.text.TextUtils;
-import android.util.LruCache;
 
 import com.oklib.utils.Logger.Logger;
 
+import java.util.Collection;
+import java.util.Map;
+
 
 /**
- * @Description: 内存缓存
+ * @Description: 内存缓存，按条目占用字节数淘汰，分段加锁，多线程读写互不阻塞
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2016-12-19 15:08
  */
 public class MemoryCache implements ICache {
-    private LruCache<String, Object> cache;
-    private static MemoryCache instance;
+    private static final int DEFAULT_ENTRY_SIZE = 1024;//无法估算大小时的默认权重（字节）
+    private static final int DEFAULT_ELEMENT_SIZE = 64;//集合、数组中每个元素的估算大小（字节）
+
+    private final ConcurrentLruCache<String, Object> cache;
+    private static volatile MemoryCache instance;
 
     private MemoryCache() {
-        int maxMemory = (int) Runtime.getRuntime().maxMemory();
-        int cacheSize = maxMemory / 8;
-        cache = new LruCache(cacheSize);
+        this(Runtime.getRuntime().maxMemory() / 8, new ObjectWeigher());
+    }
 
+    public MemoryCache(long maxSize, Weigher<String, Object> weigher) {
+        cache = new ConcurrentLruCache<>(maxSize, weigher);
     }
 
     public static MemoryCache getInstance() {
@@ -34,25 +41,46 @@ public class MemoryCache implements ICache {
     }
 
     @Override
-    public synchronized void put(String key, Object value) {
+    public void put(String key, Object value) {
         if (TextUtils.isEmpty(key)) {
             return;
         }
-
-        if (cache.get(key) != null) {
+        if (value == null) {
             cache.remove(key);
+            return;
         }
         cache.put(key, value);
     }
 
+    /**
+     * 写入并指定占用字节数，调用方已知数据大小（如原始JSON长度）时使用，不再估算
+     *
+     * @param key
+     * @param value
+     * @param size
+     */
+    public void put(String key, Object value, int size) {
+        if (TextUtils.isEmpty(key)) {
+            return;
+        }
+        if (value == null) {
+            cache.remove(key);
+            return;
+        }
+        cache.put(key, value, Math.max(size, 1));
+    }
+
     @Override
     public Object get(String key) {
+        if (TextUtils.isEmpty(key)) {
+            return null;
+        }
         return cache.get(key);
     }
 
-    public synchronized <T> T get(String key, Class<T> clazz) {
+    public <T> T get(String key, Class<T> clazz) {
         try {
-            return (T) cache.get(key);
+            return (T) get(key);
         } catch (Exception e) {
             e.printStackTrace();
             Logger.e(e);
@@ -62,18 +90,80 @@ public class MemoryCache implements ICache {
 
     @Override
     public void remove(String key) {
-        if (cache.get(key) != null) {
-            cache.remove(key);
+        if (TextUtils.isEmpty(key)) {
+            return;
         }
+        cache.remove(key);
     }
 
     @Override
     public boolean contains(String key) {
-        return cache.get(key) != null;
+        return !TextUtils.isEmpty(key) && cache.containsKey(key);
     }
 
     @Override
     public void clear() {
         cache.evictAll();
     }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+
+    public long size() {
+        return cache.weight();
+    }
+
+    public long maxSize() {
+        return cache.maxWeight();
+    }
+
+    @Override
+    public String toString() {
+        return cache.toString();
+    }
+
+    /**
+     * 默认权重计算：常见类型按实际占用估算，集合和数组按元素个数估算，其它对象使用固定大小；
+     * 不序列化对象，写入时没有额外开销，需要准确大小时使用put(key, value, size)
+     */
+    public static class ObjectWeigher implements Weigher<String, Object> {
+        @Override
+        public int weigh(String key, Object value) {
+            return key.length() * 2 + sizeOf(value);
+        }
+
+        private int sizeOf(Object value) {
+            if (value instanceof Bitmap) {
+                return ((Bitmap) value).getRowBytes() * ((Bitmap) value).getHeight();
+            }
+            if (value instanceof byte[]) {
+                return ((byte[]) value).length;
+            }
+            if (value instanceof CharSequence) {
+                return ((CharSequence) value).length() * 2;
+            }
+            if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+                return 16;
+            }
+            if (value instanceof Collection) {
+                return 16 + ((Collection) value).size() * DEFAULT_ELEMENT_SIZE;
+            }
+            if (value instanceof Map) {
+                return 16 + ((Map) value).size() * DEFAULT_ELEMENT_SIZE * 2;
+            }
+            if (value instanceof Object[]) {
+                return 16 + ((Object[]) value).length * DEFAULT_ELEMENT_SIZE;
+            }
+            return DEFAULT_ENTRY_SIZE;
+        }
+    }
 }
@@ -2,6 +2,7 @@ package com.oklib.utils.network.cache;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Log;
 
 import com.oklib.utils.Logger.Logger;
 import com.oklib.utils.cipher.Base64Util;
@@ -33,7 +34,9 @@ public class SpCache implements ICache {
     @Override
     public void put(String key, Object ser) {
         try {
-            Logger.i(key + " put: " + ser);
+            if (Logger.isLoggable(Log.INFO)) {
+                Logger.i(key + " put: " + ser);
+            }
             if (ser == null) {
                 sp.edit().remove(key).apply();
             } else {
@@ -56,7 +59,9 @@ public class SpCache implements ICache {
             byte[] bytes = HexUtil.decodeHex(hex.toCharArray());
             bytes = Base64Util.decode(bytes);
             Object obj = ByteUtil.byteToObject(bytes);
-            Logger.i(key + " get: " + obj);
+            if (Logger.isLoggable(Log.INFO)) {
+                Logger.i(key + " get: " + obj);
+            }
             return obj;
         } catch (Exception e) {
             e.printStackTrace();
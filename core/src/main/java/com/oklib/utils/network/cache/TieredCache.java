@@ -0,0 +1,246 @@
+package com.oklib.utils.network.cache;
+
+import android.text.TextUtils;
+
+import com.oklib.utils.Logger.Logger;
+import com.oklib.utils.network.common.GsonUtil;
+import com.oklib.utils.network.common.ViseConfig;
+
+import java.lang.reflect.Type;
+
+/**
+ * @Description: 二级缓存，一级为已反序列化对象的内存缓存（按Key索引，条目记录解析时使用的Type，按数据字节数淘汰），
+ * 二级为磁盘缓存。写入时同时写入两级，删除和清空时同时失效两级，内存命中时不再读取磁盘和解析JSON；
+ * 同一个Key以不同Type读取时内存未命中，从磁盘解析后替换内存条目。
+ * 注意：内存命中返回的是同一个对象，调用方不应修改其内容
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 11:05
+ */
+public class TieredCache implements ICache {
+    private final ConcurrentLruCache<String, MemoryEntry> memory;
+    private final DiskCache disk;
+    private long cacheTime = ViseConfig.CACHE_NEVER_EXPIRE;
+
+    public TieredCache(DiskCache disk, int memoryMaxSize) {
+        this.disk = disk;
+        this.memory = new ConcurrentLruCache<>(memoryMaxSize, new Weigher<String, MemoryEntry>() {
+            @Override
+            public int weigh(String key, MemoryEntry value) {
+                return value.size;
+            }
+        });
+    }
+
+    /**
+     * 写入两级缓存
+     *
+     * @param key
+     * @param value
+     * @param type      读取时使用的类型，与get(key, type)对应
+     * @param cacheTime 缓存时长（毫秒）
+     */
+    public <T> void put(String key, T value, Type type, long cacheTime) {
+        put(key, value, type, cacheTime, 0);
+    }
+
+    /**
+     * 写入两级缓存，超过缓存时长后在staleTime内仍可通过getEntry读取陈旧数据
+     *
+     * @param key
+     * @param value
+     * @param type      读取时使用的类型，与get(key, type)对应
+     * @param cacheTime 缓存时长（毫秒）
+     * @param staleTime 过期后仍可读取陈旧数据的时长（毫秒）
+     */
+    public <T> void put(String key, T value, Type type, long cacheTime, long staleTime) {
+        if (TextUtils.isEmpty(key)) {
+            return;
+        }
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        String json = GsonUtil.gson().toJson(value);
+        memory.remove(key);
+        disk.put(key, json, cacheTime, expireTime(cacheTime, staleTime));
+        putMemory(key, value, type, cacheTime, staleTime, json.length());
+    }
+
+    /**
+     * 打开磁盘流式写入，用于将网络数据原样写入缓存，写入完成后调用putMemory写入内存
+     *
+     * @param key
+     * @param cacheTime 缓存时长（毫秒）
+     * @param staleTime 过期后仍可读取陈旧数据的时长（毫秒）
+     * @return 同一个Key正在被写入时返回null
+     */
+    public DiskCache.StreamEditor openStream(String key, long cacheTime, long staleTime) {
+        memory.remove(key);
+        return disk.openStream(key, cacheTime, expireTime(cacheTime, staleTime));
+    }
+
+    /**
+     * 只写入内存缓存，磁盘数据已通过openStream写入
+     *
+     * @param size 数据大小（字节）
+     */
+    public <T> void putMemory(String key, T value, Type type, long cacheTime, long staleTime, long size) {
+        if (TextUtils.isEmpty(key) || value == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expireTime = expireTime(cacheTime, staleTime);
+        long freshUntil = cacheTime < 0 ? Long.MAX_VALUE : now + cacheTime;
+        long expireAt = expireTime < 0 ? Long.MAX_VALUE : now + expireTime;
+        memory.put(key, new MemoryEntry(value, type, freshUntil, expireAt,
+                (int) Math.min(size, Integer.MAX_VALUE)));
+    }
+
+    private static long expireTime(long cacheTime, long staleTime) {
+        return cacheTime < 0 ? cacheTime : cacheTime + Math.max(staleTime, 0);
+    }
+
+    /**
+     * 读取未超过缓存时长的缓存对象，优先读取内存，内存未命中时读取磁盘并解析后回填内存
+     *
+     * @param key
+     * @param type
+     * @return 不存在或已超过缓存时长返回null
+     */
+    public <T> T get(String key, Type type) {
+        CacheEntry<T> entry = getEntry(key, type);
+        if (entry == null || entry.isStale()) {
+            return null;
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * 读取缓存对象，包括超过缓存时长但仍在staleTime内的陈旧数据
+     *
+     * @param key
+     * @param type
+     * @return 不存在或已过期返回null
+     */
+    public <T> CacheEntry<T> getEntry(String key, Type type) {
+        if (TextUtils.isEmpty(key)) {
+            return null;
+        }
+        MemoryEntry entry = memory.get(key);
+        if (entry != null && entry.matches(type)) {
+            if (entry.expireAt > System.currentTimeMillis()) {
+                return new CacheEntry<>((T) entry.value, entry.freshUntil, entry.expireAt);
+            }
+            memory.remove(key);
+        }
+        DiskCache.Record record = disk.getRecord(key);
+        if (record == null) {
+            return null;
+        }
+        try {
+            T t = GsonUtil.gson().fromJson(record.value, type);
+            if (t == null) {
+                return null;
+            }
+            long freshUntil = record.header.freshUntil();
+            long expireAt = record.header.expireAt();
+            memory.put(key, new MemoryEntry(t, type, freshUntil, expireAt, record.value.length()));
+            return new CacheEntry<>(t, freshUntil, expireAt);
+        } catch (Exception e) {
+            Logger.e(e);
+        }
+        return null;
+    }
+
+    /**
+     * 只写入磁盘并使内存条目失效：没有调用方的Type时无法确定读取类型（value.getClass()会丢失泛型参数），
+     * 内存条目在下次get(key, type)时回填；需要同时写入内存时使用put(key, value, type, cacheTime)
+     *
+     * @param key
+     * @param value
+     */
+    @Override
+    public void put(String key, Object value) {
+        if (TextUtils.isEmpty(key)) {
+            return;
+        }
+        memory.remove(key);
+        if (value == null) {
+            disk.remove(key);
+            return;
+        }
+        disk.put(key, GsonUtil.gson().toJson(value), cacheTime, cacheTime);
+    }
+
+    /**
+     * 读取磁盘中的原始JSON
+     *
+     * @param key
+     * @return
+     */
+    @Override
+    public String get(String key) {
+        return disk.get(key);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return disk.contains(key);
+    }
+
+    @Override
+    public void remove(String key) {
+        if (!TextUtils.isEmpty(key)) {
+            memory.remove(key);
+        }
+        disk.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        memory.evictAll();
+        disk.clear();
+    }
+
+    public boolean isClosed() {
+        return disk.isClosed();
+    }
+
+    public TieredCache setCacheTime(long cacheTime) {
+        this.cacheTime = cacheTime;
+        return this;
+    }
+
+    /**
+     * 内存缓存的命中、未命中和淘汰统计
+     *
+     * @return
+     */
+    public String memoryStats() {
+        return memory.toString();
+    }
+
+    public DiskCache getDiskCache() {
+        return disk;
+    }
+
+    private static final class MemoryEntry {
+        final Object value;
+        final Type type;
+        final long freshUntil;
+        final long expireAt;
+        final int size;//以JSON长度估算的占用字节数
+
+        MemoryEntry(Object value, Type type, long freshUntil, long expireAt, int size) {
+            this.value = value;
+            this.type = type;
+            this.freshUntil = freshUntil;
+            this.expireAt = expireAt;
+            this.size = Math.max(size, 1);
+        }
+
+        boolean matches(Type type) {
+            return this.type != null ? this.type.equals(type) : type == null;
+        }
+    }
+}
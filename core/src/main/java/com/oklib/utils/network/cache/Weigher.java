@@ -0,0 +1,17 @@
+package com.oklib.utils.network.cache;
+
+/**
+ * @Description: 缓存条目权重计算接口，用于按占用大小淘汰
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 13:40
+ */
+public interface Weigher<K, V> {
+    /**
+     * 计算条目权重（通常为字节数），必须大于0
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    int weigh(K key, V value);
+}
@@ -13,6 +13,7 @@ public class ViseConfig {
     public static final String CACHE_DISK_DIR = "disk_cache";//默认磁盘缓存目录
     public static final String CACHE_HTTP_DIR = "http_cache";//默认HTTP缓存目录
     public static final long CACHE_NEVER_EXPIRE = -1;//永久不过期
+    public static final int CACHE_MEMORY_MAX_SIZE = 4 * 1024 * 1024;//默认内存缓存大小（字节）
 
     public static final int MAX_AGE_ONLINE = 60;//默认最大在线缓存时间（秒）
     public static final int MAX_AGE_OFFLINE = 24 * 60 * 60;//默认最大离线缓存时间（秒）
@@ -20,6 +21,7 @@ public class ViseConfig {
     public static final String API_HOST = "https://api.github.com/";//默认API主机地址
 
     public static final String COOKIE_PREFS = "Cookies_Prefs";//默认Cookie缓存目录
+    public static final String COOKIE_FILE = "Cookies.bin";//默认Cookie持久化文件
 
     public static final int DEFAULT_TIMEOUT = 60;//默认超时时间（秒）
     public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;//默认空闲连接数
@@ -2,14 +2,11 @@ package com.oklib.utils.network.http.body;
 
 import androidx.annotation.NonNull;
 
-import com.oklib.utils.Logger.Logger;
 import com.oklib.utils.network.http.callback.UCallback;
+import com.oklib.utils.network.http.core.ProgressDispatcher;
 
 import java.io.IOException;
 
-import io.reactivex.Observable;
-import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.functions.Consumer;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okio.Buffer;
@@ -19,7 +16,7 @@ import okio.Okio;
 import okio.Sink;
 
 /**
- * @Description: 上传进度请求实体类
+ * @Description: 上传进度请求实体类，进度经ProgressDispatcher按粒度合并后在主线程回调
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2017-04-08 14:48
  */
@@ -27,7 +24,6 @@ public class UploadProgressRequestBody extends RequestBody {
 
     private RequestBody requestBody;
     private UCallback callback;
-    private long lastTime;
 
     public UploadProgressRequestBody(RequestBody requestBody, UCallback callback) {
         this.requestBody = requestBody;
@@ -54,20 +50,28 @@ public class UploadProgressRequestBody extends RequestBody {
 
     @Override
     public void writeTo(@NonNull BufferedSink sink) throws IOException {
-        CountingSink countingSink = new CountingSink(sink);
+        CountingSink countingSink = new CountingSink(sink, ProgressDispatcher.get().newTransfer(new ProgressDispatcher.Callback() {
+            @Override
+            public void onProgress(long current, long total) {
+                callback.onProgress(current, total, total > 0 ? (100.0f * current) / total : 0);
+            }
+        }));
         BufferedSink bufferedSink = Okio.buffer(countingSink);
         requestBody.writeTo(bufferedSink);
         bufferedSink.flush();
+        countingSink.transfer.finish();
     }
 
     private final class CountingSink extends ForwardingSink {
+        private final ProgressDispatcher.Transfer transfer;
         //当前字节长度
         private long currentLength = 0L;
         //总字节长度，避免多次调用contentLength()方法
         private long totalLength = 0L;
 
-        public CountingSink(Sink sink) {
+        public CountingSink(Sink sink, ProgressDispatcher.Transfer transfer) {
             super(sink);
+            this.transfer = transfer;
         }
 
         @Override
@@ -79,22 +83,7 @@ public class UploadProgressRequestBody extends RequestBody {
             if (totalLength == 0) {
                 totalLength = contentLength();
             }
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastTime >= 100 || lastTime == 0 || currentLength == totalLength) {
-                lastTime = currentTime;
-                Observable.just(currentLength).observeOn(AndroidSchedulers.mainThread()).subscribe(new Consumer<Long>() {
-                    @Override
-                    public void accept(Long aLong) throws Exception {
-                        Logger.i("upload progress currentLength:" + currentLength + ",totalLength:" + totalLength);
-                        callback.onProgress(currentLength, totalLength, (100.0f * currentLength) / totalLength);
-                    }
-                }, new Consumer<Throwable>() {
-                    @Override
-                    public void accept(Throwable throwable) throws Exception {
-                        callback.onFail(-1, throwable.getMessage());
-                    }
-                });
-            }
+            transfer.update(currentLength, totalLength);
         }
     }
 
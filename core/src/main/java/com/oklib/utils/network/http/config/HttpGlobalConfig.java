@@ -3,6 +3,8 @@ package com.oklib.utils.network.http.config;
 import com.oklib.utils.network.common.ViseConfig;
 import com.oklib.utils.network.http.ViseHttp;
 import com.oklib.utils.network.http.core.ApiCookie;
+import com.oklib.utils.network.http.core.CircuitBreaker;
+import com.oklib.utils.network.http.interceptor.CircuitBreakerInterceptor;
 import com.oklib.utils.network.http.interceptor.GzipRequestInterceptor;
 import com.oklib.utils.network.http.interceptor.OfflineCacheInterceptor;
 import com.oklib.utils.network.http.interceptor.OnlineCacheInterceptor;
@@ -46,6 +48,8 @@ public class HttpGlobalConfig {
     private String baseUrl;//基础域名
     private int retryDelayMillis;//请求失败重试间隔时间
     private int retryCount;//请求失败重试次数
+    private RetryPolicy retryPolicy;//重试策略
+    private CircuitBreaker circuitBreaker;//按域名熔断
 
     private static HttpGlobalConfig instance;
 
@@ -244,6 +248,32 @@ public class HttpGlobalConfig {
         return this;
     }
 
+    /**
+     * 设置重试策略，重试次数和首次重试间隔仍由retryCount、retryDelayMillis设置
+     *
+     * @param retryPolicy
+     * @return
+     */
+    public HttpGlobalConfig retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = checkNotNull(retryPolicy, "retryPolicy == null");
+        return this;
+    }
+
+    /**
+     * 开启按域名熔断，连续失败failureThreshold次后openMillis内直接失败
+     *
+     * @param failureThreshold
+     * @param openMillis
+     * @return
+     */
+    public HttpGlobalConfig circuitBreaker(int failureThreshold, long openMillis) {
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker(failureThreshold, openMillis);
+            interceptor(new CircuitBreakerInterceptor(circuitBreaker));
+        }
+        return this;
+    }
+
     /**
      * 设置代理
      *
@@ -365,6 +395,17 @@ public class HttpGlobalConfig {
         return this;
     }
 
+    /**
+     * 设置请求体压缩，可配置压缩格式、长度范围和预置字典，服务器不支持则不设置
+     *
+     * @param interceptor
+     * @return
+     */
+    public HttpGlobalConfig requestCompression(GzipRequestInterceptor interceptor) {
+        interceptor(checkNotNull(interceptor, "interceptor == null"));
+        return this;
+    }
+
     /**
      * 设置在线缓存，主要针对网路请求过程进行缓存
      *
@@ -483,6 +524,17 @@ public class HttpGlobalConfig {
         return retryCount;
     }
 
+    public RetryPolicy getRetryPolicy() {
+        if (retryPolicy == null) {
+            retryPolicy = new RetryPolicy();
+        }
+        return retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
     public File getHttpCacheDirectory() {
         return httpCacheDirectory;
     }
@@ -0,0 +1,178 @@
+package com.oklib.utils.network.http.config;
+
+import java.util.Random;
+
+/**
+ * @Description: 重试策略，指数退避加随机抖动，按重试预算限制重试总量，
+ * 默认只重试幂等请求，服务器返回Retry-After时按其指定时间重试；
+ * 同一实例被所有请求的重试线程共享，运行中修改配置对之后的重试立即可见
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 22:20
+ */
+public class RetryPolicy {
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 30 * 1000;//默认最大重试间隔
+    public static final double DEFAULT_MULTIPLIER = 2;//默认退避倍数
+    public static final double DEFAULT_JITTER = 0.5;//默认随机抖动比例
+    public static final double DEFAULT_BUDGET_RATIO = 0.2;//默认每个请求为预算存入的重试额度
+    public static final int DEFAULT_BUDGET_MAX = 10;//默认预算上限
+    public static final long DEFAULT_MAX_RETRY_AFTER_MILLIS = 60 * 1000;//Retry-After超过该时间则不再重试
+
+    private final Random random = new Random();
+    private volatile long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+    private volatile double multiplier = DEFAULT_MULTIPLIER;
+    private volatile double jitter = DEFAULT_JITTER;
+    //预算相关字段只在同步方法中访问
+    private double budgetRatio = DEFAULT_BUDGET_RATIO;
+    private int budgetMax = DEFAULT_BUDGET_MAX;
+    private double budget = DEFAULT_BUDGET_MAX;
+    private volatile boolean isRetryAfter = true;
+    private volatile long maxRetryAfterMillis = DEFAULT_MAX_RETRY_AFTER_MILLIS;
+    private volatile boolean isRetryNonIdempotent;
+
+    /**
+     * 设置最大重试间隔
+     *
+     * @param maxDelayMillis
+     * @return
+     */
+    public RetryPolicy maxDelayMillis(long maxDelayMillis) {
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+        return this;
+    }
+
+    /**
+     * 设置退避倍数，第n次重试间隔为 retryDelayMillis * multiplier^(n-1)，1表示固定间隔
+     *
+     * @param multiplier
+     * @return
+     */
+    public RetryPolicy multiplier(double multiplier) {
+        this.multiplier = Math.max(1, multiplier);
+        return this;
+    }
+
+    /**
+     * 设置随机抖动比例，0~1，重试间隔在 [delay*(1-jitter), delay] 之间随机，避免客户端同时重试
+     *
+     * @param jitter
+     * @return
+     */
+    public RetryPolicy jitter(double jitter) {
+        this.jitter = Math.min(1, Math.max(0, jitter));
+        return this;
+    }
+
+    /**
+     * 设置重试预算，每个请求存入ratio个额度，每次重试消耗1个额度，额度最多累积max个；
+     * 服务大面积失败时额度很快耗尽，重试量被限制在请求量的ratio倍以内
+     *
+     * @param ratio
+     * @param max
+     * @return
+     */
+    public synchronized RetryPolicy budget(double ratio, int max) {
+        this.budgetRatio = Math.max(0, ratio);
+        this.budgetMax = Math.max(0, max);
+        this.budget = Math.min(budget, budgetMax);
+        return this;
+    }
+
+    /**
+     * 设置是否按服务器返回的Retry-After重试
+     *
+     * @param isRetryAfter
+     * @param maxRetryAfterMillis Retry-After超过该时间则不再重试
+     * @return
+     */
+    public RetryPolicy retryAfter(boolean isRetryAfter, long maxRetryAfterMillis) {
+        this.isRetryAfter = isRetryAfter;
+        this.maxRetryAfterMillis = maxRetryAfterMillis;
+        return this;
+    }
+
+    /**
+     * 设置是否重试POST、PATCH等非幂等请求，默认不重试，只在连接失败（请求未发出）时重试
+     *
+     * @param isRetryNonIdempotent
+     * @return
+     */
+    public RetryPolicy retryNonIdempotent(boolean isRetryNonIdempotent) {
+        this.isRetryNonIdempotent = isRetryNonIdempotent;
+        return this;
+    }
+
+    /**
+     * 第retryCount次重试的等待时间
+     *
+     * @param retryCount       从1开始
+     * @param retryDelayMillis 首次重试间隔
+     * @return
+     */
+    public long delayMillis(int retryCount, long retryDelayMillis) {
+        double delay = retryDelayMillis;
+        for (int i = 1; i < retryCount && delay < maxDelayMillis; i++) {
+            delay *= multiplier;
+        }
+        delay = Math.min(delay, maxDelayMillis);
+        double random;
+        synchronized (this.random) {
+            random = this.random.nextDouble();
+        }
+        return (long) (delay * (1 - jitter * random));
+    }
+
+    /**
+     * 发起请求时存入重试额度
+     */
+    public synchronized void onRequest() {
+        budget = Math.min(budgetMax, budget + budgetRatio);
+    }
+
+    /**
+     * 尝试消耗一次重试额度
+     *
+     * @return 额度不足时返回false
+     */
+    public synchronized boolean tryAcquireRetry() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    /**
+     * 请求方式是否幂等，未知请求方式按幂等处理
+     *
+     * @param method
+     * @return
+     */
+    public static boolean isIdempotent(String method) {
+        return method == null || "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)
+                || "PUT".equals(method) || "DELETE".equals(method) || "TRACE".equals(method);
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public boolean isRetryAfter() {
+        return isRetryAfter;
+    }
+
+    public long getMaxRetryAfterMillis() {
+        return maxRetryAfterMillis;
+    }
+
+    public boolean isRetryNonIdempotent() {
+        return isRetryNonIdempotent;
+    }
+}
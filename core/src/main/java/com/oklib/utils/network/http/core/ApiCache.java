@@ -4,11 +4,16 @@ import android.content.Context;
 
 
 import com.oklib.utils.Logger.Logger;
+import com.oklib.utils.network.cache.CacheCodec;
+import com.oklib.utils.network.cache.CacheEntry;
 import com.oklib.utils.network.cache.DiskCache;
+import com.oklib.utils.network.cache.TieredCache;
 import com.oklib.utils.network.common.ViseConfig;
+import com.oklib.utils.network.http.func.ApiStreamCacheFunc;
 import com.oklib.utils.network.http.mode.ApiHost;
 import com.oklib.utils.network.http.mode.CacheMode;
 import com.oklib.utils.network.http.mode.CacheResult;
+import com.oklib.utils.network.http.strategy.CacheStrategyRegistry;
 import com.oklib.utils.network.http.strategy.ICacheStrategy;
 
 import java.io.File;
@@ -22,7 +27,9 @@ import io.reactivex.ObservableTransformer;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.exceptions.Exceptions;
 import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
+import okhttp3.ResponseBody;
 
 /**
  * @Description: 针对响应数据进行缓存管理
@@ -30,8 +37,11 @@ import io.reactivex.schedulers.Schedulers;
  * @date: 16/12/31 14:27.
  */
 public class ApiCache {
-    private final DiskCache diskCache;
+    private final TieredCache cache;
     private String cacheKey;
+    private long cacheTime;
+    private long staleTime;
+    private final boolean isStreamWrite;//网络数据已由streamFunc写入缓存，put不再重复写入
 
     private static abstract class SimpleSubscribe<T> implements ObservableOnSubscribe<T> {
         @Override
@@ -57,64 +67,187 @@ public class ApiCache {
         abstract T execute() throws Throwable;
     }
 
-    private ApiCache(Context context, String cacheKey, long time) {
+    private ApiCache(TieredCache cache, String cacheKey, long time, long staleTime, boolean isStreamWrite) {
+        this.cache = cache;
         this.cacheKey = cacheKey;
-        this.diskCache = new DiskCache(context).setCacheTime(time);
+        this.cacheTime = time;
+        this.staleTime = staleTime;
+        this.isStreamWrite = isStreamWrite;
     }
 
-    private ApiCache(Context context, File diskDir, long diskMaxSize, String cacheKey, long time) {
-        this.cacheKey = cacheKey;
-        diskCache = new DiskCache(context, diskDir, diskMaxSize).setCacheTime(time);
+    public <T> ObservableTransformer<T, CacheResult<T>> transformer(CacheMode cacheMode, final Type type) {
+        return transformer(loadStrategy(cacheMode), type, false);
     }
 
-    public <T> ObservableTransformer<T, CacheResult<T>> transformer(CacheMode cacheMode, final Type type) {
-        final ICacheStrategy strategy = loadStrategy(cacheMode);//获取缓存策略
+    /**
+     * @param cacheMode
+     * @param type
+     * @param isStreamWrite 网络数据是否已由streamFunc写入缓存，为true时策略中不再重复写入，只影响本次请求
+     * @return
+     */
+    public <T> ObservableTransformer<T, CacheResult<T>> transformer(CacheMode cacheMode, final Type type, boolean isStreamWrite) {
+        return transformer(loadStrategy(cacheMode), type, isStreamWrite);
+    }
+
+    /**
+     * 使用通过CacheStrategyRegistry注册的自定义缓存策略
+     *
+     * @param mode 注册时的模式名称
+     * @param type
+     * @return
+     */
+    public <T> ObservableTransformer<T, CacheResult<T>> transformer(String mode, final Type type) {
+        return transformer(CacheStrategyRegistry.get(mode), type, false);
+    }
+
+    /**
+     * 使用通过CacheStrategyRegistry注册的自定义缓存策略
+     *
+     * @param mode          注册时的模式名称
+     * @param type
+     * @param isStreamWrite 网络数据是否已由streamFunc写入缓存，为true时策略中不再重复写入，只影响本次请求
+     * @return
+     */
+    public <T> ObservableTransformer<T, CacheResult<T>> transformer(String mode, final Type type, boolean isStreamWrite) {
+        return transformer(CacheStrategyRegistry.get(mode), type, isStreamWrite);
+    }
+
+    private <T> ObservableTransformer<T, CacheResult<T>> transformer(final ICacheStrategy strategy, final Type type,
+                                                                    boolean isStreamWrite) {
+        //ApiCache被所有请求共享，写入方式通过共享同一缓存的新实例传给本次请求的策略
+        final ApiCache apiCache = isStreamWrite == this.isStreamWrite ? this
+                : new ApiCache(cache, cacheKey, cacheTime, staleTime, isStreamWrite);
         return new ObservableTransformer<T, CacheResult<T>>() {
             @Override
             public ObservableSource<CacheResult<T>> apply(Observable<T> apiResultObservable) {
-                Logger.i("cacheKey=" + ApiCache.this.cacheKey);
-                return strategy.execute(ApiCache.this, ApiCache.this.cacheKey, apiResultObservable, type);
+                Logger.i("cacheKey=" + apiCache.cacheKey);
+                return strategy.execute(apiCache, apiCache.cacheKey, apiResultObservable, type);
             }
         };
     }
 
-
     public Observable<String> get(final String key) {
         return Observable.create(new SimpleSubscribe<String>() {
             @Override
             String execute() {
-                return diskCache.get(key);
+                return cache.get(key);
+            }
+        });
+    }
+
+    /**
+     * 读取缓存对象，内存命中时不读取磁盘也不解析JSON
+     *
+     * @param key
+     * @param type
+     * @return
+     */
+    public <T> Observable<T> get(final String key, final Type type) {
+        return Observable.create(new SimpleSubscribe<T>() {
+            @Override
+            T execute() {
+                return cache.get(key, type);
+            }
+        });
+    }
+
+    /**
+     * 读取缓存，包括超过缓存时长但仍在staleTime内的陈旧数据
+     *
+     * @param key
+     * @param type
+     * @return
+     */
+    public <T> Observable<CacheEntry<T>> getEntry(final String key, final Type type) {
+        return Observable.create(new SimpleSubscribe<CacheEntry<T>>() {
+            @Override
+            CacheEntry<T> execute() {
+                return cache.getEntry(key, type);
             }
         });
     }
 
     public <T> Observable<Boolean> put(final String key, final T value) {
+        return put(key, value, value != null ? value.getClass() : Object.class);
+    }
+
+    public <T> Observable<Boolean> put(final String key, final T value, final Type type) {
         return Observable.create(new SimpleSubscribe<Boolean>() {
             @Override
             Boolean execute() throws Throwable {
-                diskCache.put(key, value);
+                if (!isStreamWrite) {
+                    cache.put(key, value, type, cacheTime, staleTime);
+                }
                 return true;
             }
         });
     }
 
+    /**
+     * 同步写入两级缓存
+     *
+     * @param key
+     * @param value
+     * @param type
+     */
+    public <T> void save(String key, T value, Type type) {
+        cache.put(key, value, type, cacheTime, staleTime);
+    }
+
+    /**
+     * 打开磁盘流式写入
+     *
+     * @param key
+     * @return 同一个Key正在被写入时返回null
+     */
+    public DiskCache.StreamEditor openStream(String key) {
+        return cache.openStream(key, cacheTime, staleTime);
+    }
+
+    /**
+     * 流式写入磁盘完成后，将解析结果写入内存缓存
+     *
+     * @param key
+     * @param value
+     * @param type
+     * @param size  数据大小（字节）
+     */
+    public <T> void putMemory(String key, T value, Type type, long size) {
+        cache.putMemory(key, value, type, cacheTime, staleTime, size);
+    }
+
+    /**
+     * 边解析边将网络返回的原始数据写入缓存，避免解析后再序列化写入；使用后transformer的isStreamWrite需传true，
+     * 缓存策略中不再重复写入
+     *
+     * @param type
+     * @return
+     */
+    public <T> Function<ResponseBody, T> streamFunc(Type type) {
+        return new ApiStreamCacheFunc<>(this, cacheKey, type);
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
     public boolean containsKey(final String key) {
-        return diskCache.contains(key);
+        return cache.contains(key);
     }
 
     public void remove(final String key) {
-        diskCache.remove(key);
+        cache.remove(key);
     }
 
     public boolean isClosed() {
-        return diskCache.isClosed();
+        return cache.isClosed();
     }
 
     public Disposable clear() {
         return Observable.create(new SimpleSubscribe<Boolean>() {
             @Override
             Boolean execute() throws Throwable {
-                diskCache.clear();
+                cache.clear();
                 return true;
             }
         }).subscribeOn(Schedulers.io()).subscribe(new Consumer<Boolean>() {
@@ -126,20 +259,19 @@ public class ApiCache {
     }
 
     public ICacheStrategy loadStrategy(CacheMode cacheMode) {
-        try {
-            String pkName = ICacheStrategy.class.getPackage().getName();
-            return (ICacheStrategy) Class.forName(pkName + "." + cacheMode.getClassName()).newInstance();
-        } catch (Exception e) {
-            throw new RuntimeException("loadStrategy(" + cacheMode + ") err!!" + e.getMessage());
-        }
+        return CacheStrategyRegistry.get(cacheMode);
     }
 
     public static final class Builder {
         private final Context context;
         private File diskDir;
         private long diskMaxSize;
+        private int memoryMaxSize = ViseConfig.CACHE_MEMORY_MAX_SIZE;
         private long cacheTime = ViseConfig.CACHE_NEVER_EXPIRE;
+        private long staleTime;
         private String cacheKey = ApiHost.getHost();
+        private CacheCodec[] codecs;
+        private TieredCache cache;//所有ApiCache共享同一个二级缓存
 
         public Builder(Context context) {
             this.context = context;
@@ -161,12 +293,57 @@ public class ApiCache {
             return this;
         }
 
+        /**
+         * 设置缓存超过缓存时长后仍可作为陈旧数据返回的时长（毫秒），用于CacheMode.STALE_WHILE_REVALIDATE
+         *
+         * @param staleTime
+         * @return
+         */
+        public Builder staleTime(long staleTime) {
+            this.staleTime = staleTime;
+            return this;
+        }
+
+        /**
+         * 设置内存缓存大小（字节），需在第一次build之前设置
+         *
+         * @param memoryMaxSize
+         * @return
+         */
+        public Builder memoryMaxSize(int memoryMaxSize) {
+            this.memoryMaxSize = memoryMaxSize;
+            return this;
+        }
+
+        /**
+         * 设置磁盘缓存写入时使用的编解码器（压缩、加密），需在第一次build之前设置
+         *
+         * @param codecs 如new DeflateCodec(dictionary), new AesCodec(password)
+         * @return
+         */
+        public Builder codecs(CacheCodec... codecs) {
+            this.codecs = codecs;
+            return this;
+        }
+
         public ApiCache build() {
-            if (diskDir == null || diskMaxSize == 0) {
-                return new ApiCache(context, cacheKey, cacheTime);
-            } else {
-                return new ApiCache(context, diskDir, diskMaxSize, cacheKey, cacheTime);
+            return new ApiCache(obtainCache(), cacheKey, cacheTime, staleTime, false);
+        }
+
+        private synchronized TieredCache obtainCache() {
+            if (cache == null || cache.isClosed()) {
+                DiskCache diskCache;
+                if (diskDir == null || diskMaxSize == 0) {
+                    diskCache = new DiskCache(context);
+                } else {
+                    diskCache = new DiskCache(context, diskDir, diskMaxSize);
+                }
+                if (codecs != null) {
+                    diskCache.setCodecs(codecs);
+                }
+                cache = new TieredCache(diskCache, memoryMaxSize);
             }
+            return cache;
         }
 
     }
@@ -0,0 +1,188 @@
+package com.oklib.utils.network.http.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import retrofit2.Retrofit;
+
+/**
+ * @Description: 局部配置对应的Retrofit及接口服务缓存，配置相同的请求复用同一个OkHttpClient、Retrofit和接口代理，
+ * 派生的OkHttpClient都由全局OkHttpClient.newBuilder()生成，共享同一个Dispatcher和ConnectionPool
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 20:10
+ */
+public class ApiClientCache {
+    private static final int MAX_ENTRIES = 16;//最多缓存的局部配置数，按最近使用淘汰
+
+    private static ApiClientCache sInstance;
+
+    private final LinkedHashMap<Key, Entry> entries;
+
+    public static ApiClientCache get() {
+        if (sInstance == null) {
+            synchronized (ApiClientCache.class) {
+                if (sInstance == null) {
+                    sInstance = new ApiClientCache();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private ApiClientCache() {
+        entries = new LinkedHashMap<Key, Entry>(MAX_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * 获取配置对应的Retrofit
+     *
+     * @param key
+     * @return 未缓存时返回null
+     */
+    public synchronized Retrofit getRetrofit(Key key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.retrofit : null;
+    }
+
+    /**
+     * 缓存配置对应的Retrofit，已有缓存时返回已缓存的实例
+     *
+     * @param key
+     * @param retrofit
+     * @return
+     */
+    public synchronized Retrofit putRetrofit(Key key, Retrofit retrofit) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return entry.retrofit;
+        }
+        entries.put(key, new Entry(retrofit));
+        return retrofit;
+    }
+
+    /**
+     * 获取Retrofit对应的接口代理，同一个Retrofit的同一个接口只创建一次
+     *
+     * @param retrofit
+     * @param service
+     * @param <T>
+     * @return
+     */
+    public <T> T create(Retrofit retrofit, Class<T> service) {
+        Entry entry;
+        synchronized (this) {
+            entry = findEntry(retrofit);
+        }
+        if (entry == null) {
+            return retrofit.create(service);
+        }
+        Object proxy = entry.services.get(service);
+        if (proxy == null) {
+            proxy = retrofit.create(service);
+            Object existing = entry.services.putIfAbsent(service, proxy);
+            if (existing != null) {
+                proxy = existing;
+            }
+        }
+        return (T) proxy;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private Entry findEntry(Retrofit retrofit) {
+        for (Entry entry : entries.values()) {
+            if (entry.retrofit == retrofit) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static final class Entry {
+        final Retrofit retrofit;
+        final ConcurrentHashMap<Class<?>, Object> services = new ConcurrentHashMap<>();
+
+        Entry(Retrofit retrofit) {
+            this.retrofit = retrofit;
+        }
+    }
+
+    /**
+     * 局部配置指纹，字符串、数值等按值比较，拦截器、回调等对象按引用比较
+     */
+    public static final class Key {
+        private final List<Object> values = new ArrayList<>();
+        private final List<Object> instances = new ArrayList<>();
+
+        /**
+         * 按值比较的配置项
+         *
+         * @param value
+         * @return
+         */
+        public Key value(Object value) {
+            values.add(value);
+            return this;
+        }
+
+        /**
+         * 按引用比较的配置项
+         *
+         * @param instance
+         * @return
+         */
+        public Key instance(Object instance) {
+            instances.add(instance);
+            return this;
+        }
+
+        public Key instances(List<?> instances) {
+            this.values.add(instances.size());
+            this.instances.addAll(instances);
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            if (!values.equals(other.values) || instances.size() != other.instances.size()) {
+                return false;
+            }
+            for (int i = 0; i < instances.size(); i++) {
+                if (instances.get(i) != other.instances.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = values.hashCode();
+            for (Object instance : instances) {
+                result = 31 * result + System.identityHashCode(instance);
+            }
+            return result;
+        }
+    }
+}
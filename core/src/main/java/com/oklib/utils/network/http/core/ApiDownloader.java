@@ -0,0 +1,485 @@
+package com.oklib.utils.network.http.core;
+
+import com.oklib.utils.Logger.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * @Description: 文件下载，支持Range断点续传和多分段并行下载。数据先写入预分配大小的临时文件，
+ * 定期保存断点，全部分段下载完成并逐段校验后再重命名为目标文件
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 20:40
+ */
+public class ApiDownloader {
+    public static final String TEMP_SUFFIX = ".download";
+    public static final String CHECKPOINT_SUFFIX = ".download.cfg";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;//每个分段最小1MB，文件太小时不分段
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 1000;//断点保存间隔
+    private static final int MAX_RESTARTS = 1;//资源变化时最多重新下载次数
+
+    public interface ProgressListener {
+        /**
+         * 下载进度，可能在多个线程回调
+         *
+         * @param downloadSize 已下载大小
+         * @param totalSize    总大小，未知时为-1
+         */
+        void onProgress(long downloadSize, long totalSize);
+    }
+
+    private final Call.Factory callFactory;
+    private final HttpUrl url;
+    private final File saveFile;
+    private final File tempFile;
+    private final File checkpointFile;
+    private final int threadCount;
+    private final boolean resumable;
+    private final Set<Call> calls = Collections.newSetFromMap(new ConcurrentHashMap<Call, Boolean>());
+    private volatile boolean canceled;//外部取消
+    private volatile boolean stopped;//本次下载有分段失败，停止其它分段
+
+    private DownloadCheckpoint checkpoint;
+    private FileChannel channel;
+    private ProgressListener listener;
+    private long lastCheckpointTime;
+
+    public ApiDownloader(Call.Factory callFactory, HttpUrl url, File saveFile, int threadCount, boolean resumable) {
+        this.callFactory = callFactory;
+        this.url = url;
+        this.saveFile = saveFile;
+        this.tempFile = new File(saveFile.getPath() + TEMP_SUFFIX);
+        this.checkpointFile = new File(saveFile.getPath() + CHECKPOINT_SUFFIX);
+        this.threadCount = Math.max(1, threadCount);
+        this.resumable = resumable;
+    }
+
+    /**
+     * 开始下载，阻塞直到完成、失败或取消
+     *
+     * @param listener
+     * @return 下载完成的文件
+     * @throws IOException
+     */
+    public File download(ProgressListener listener) throws IOException {
+        this.listener = listener;
+        File dir = saveFile.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        for (int restart = 0; ; restart++) {
+            try {
+                return downloadOnce();
+            } catch (ResourceChangedException e) {
+                if (restart >= MAX_RESTARTS) {
+                    throw e;
+                }
+                Logger.i("download resource changed, restart: " + url);
+                reset();
+            }
+        }
+    }
+
+    /**
+     * 取消下载，已下载的数据和断点会保留用于续传
+     */
+    public void cancel() {
+        canceled = true;
+        cancelCalls();
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    private File downloadOnce() throws IOException {
+        stopped = false;
+        calls.clear();
+        checkpoint = resumable && tempFile.exists() ? DownloadCheckpoint.load(checkpointFile, url.toString()) : null;
+        if (checkpoint != null && !checkpoint.rangeSupported) {
+            checkpoint = null;//服务器不支持Range，无法续传
+        }
+        Response probe = null;
+        if (checkpoint == null) {
+            reset();
+            probe = probe();
+            checkpoint = createCheckpoint(probe);
+        }
+        RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+        try {
+            channel = file.getChannel();
+            if (probe != null && checkpoint.totalSize > 0) {
+                file.setLength(checkpoint.totalSize);
+            }
+            if (probe == null) {
+                verifyDownloaded();
+            }
+            notifyProgress();
+            downloadSegments(probe);
+            saveCheckpoint(true);
+            verifySegments();
+        } finally {
+            if (probe != null) {
+                probe.close();
+            }
+            file.close();
+            channel = null;
+            calls.clear();
+        }
+        if (checkpoint.totalSize < 0) {
+            //长度未知时以实际下载长度为准
+            RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");
+            try {
+                raf.setLength(checkpoint.downloadSize());
+            } finally {
+                raf.close();
+            }
+        }
+        if (saveFile.exists() && !saveFile.delete()) {
+            throw new IOException("Could not delete old file " + saveFile);
+        }
+        if (!tempFile.renameTo(saveFile)) {
+            throw new IOException("Could not rename " + tempFile + " to " + saveFile);
+        }
+        checkpointFile.delete();
+        return saveFile;
+    }
+
+    private DownloadCheckpoint createCheckpoint(Response probe) throws IOException {
+        String validator = validatorOf(probe);
+        long totalSize;
+        boolean rangeSupported;
+        if (probe.code() == 206) {
+            totalSize = parseTotalSize(probe.header("Content-Range"));
+            rangeSupported = totalSize > 0;
+        } else {
+            totalSize = probe.body() != null ? probe.body().contentLength() : -1;
+            rangeSupported = false;
+        }
+        int count = 1;
+        if (rangeSupported && threadCount > 1) {
+            count = (int) Math.max(1, Math.min(threadCount, totalSize / MIN_SEGMENT_SIZE));
+        }
+        DownloadCheckpoint.Segment[] segments = new DownloadCheckpoint.Segment[count];
+        if (totalSize <= 0) {
+            segments[0] = new DownloadCheckpoint.Segment(0, 0, -1, 0, 0);
+        } else {
+            long segmentSize = totalSize / count;
+            for (int i = 0; i < count; i++) {
+                long start = i * segmentSize;
+                long end = i == count - 1 ? totalSize - 1 : start + segmentSize - 1;
+                segments[i] = new DownloadCheckpoint.Segment(i, start, end, 0, 0);
+            }
+        }
+        return new DownloadCheckpoint(url.toString(), validator, totalSize, rangeSupported, segments);
+    }
+
+    /**
+     * 续传前核对已下载数据的校验值，不一致的分段从头下载
+     */
+    private void verifyDownloaded() throws IOException {
+        for (DownloadCheckpoint.Segment segment : checkpoint.segments) {
+            long crc = crcOf(segment.start, segment.downloaded(), segment.crc);
+            if (crc != segment.savedCrc) {
+                Logger.i("download checkpoint mismatch, reset " + segment);
+                segment.reset();
+            }
+        }
+    }
+
+    private void downloadSegments(final Response probe) throws IOException {
+        DownloadCheckpoint.Segment[] segments = checkpoint.segments;
+        if (segments.length == 1) {
+            downloadSegment(segments[0], probe);
+            return;
+        }
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(segments.length - 1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 1; i < segments.length; i++) {
+                final DownloadCheckpoint.Segment segment = segments[i];
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            downloadSegment(segment, null);
+                        } catch (IOException e) {
+                            abort(failure, e);
+                        }
+                    }
+                }));
+            }
+            //首个分段复用探测请求的响应
+            try {
+                downloadSegment(segments[0], probe);
+            } catch (IOException e) {
+                abort(failure, e);
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    abort(failure, new IOException(e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            abort(failure, new InterruptedIOException("Download interrupted"));
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * 任一分段失败时停止其它分段，只保留最先出现的异常
+     */
+    private void abort(AtomicReference<IOException> failure, IOException e) {
+        if (failure.compareAndSet(null, e)) {
+            stopped = true;
+            cancelCalls();
+        }
+    }
+
+    private void cancelCalls() {
+        for (Call call : calls) {
+            call.cancel();
+        }
+    }
+
+    private void downloadSegment(DownloadCheckpoint.Segment segment, Response response) throws IOException {
+        if (segment.isComplete()) {
+            if (response != null) {
+                response.close();
+            }
+            return;
+        }
+        if (response == null) {
+            response = execute(newRequest(segment.start + segment.downloaded(), segment.end, checkpoint.validator));
+            if (response.code() != 206) {
+                response.close();
+                throw new ResourceChangedException("Range not satisfied: " + response.code());
+            }
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            response.close();
+            throw new IOException("Response body is null");
+        }
+        InputStream in = body.byteStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        try {
+            while (!segment.isComplete()) {
+                if (canceled || stopped) {
+                    throw new InterruptedIOException("Canceled");
+                }
+                int length = buffer.length;
+                if (segment.end >= 0) {
+                    length = (int) Math.min(length, segment.length() - segment.downloaded());
+                }
+                int count = in.read(buffer, 0, length);
+                if (count == -1) {
+                    break;
+                }
+                byteBuffer.clear().limit(count);
+                long position = segment.start + segment.downloaded();
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+                segment.append(buffer, count);
+                notifyProgress();
+                saveCheckpoint(false);
+            }
+        } finally {
+            response.close();
+        }
+        if (segment.end < 0) {
+            //长度未知或长度为0的下载读取到流结束即完成
+            segment.finish();
+        } else if (!segment.isComplete()) {
+            throw new IOException("Unexpected end of stream: " + segment);
+        }
+    }
+
+    /**
+     * 逐段校验临时文件中的数据与下载时计算的校验值一致
+     */
+    private void verifySegments() throws IOException {
+        for (DownloadCheckpoint.Segment segment : checkpoint.segments) {
+            if (!segment.isComplete()) {
+                throw new IOException("Segment not complete: " + segment);
+            }
+            long crc = crcOf(segment.start, segment.downloaded(), new CRC32());
+            if (crc != segment.crc.getValue()) {
+                reset();
+                throw new IOException("Segment verify failed: " + segment);
+            }
+        }
+    }
+
+    private long crcOf(long start, long length, CRC32 crc) throws IOException {
+        crc.reset();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            byteBuffer.clear().limit((int) Math.min(buffer.length, end - position));
+            int count = channel.read(byteBuffer, position);
+            if (count <= 0) {
+                break;
+            }
+            crc.update(buffer, 0, count);
+            position += count;
+        }
+        return crc.getValue();
+    }
+
+    private void notifyProgress() {
+        if (listener != null) {
+            listener.onProgress(checkpoint.downloadSize(), checkpoint.totalSize);
+        }
+    }
+
+    /**
+     * 保存断点，先记录分段状态再将已写入的数据刷入磁盘，保证断点中记录的数据都已写入磁盘
+     *
+     * @param force 忽略保存间隔
+     */
+    private void saveCheckpoint(boolean force) {
+        if (!resumable || !checkpoint.rangeSupported) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (!force && now - lastCheckpointTime < CHECKPOINT_INTERVAL_MILLIS) {
+                return;
+            }
+            lastCheckpointTime = now;
+        }
+        try {
+            synchronized (checkpointFile) {
+                byte[] snapshot = checkpoint.snapshot();
+                channel.force(false);
+                DownloadCheckpoint.save(checkpointFile, snapshot);
+            }
+        } catch (IOException e) {
+            Logger.e("save download checkpoint failed: " + e);
+        }
+    }
+
+    private Request newRequest(long from, long to, String validator) {
+        Request.Builder builder = new Request.Builder().url(url)
+                .header("Range", "bytes=" + from + "-" + (to >= 0 ? String.valueOf(to) : ""));
+        if (validator != null) {
+            builder.header("If-Range", validator);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 探测请求，带Range: bytes=0-获取总大小并判断是否支持Range；
+     * 空文件无法满足该范围，服务器返回416时改用不带Range的普通请求
+     *
+     * @return
+     * @throws IOException
+     */
+    private Response probe() throws IOException {
+        Response response = call(newRequest(0, -1, null));
+        if (response.code() == 416) {
+            response.close();
+            response = call(new Request.Builder().url(url).build());
+        }
+        return checkSuccessful(response);
+    }
+
+    private Response execute(Request request) throws IOException {
+        return checkSuccessful(call(request));
+    }
+
+    private Response call(Request request) throws IOException {
+        if (canceled || stopped) {
+            throw new InterruptedIOException("Canceled");
+        }
+        //请求在本次下载结束前保持登记，取消时可中断正在读取的响应
+        Call call = callFactory.newCall(request);
+        calls.add(call);
+        return call.execute();
+    }
+
+    private static Response checkSuccessful(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            response.close();
+            throw new IOException("Unexpected response code " + response.code() + " for " + response.request().url());
+        }
+        return response;
+    }
+
+    private void reset() {
+        checkpoint = null;
+        tempFile.delete();
+        checkpointFile.delete();
+    }
+
+    private static String validatorOf(Response response) {
+        String etag = response.header("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.header("Last-Modified");
+    }
+
+    /**
+     * 解析Content-Range中的总大小，例如bytes 0-99/1000
+     */
+    private static long parseTotalSize(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0 || slash == contentRange.length() - 1) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 服务器资源已变化或不再支持Range，需要重新下载
+     */
+    private static final class ResourceChangedException extends IOException {
+        ResourceChangedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,775 @@
+package com.oklib.utils.network.http.core;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.oklib.utils.Logger.Logger;
+import com.oklib.utils.NetworkUtil;
+import com.oklib.utils.network.http.ViseHttp;
+import com.oklib.utils.network.http.exception.CircuitOpenException;
+import com.oklib.utils.network.http.exception.OfflineQueuedException;
+import com.oklib.utils.network.http.interceptor.CircuitBreakerInterceptor;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ProtocolException;
+import java.net.UnknownHostException;
+import java.net.UnknownServiceException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.internal.http.HttpMethod;
+import okio.Buffer;
+
+/**
+ * @Description: 离线发件箱，无网络时把POST、PUT、PATCH、DELETE等请求写入追加式日志，
+ * 网络恢复后按入队顺序分批重放，结果按Tag回调；队列中有未发送的请求时新请求也排在后面，保证顺序。
+ * 重放的请求带有Idempotency-Key（记录id），发出后超时等结果不确定的失败会用同一个Key重试，服务端应据此去重；
+ * Authorization、Cookie等凭证请求头只保存在内存中，不写入日志，进程重启后重放的请求不带凭证，可通过replayInterceptor补充；
+ * 同一进程内重放使用原请求的OkHttpClient配置（超时、域名校验、网络拦截器等），进程重启后使用全局配置和原请求的超时；
+ * 证书、协议等重试也不会成功的错误，或同一请求在本进程内重放失败达到maxAttempts次，放弃该请求并回调onFailed，不再阻塞后面的请求
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 22:50
+ */
+public class ApiOutbox {
+    public static final String HEADER_OUTBOX_TAG = "Outbox-Tag";//标记请求可进入发件箱，值为回调Tag
+    public static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";//重放时的幂等标识，值为记录id
+    public static final int DEFAULT_BATCH_SIZE = 10;//默认每批重放的请求数
+    public static final long DEFAULT_BATCH_INTERVAL_MILLIS = 1000;//默认两批之间的间隔
+    public static final long DEFAULT_RETRY_MILLIS = 30 * 1000;//服务器暂时不可用时再次重放的间隔
+    public static final int DEFAULT_MAX_ATTEMPTS = 10;//默认每个请求最多重放失败的次数
+    public static final long MAX_BODY_SIZE = 1024 * 1024;//超过该长度的请求体不进入发件箱
+    private static final String JOURNAL_FILE = "outbox.journal";
+    private static final int TYPE_ADD = 1;
+    private static final int TYPE_DONE = 2;
+    private static final int COMPACT_THRESHOLD = 64;//已完成记录超过该数量时压缩日志
+    private static final String[] CREDENTIAL_HEADERS = {"Authorization", "Proxy-Authorization", "Cookie"};
+
+    private static ApiOutbox sInstance;
+
+    private final Context context;
+    private final File journalFile;
+    private final LinkedHashMap<String, Record> pending = new LinkedHashMap<>();//由this保护
+    private final Map<String, Callback> callbacks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean replayScheduled = new AtomicBoolean();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private FileOutputStream journalStream;//由this保护
+    private DataOutputStream journal;//由this保护
+    private boolean loaded;
+    private int doneCount;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile long batchIntervalMillis = DEFAULT_BATCH_INTERVAL_MILLIS;
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile Interceptor replayInterceptor;
+
+    private final Runnable replayTask = new Runnable() {
+        @Override
+        public void run() {
+            replayScheduled.set(false);
+            replayPending();
+        }
+    };
+
+    public interface Callback {
+        /**
+         * 重放的请求收到响应
+         *
+         * @param record 请求记录
+         * @param code   HTTP状态码
+         * @param body   响应内容
+         */
+        void onReplayed(Record record, int code, String body);
+
+        /**
+         * 重放的请求无法成功，已从发件箱中移除
+         *
+         * @param record 请求记录
+         * @param e      最后一次失败的原因
+         */
+        void onFailed(Record record, Throwable e);
+    }
+
+    public static ApiOutbox get() {
+        if (sInstance == null) {
+            synchronized (ApiOutbox.class) {
+                if (sInstance == null) {
+                    sInstance = new ApiOutbox(ViseHttp.getContext());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private ApiOutbox(Context context) {
+        this.context = context;
+        this.journalFile = new File(context.getFilesDir(), JOURNAL_FILE);
+        //注册后会立即收到一次当前网络状态，上次进程遗留的请求在有网络时开始重放
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (NetworkUtil.isConnected(context)) {
+                    replay();
+                }
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    /**
+     * 设置分批重放的参数，避免网络恢复时集中发出大量请求
+     *
+     * @param batchSize
+     * @param batchIntervalMillis
+     * @return
+     */
+    public ApiOutbox batch(int batchSize, long batchIntervalMillis) {
+        this.batchSize = Math.max(1, batchSize);
+        this.batchIntervalMillis = Math.max(0, batchIntervalMillis);
+        return this;
+    }
+
+    /**
+     * 设置每个请求最多重放失败的次数，达到后放弃该请求，避免一直失败的请求阻塞后面的请求；
+     * 次数只在本进程内累计，服务器返回5xx、408、429也计为失败
+     *
+     * @param maxAttempts
+     * @return
+     */
+    public ApiOutbox maxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        return this;
+    }
+
+    /**
+     * 设置重放时额外执行的拦截器，如为进程重启后重放的请求补充凭证
+     *
+     * @param interceptor
+     * @return
+     */
+    public ApiOutbox replayInterceptor(Interceptor interceptor) {
+        this.replayInterceptor = interceptor;
+        return this;
+    }
+
+    /**
+     * 注册Tag对应的重放结果回调，在主线程回调
+     *
+     * @param tag
+     * @param callback
+     */
+    public void register(String tag, Callback callback) {
+        if (tag != null && callback != null) {
+            callbacks.put(tag, callback);
+        }
+    }
+
+    public void unregister(String tag) {
+        if (tag != null) {
+            callbacks.remove(tag);
+        }
+    }
+
+    /**
+     * 在最后添加发件箱拦截器并创建OkHttpClient，由BaseRequest.outbox开启后调用；
+     * 写入发件箱的请求已经过全部应用拦截器，重放时使用去掉应用拦截器的同一配置；
+     * 熔断拦截移到发件箱之后，熔断期间的请求进入发件箱而不是直接失败，放入发件箱也不会被计为失败
+     *
+     * @param builder
+     * @return
+     */
+    public OkHttpClient install(OkHttpClient.Builder builder) {
+        List<Interceptor> circuitBreakers = new ArrayList<>();
+        Iterator<Interceptor> iterator = builder.interceptors().iterator();
+        while (iterator.hasNext()) {
+            Interceptor interceptor = iterator.next();
+            if (interceptor instanceof CircuitBreakerInterceptor) {
+                circuitBreakers.add(interceptor);
+                iterator.remove();
+            }
+        }
+        OutboxInterceptor outboxInterceptor = new OutboxInterceptor();
+        builder.addInterceptor(outboxInterceptor);
+        builder.interceptors().addAll(circuitBreakers);
+        OkHttpClient client = builder.build();
+        OkHttpClient.Builder replayBuilder = client.newBuilder();
+        replayBuilder.interceptors().clear();
+        outboxInterceptor.replayClient = replayBuilder.build();
+        return client;
+    }
+
+    public synchronized int pendingCount() {
+        ensureLoaded();
+        return pending.size();
+    }
+
+    public synchronized List<Record> getPending() {
+        ensureLoaded();
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * 放弃未发送的请求
+     *
+     * @param id
+     */
+    public synchronized void remove(String id) {
+        ensureLoaded();
+        if (pending.containsKey(id)) {
+            complete(id);
+        }
+    }
+
+    /**
+     * 尝试重放未发送的请求
+     */
+    public void replay() {
+        if (replayScheduled.compareAndSet(false, true)) {
+            executor.execute(replayTask);
+        }
+    }
+
+    /**
+     * 写入发件箱
+     *
+     * @param tag
+     * @param request
+     * @param chain       用于记录原请求的超时
+     * @param replayClient 同一进程内重放使用的OkHttpClient
+     * @return 请求体过大无法保存时返回null
+     * @throws IOException
+     */
+    synchronized String enqueue(String tag, Request request, Interceptor.Chain chain, OkHttpClient replayClient)
+            throws IOException {
+        ensureLoaded();
+        byte[] body = null;
+        String contentType = null;
+        RequestBody requestBody = request.body();
+        if (requestBody != null) {
+            long length = requestBody.contentLength();
+            if (length < 0 || length > MAX_BODY_SIZE) {
+                return null;
+            }
+            Buffer buffer = new Buffer();
+            requestBody.writeTo(buffer);
+            body = buffer.readByteArray();
+            contentType = requestBody.contentType() != null ? requestBody.contentType().toString() : null;
+        }
+        Headers.Builder headers = new Headers.Builder();
+        Headers.Builder credentials = new Headers.Builder();
+        Headers requestHeaders = request.headers();
+        for (int i = 0; i < requestHeaders.size(); i++) {
+            String name = requestHeaders.name(i);
+            if (isCredential(name)) {
+                credentials.add(name, requestHeaders.value(i));
+            } else {
+                headers.add(name, requestHeaders.value(i));
+            }
+        }
+        Record record = new Record(UUID.randomUUID().toString(), tag, request.method(), request.url().toString(),
+                headers.build(), contentType, body, System.currentTimeMillis(),
+                new int[]{chain.connectTimeoutMillis(), chain.readTimeoutMillis(), chain.writeTimeoutMillis()},
+                credentials.build());
+        record.client = replayClient;
+        append(encodeAdd(record), true);
+        pending.put(record.id, record);
+        return record.id;
+    }
+
+    synchronized boolean hasPending() {
+        ensureLoaded();
+        return !pending.isEmpty();
+    }
+
+    private void replayPending() {
+        while (NetworkUtil.isConnected(context)) {
+            List<Record> batch = new ArrayList<>();
+            synchronized (this) {
+                ensureLoaded();
+                Iterator<Record> iterator = pending.values().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    batch.add(iterator.next());
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (Record record : batch) {
+                int code;
+                String body;
+                try {
+                    Response response = replayClient(record).newCall(record.toRequest()).execute();
+                    try {
+                        code = response.code();
+                        ResponseBody responseBody = response.body();
+                        body = responseBody != null ? responseBody.string() : null;
+                    } finally {
+                        response.close();
+                    }
+                } catch (IOException e) {
+                    if (isPermanent(e) || ++record.attempts >= maxAttempts) {
+                        Logger.e("replay outbox request failed, give up " + record + ": " + e);
+                        fail(record, e);
+                        continue;
+                    }
+                    //保持顺序，等待网络恢复或稍后再试；请求可能已发出，重试时带同一个Idempotency-Key
+                    Logger.e("replay outbox request failed: " + e);
+                    scheduleRetry();
+                    return;
+                } catch (RuntimeException e) {
+                    //记录中的地址等无法构造请求，重试也不会成功
+                    Logger.e("replay outbox request failed, give up " + record + ": " + e);
+                    fail(record, e);
+                    continue;
+                }
+                if ((code >= 500 || code == 408 || code == 429) && ++record.attempts < maxAttempts) {
+                    //服务器暂时不可用，稍后按原顺序再试
+                    scheduleRetry();
+                    return;
+                }
+                synchronized (this) {
+                    complete(record.id);
+                }
+                deliver(record, code, body);
+            }
+            if (batchIntervalMillis > 0) {
+                try {
+                    Thread.sleep(batchIntervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private OkHttpClient replayClient(Record record) {
+        OkHttpClient client = record.client;
+        if (client == null) {
+            //进程重启后没有原请求的OkHttpClient，使用全局配置和记录的超时
+            OkHttpClient.Builder builder = ViseHttp.getOkHttpClient().newBuilder();
+            if (record.timeouts[0] > 0) {
+                builder.connectTimeout(record.timeouts[0], TimeUnit.MILLISECONDS);
+            }
+            if (record.timeouts[1] > 0) {
+                builder.readTimeout(record.timeouts[1], TimeUnit.MILLISECONDS);
+            }
+            if (record.timeouts[2] > 0) {
+                builder.writeTimeout(record.timeouts[2], TimeUnit.MILLISECONDS);
+            }
+            client = builder.build();
+            record.client = client;
+        }
+        Interceptor interceptor = replayInterceptor;
+        return interceptor != null ? client.newBuilder().addInterceptor(interceptor).build() : client;
+    }
+
+    /**
+     * 证书、协议错误等重试也不会成功的失败
+     *
+     * @param e
+     * @return
+     */
+    private static boolean isPermanent(IOException e) {
+        return e instanceof SSLHandshakeException || e instanceof SSLPeerUnverifiedException
+                || e instanceof ProtocolException || e instanceof UnknownServiceException;
+    }
+
+    private void fail(final Record record, final Throwable e) {
+        synchronized (this) {
+            complete(record.id);
+        }
+        if (record.tag == null) {
+            return;
+        }
+        final Callback callback = callbacks.get(record.tag);
+        if (callback == null) {
+            Logger.d("no outbox callback for tag " + record.tag + ", failure dropped");
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFailed(record, e);
+            }
+        });
+    }
+
+    private static boolean isCredential(String name) {
+        for (String credential : CREDENTIAL_HEADERS) {
+            if (credential.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleRetry() {
+        if (replayScheduled.compareAndSet(false, true)) {
+            executor.schedule(replayTask, DEFAULT_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void deliver(final Record record, final int code, final String body) {
+        if (record.tag == null) {
+            return;
+        }
+        final Callback callback = callbacks.get(record.tag);
+        if (callback == null) {
+            Logger.d("no outbox callback for tag " + record.tag + ", result dropped");
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onReplayed(record, code, body);
+            }
+        });
+    }
+
+    /**
+     * 移除请求并同步写入完成记录，避免进程退出后已完成的请求再次重放
+     *
+     * @param id
+     */
+    private void complete(String id) {
+        pending.remove(id);
+        try {
+            append(encodeDone(id), true);
+            if (++doneCount >= COMPACT_THRESHOLD) {
+                compact();
+            }
+        } catch (IOException e) {
+            Logger.e("write outbox journal failed: " + e);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!journalFile.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long checksum = in.readLong();
+                if (length <= 0 || length > MAX_BODY_SIZE * 2) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if (crc.getValue() != checksum) {
+                    //写入一半时进程退出，丢弃损坏的尾部
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                int type = record.readByte();
+                if (type == TYPE_ADD) {
+                    Record added = decodeAdd(record);
+                    pending.put(added.id, added);
+                } else if (type == TYPE_DONE) {
+                    pending.remove(record.readUTF());
+                    doneCount++;
+                }
+            }
+        } catch (IOException e) {
+            Logger.e("read outbox journal failed: " + e);
+        } finally {
+            closeQuietly(in);
+        }
+        try {
+            //重写日志，去掉已完成和损坏的记录
+            compact();
+        } catch (IOException e) {
+            Logger.e("compact outbox journal failed: " + e);
+        }
+    }
+
+    private void append(byte[] payload, boolean sync) throws IOException {
+        if (journal == null) {
+            journal = openJournal(true);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        journal.writeInt(payload.length);
+        journal.writeLong(crc.getValue());
+        journal.write(payload);
+        journal.flush();
+        if (sync) {
+            journalStream.getFD().sync();
+        }
+    }
+
+    private DataOutputStream openJournal(boolean append) throws IOException {
+        journalStream = new FileOutputStream(journalFile, append);
+        return new DataOutputStream(journalStream);
+    }
+
+    private void compact() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        doneCount = 0;
+        if (pending.isEmpty()) {
+            journalFile.delete();
+            return;
+        }
+        File temp = new File(journalFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+        try {
+            CRC32 crc = new CRC32();
+            for (Record record : pending.values()) {
+                byte[] payload = encodeAdd(record);
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                out.writeInt(payload.length);
+                out.writeLong(crc.getValue());
+                out.write(payload);
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(journalFile)) {
+            journalFile.delete();
+            if (!temp.renameTo(journalFile)) {
+                throw new IOException("Could not compact outbox journal " + journalFile);
+            }
+        }
+    }
+
+    private static byte[] encodeAdd(Record record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_ADD);
+        out.writeUTF(record.id);
+        out.writeUTF(record.tag != null ? record.tag : "");
+        out.writeUTF(record.method);
+        out.writeUTF(record.url);
+        out.writeLong(record.createTime);
+        for (int timeout : record.timeouts) {
+            out.writeInt(timeout);
+        }
+        //凭证请求头不写入日志
+        out.writeInt(record.headers.size());
+        for (int i = 0; i < record.headers.size(); i++) {
+            out.writeUTF(record.headers.name(i));
+            out.writeUTF(record.headers.value(i));
+        }
+        out.writeUTF(record.contentType != null ? record.contentType : "");
+        out.writeInt(record.body != null ? record.body.length : -1);
+        if (record.body != null) {
+            out.write(record.body);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Record decodeAdd(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        String tag = in.readUTF();
+        String method = in.readUTF();
+        String url = in.readUTF();
+        long createTime = in.readLong();
+        int[] timeouts = {in.readInt(), in.readInt(), in.readInt()};
+        Headers.Builder headers = new Headers.Builder();
+        int headerCount = in.readInt();
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(in.readUTF(), in.readUTF());
+        }
+        String contentType = in.readUTF();
+        int bodyLength = in.readInt();
+        byte[] body = null;
+        if (bodyLength >= 0) {
+            body = new byte[bodyLength];
+            in.readFully(body);
+        }
+        return new Record(id, tag.length() > 0 ? tag : null, method, url, headers.build(),
+                contentType.length() > 0 ? contentType : null, body, createTime, timeouts, null);
+    }
+
+    private static byte[] encodeDone(String id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_DONE);
+        out.writeUTF(id);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 发件箱中的请求
+     */
+    public static final class Record {
+        private final String id;
+        private final String tag;
+        private final String method;
+        private final String url;
+        private final Headers headers;
+        private final String contentType;
+        private final byte[] body;
+        private final long createTime;
+        private final int[] timeouts;//连接、读取、写入超时（毫秒）
+        private final Headers credentials;//只在内存中，从日志恢复的记录为null
+        private volatile OkHttpClient client;//只在内存中
+        private int attempts;//本进程内重放失败的次数，只在重放线程中访问
+
+        Record(String id, String tag, String method, String url, Headers headers, String contentType, byte[] body,
+               long createTime, int[] timeouts, Headers credentials) {
+            this.id = id;
+            this.tag = tag;
+            this.method = method;
+            this.url = url;
+            this.headers = headers;
+            this.contentType = contentType;
+            this.body = body;
+            this.createTime = createTime;
+            this.timeouts = timeouts;
+            this.credentials = credentials;
+        }
+
+        Request toRequest() {
+            RequestBody requestBody = null;
+            if (body != null) {
+                requestBody = RequestBody.create(contentType != null ? MediaType.parse(contentType) : null, body);
+            } else if (HttpMethod.requiresRequestBody(method)) {
+                requestBody = RequestBody.create(null, new byte[0]);
+            }
+            Request.Builder builder = new Request.Builder().url(url).headers(headers).method(method, requestBody);
+            if (credentials != null) {
+                for (int i = 0; i < credentials.size(); i++) {
+                    builder.addHeader(credentials.name(i), credentials.value(i));
+                }
+            }
+            if (headers.get(HEADER_IDEMPOTENCY_KEY) == null) {
+                builder.header(HEADER_IDEMPOTENCY_KEY, id);
+            }
+            return builder.build();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public long getCreateTime() {
+            return createTime;
+        }
+
+        @Override
+        public String toString() {
+            return "Record{" + id + ", " + method + " " + url + ", tag=" + tag + "}";
+        }
+    }
+
+    /**
+     * 无网络、连接失败、域名熔断或发件箱中还有未发送的请求时，将请求写入发件箱并以OfflineQueuedException结束本次调用
+     */
+    private final class OutboxInterceptor implements Interceptor {
+        private volatile OkHttpClient replayClient;//由install设置
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            String tag = request.header(HEADER_OUTBOX_TAG);
+            if (tag == null) {
+                return chain.proceed(request);
+            }
+            request = request.newBuilder().removeHeader(HEADER_OUTBOX_TAG).build();
+            if (tag.length() == 0) {
+                tag = null;
+            }
+            if (NetworkUtil.isConnected(context) && !hasPending()) {
+                try {
+                    return chain.proceed(request);
+                } catch (ConnectException | UnknownHostException | CircuitOpenException e) {
+                    //请求未发出，可以安全地放入发件箱
+                    String id = enqueue(tag, request, chain, replayClient);
+                    if (id == null) {
+                        throw e;
+                    }
+                    //网络仍然连接，不会收到网络变化通知，稍后再重放
+                    scheduleRetry();
+                    throw new OfflineQueuedException(id, tag, e);
+                }
+            }
+            String id = enqueue(tag, request, chain, replayClient);
+            if (id == null) {
+                //请求体过大无法保存，有网络时直接发送
+                if (NetworkUtil.isConnected(context)) {
+                    return chain.proceed(request);
+                }
+                throw new ConnectException("No network connection");
+            }
+            replay();
+            throw new OfflineQueuedException(id, tag, null);
+        }
+    }
+}
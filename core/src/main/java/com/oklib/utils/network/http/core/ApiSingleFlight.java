@@ -0,0 +1,75 @@
+package com.oklib.utils.network.http.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Action;
+
+/**
+ * @Description: 相同请求合并，同一Key的请求在执行期间只发起一次，所有订阅者共享同一个上游结果
+ * （包括缓存写入），请求结束后自动移除
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 14:35
+ */
+public class ApiSingleFlight {
+    private static ApiSingleFlight sInstance;
+
+    private final ConcurrentHashMap<String, Observable<?>> flights;
+
+    public static ApiSingleFlight get() {
+        if (sInstance == null) {
+            synchronized (ApiSingleFlight.class) {
+                if (sInstance == null) {
+                    sInstance = new ApiSingleFlight();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private ApiSingleFlight() {
+        flights = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 合并相同Key的请求，订阅时如已有相同请求在执行则直接加入，并收到其已发射和后续发射的数据；
+     * 所有订阅者都取消后上游请求也会被取消
+     *
+     * @param key    请求标识
+     * @param source 上游请求
+     * @param <T>
+     * @return
+     */
+    public <T> Observable<T> share(final String key, final Observable<T> source) {
+        return Observable.defer(new Callable<ObservableSource<T>>() {
+            @Override
+            public ObservableSource<T> call() throws Exception {
+                Observable<T> flight = (Observable<T>) flights.get(key);
+                if (flight != null) {
+                    return flight;
+                }
+                final Observable<?>[] holder = new Observable<?>[1];
+                Observable<T> candidate = source.doFinally(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        flights.remove(key, holder[0]);
+                    }
+                }).replay().refCount();
+                holder[0] = candidate;
+                Observable<T> existing = (Observable<T>) flights.putIfAbsent(key, candidate);
+                return existing != null ? existing : candidate;
+            }
+        });
+    }
+
+    /**
+     * 当前正在执行的合并请求数
+     *
+     * @return
+     */
+    public int inFlightCount() {
+        return flights.size();
+    }
+}
@@ -0,0 +1,122 @@
+package com.oklib.utils.network.http.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Description: 按域名熔断，连续失败达到阈值后在一段时间内直接拒绝该域名的请求，
+ * 到期后放行一个探测请求，成功则恢复，失败则继续熔断
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 22:20
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;//默认连续失败阈值
+    public static final long DEFAULT_OPEN_MILLIS = 30 * 1000;//默认熔断时间
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final ConcurrentHashMap<String, HostState> states = new ConcurrentHashMap<>();
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    /**
+     * 是否允许向该域名发起请求，熔断期间返回false，熔断到期后只允许一个探测请求
+     *
+     * @param host
+     * @return
+     */
+    public boolean allowRequest(String host) {
+        HostState state = states.get(host);
+        return state == null || state.allowRequest(System.currentTimeMillis());
+    }
+
+    public void onSuccess(String host) {
+        HostState state = states.get(host);
+        if (state != null) {
+            state.onSuccess();
+        }
+    }
+
+    public void onFailure(String host) {
+        HostState state = states.get(host);
+        if (state == null) {
+            HostState created = new HostState();
+            state = states.putIfAbsent(host, created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        state.onFailure(System.currentTimeMillis());
+    }
+
+    /**
+     * 请求被取消，既不算成功也不算失败，释放探测名额
+     *
+     * @param host
+     */
+    public void onCanceled(String host) {
+        HostState state = states.get(host);
+        if (state != null) {
+            state.onCanceled();
+        }
+    }
+
+    /**
+     * 该域名剩余的熔断时间，未熔断时返回0
+     *
+     * @param host
+     * @return
+     */
+    public long remainingOpenMillis(String host) {
+        HostState state = states.get(host);
+        return state == null ? 0 : state.remainingOpenMillis(System.currentTimeMillis());
+    }
+
+    public void reset() {
+        states.clear();
+    }
+
+    private final class HostState {
+        private int failures;
+        private long openUntil;
+        private boolean probing;//熔断到期后是否已放行探测请求
+
+        synchronized boolean allowRequest(long now) {
+            if (failures < failureThreshold) {
+                return true;
+            }
+            if (now < openUntil || probing) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            failures = 0;
+            probing = false;
+        }
+
+        synchronized void onCanceled() {
+            probing = false;
+        }
+
+        synchronized void onFailure(long now) {
+            failures++;
+            if (failures >= failureThreshold) {
+                openUntil = now + openMillis;
+                probing = false;
+            }
+        }
+
+        synchronized long remainingOpenMillis(long now) {
+            return failures < failureThreshold ? 0 : Math.max(0, openUntil - now);
+        }
+    }
+}
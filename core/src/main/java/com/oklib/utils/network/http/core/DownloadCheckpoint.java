@@ -0,0 +1,208 @@
+package com.oklib.utils.network.http.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * @Description: 下载断点，记录资源校验标识、总大小和每个分段已下载的长度及校验值，
+ * 写入时先写临时文件再重命名，保证断点文件完整
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 20:40
+ */
+final class DownloadCheckpoint {
+    private static final int MAGIC = 0x4F4B4450;//OKDP
+
+    final String url;
+    final String validator;//ETag或Last-Modified，用于If-Range
+    final long totalSize;//-1表示未知
+    final boolean rangeSupported;
+    final Segment[] segments;
+
+    DownloadCheckpoint(String url, String validator, long totalSize, boolean rangeSupported, Segment[] segments) {
+        this.url = url;
+        this.validator = validator;
+        this.totalSize = totalSize;
+        this.rangeSupported = rangeSupported;
+        this.segments = segments;
+    }
+
+    long downloadSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.downloaded();
+        }
+        return size;
+    }
+
+    boolean isComplete() {
+        for (Segment segment : segments) {
+            if (!segment.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取断点，断点不存在、已损坏或下载地址不一致时返回null
+     *
+     * @param file
+     * @param url
+     * @return
+     */
+    static DownloadCheckpoint load(File file, String url) {
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            String savedUrl = in.readUTF();
+            String validator = in.readUTF();
+            long totalSize = in.readLong();
+            boolean rangeSupported = in.readBoolean();
+            int count = in.readInt();
+            if (!url.equals(savedUrl) || count <= 0) {
+                return null;
+            }
+            Segment[] segments = new Segment[count];
+            for (int i = 0; i < count; i++) {
+                segments[i] = new Segment(i, in.readLong(), in.readLong(), in.readLong(), in.readLong());
+            }
+            return new DownloadCheckpoint(savedUrl, validator.length() > 0 ? validator : null, totalSize, rangeSupported, segments);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * 记录当前断点状态，之后分段继续下载不影响已记录的内容
+     *
+     * @return
+     * @throws IOException
+     */
+    byte[] snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeUTF(url);
+            out.writeUTF(validator != null ? validator : "");
+            out.writeLong(totalSize);
+            out.writeBoolean(rangeSupported);
+            out.writeInt(segments.length);
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    out.writeLong(segment.start);
+                    out.writeLong(segment.end);
+                    out.writeLong(segment.downloaded);
+                    out.writeLong(segment.crc.getValue());
+                }
+            }
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 保存断点，调用前需保证快照中记录的数据已写入磁盘
+     *
+     * @param file
+     * @param snapshot
+     * @throws IOException
+     */
+    static void save(File file, byte[] snapshot) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(snapshot);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not save checkpoint " + file);
+            }
+        }
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 下载分段，[start, end]闭区间，end为-1表示长度未知
+     */
+    static final class Segment {
+        final int index;
+        final long start;
+        long end;
+        long downloaded;
+        boolean finished;//长度未知的分段已读取到流结束
+        final CRC32 crc = new CRC32();
+        final long savedCrc;//断点记录的校验值，恢复时用于核对已下载数据
+
+        Segment(int index, long start, long end, long downloaded, long savedCrc) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.downloaded = downloaded;
+            this.savedCrc = savedCrc;
+        }
+
+        synchronized long downloaded() {
+            return downloaded;
+        }
+
+        synchronized boolean isComplete() {
+            return finished || end >= 0 && downloaded >= end - start + 1;
+        }
+
+        /**
+         * 长度未知的分段读取到流结束，以实际下载长度为准，空文件时长度为0
+         */
+        synchronized void finish() {
+            end = start + downloaded - 1;
+            finished = true;
+        }
+
+        synchronized void append(byte[] buffer, int length) {
+            crc.update(buffer, 0, length);
+            downloaded += length;
+        }
+
+        synchronized void reset() {
+            crc.reset();
+            downloaded = 0;
+            finished = false;
+        }
+
+        long length() {
+            return end - start + 1;
+        }
+
+        @Override
+        public String toString() {
+            return "Segment{" + index + ", " + start + "-" + end + ", downloaded=" + downloaded + "}";
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.oklib.utils.network.http.core;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+
+/**
+ * @Description: 传输进度分发，按时间和字节粒度过滤进度更新；需要在主线程回调的传输合并到同一帧，
+ * 每帧只向主线程投递一个Runnable，多个文件同时上传下载时不会占满主线程消息队列
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 21:20
+ */
+public class ProgressDispatcher {
+    public static final long DEFAULT_INTERVAL_MILLIS = 100;//默认最小回调间隔
+    public static final long DEFAULT_MIN_BYTES = 0;//默认最小回调字节数
+    private static final long FRAME_MILLIS = 16;//主线程合并回调的帧间隔
+
+    private static ProgressDispatcher sInstance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Transfer> pending = new ArrayList<>();
+    private final ArrayList<Transfer> dispatching = new ArrayList<>();//只在主线程访问
+    private boolean posted;
+    private volatile long defaultIntervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private volatile long defaultMinBytes = DEFAULT_MIN_BYTES;
+
+    private final Runnable frame = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (pending) {
+                for (int i = 0; i < pending.size(); i++) {
+                    Transfer transfer = pending.get(i);
+                    transfer.queued = false;
+                    dispatching.add(transfer);
+                }
+                pending.clear();
+                posted = false;
+            }
+            for (int i = 0; i < dispatching.size(); i++) {
+                dispatching.get(i).deliver();
+            }
+            dispatching.clear();
+        }
+    };
+
+    public interface Callback {
+        /**
+         * 进度回调
+         *
+         * @param current 已传输大小
+         * @param total   总大小，未知时小于等于0
+         */
+        void onProgress(long current, long total);
+    }
+
+    public static ProgressDispatcher get() {
+        if (sInstance == null) {
+            synchronized (ProgressDispatcher.class) {
+                if (sInstance == null) {
+                    sInstance = new ProgressDispatcher();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private ProgressDispatcher() {
+    }
+
+    /**
+     * 设置默认回调粒度，两次回调间至少间隔intervalMillis且至少传输minBytes，传输完成时总会回调
+     *
+     * @param intervalMillis
+     * @param minBytes
+     * @return
+     */
+    public ProgressDispatcher granularity(long intervalMillis, long minBytes) {
+        this.defaultIntervalMillis = Math.max(0, intervalMillis);
+        this.defaultMinBytes = Math.max(0, minBytes);
+        return this;
+    }
+
+    /**
+     * 创建在主线程回调、使用默认粒度的传输
+     *
+     * @param callback
+     * @return
+     */
+    public Transfer newTransfer(Callback callback) {
+        return new Transfer(this, callback, defaultIntervalMillis, defaultMinBytes, true);
+    }
+
+    /**
+     * 创建传输
+     *
+     * @param callback
+     * @param intervalMillis 最小回调间隔
+     * @param minBytes       最小回调字节数
+     * @param mainThread     是否合并到主线程回调，否则在更新进度的线程直接回调
+     * @return
+     */
+    public Transfer newTransfer(Callback callback, long intervalMillis, long minBytes, boolean mainThread) {
+        return new Transfer(this, callback, intervalMillis, minBytes, mainThread);
+    }
+
+    private void schedule(Transfer transfer) {
+        synchronized (pending) {
+            if (!transfer.queued) {
+                transfer.queued = true;
+                pending.add(transfer);
+            }
+            if (!posted) {
+                posted = true;
+                handler.postDelayed(frame, FRAME_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * 单个传输的进度，只保存最新值，更新时不分配对象
+     */
+    public static final class Transfer {
+        private final ProgressDispatcher dispatcher;
+        private final Callback callback;
+        private final long intervalNanos;
+        private final long minBytes;
+        private final boolean mainThread;
+
+        private long current;
+        private long total;
+        private long lastTime;
+        private long lastBytes = -1;
+        private long deliveredCurrent = -1;
+        private long deliveredTotal;
+        boolean queued;//由dispatcher.pending保护
+
+        Transfer(ProgressDispatcher dispatcher, Callback callback, long intervalMillis, long minBytes, boolean mainThread) {
+            if (callback == null) {
+                throw new NullPointerException("this callback must not null.");
+            }
+            this.dispatcher = dispatcher;
+            this.callback = callback;
+            this.intervalNanos = Math.max(0, intervalMillis) * 1000000L;
+            this.minBytes = Math.max(0, minBytes);
+            this.mainThread = mainThread;
+        }
+
+        /**
+         * 更新进度，未达到回调粒度时只记录不回调，可在任意线程调用
+         *
+         * @param current
+         * @param total
+         */
+        public void update(long current, long total) {
+            synchronized (this) {
+                this.current = current;
+                this.total = total;
+                long now = System.nanoTime();
+                boolean complete = total > 0 && current >= total;
+                if (!complete && lastBytes >= 0
+                        && (now - lastTime < intervalNanos || current - lastBytes < minBytes)) {
+                    return;
+                }
+                lastTime = now;
+                lastBytes = current;
+                if (!mainThread) {
+                    deliverLocked();
+                    return;
+                }
+            }
+            dispatcher.schedule(this);
+        }
+
+        /**
+         * 传输结束，回调最后一次进度
+         */
+        public void finish() {
+            synchronized (this) {
+                if (!mainThread) {
+                    deliverLocked();
+                    return;
+                }
+            }
+            dispatcher.schedule(this);
+        }
+
+        void deliver() {
+            long current;
+            long total;
+            synchronized (this) {
+                if (this.current == deliveredCurrent && this.total == deliveredTotal) {
+                    return;
+                }
+                current = this.current;
+                total = this.total;
+                deliveredCurrent = current;
+                deliveredTotal = total;
+            }
+            callback.onProgress(current, total);
+        }
+
+        private void deliverLocked() {
+            if (current == deliveredCurrent && total == deliveredTotal) {
+                return;
+            }
+            deliveredCurrent = current;
+            deliveredTotal = total;
+            callback.onProgress(current, total);
+        }
+    }
+}
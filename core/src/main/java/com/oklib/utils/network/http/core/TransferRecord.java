@@ -0,0 +1,109 @@
+package com.oklib.utils.network.http.core;
+
+import java.util.UUID;
+
+/**
+ * @Description: 传输任务记录，下载任务会持久化，进程重启后可据此恢复未完成的下载
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 21:50
+ */
+public class TransferRecord {
+    public static final String TYPE_DOWNLOAD = "download";
+    public static final String TYPE_UPLOAD = "upload";
+
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    private String id;
+    private String type;
+    private String tag;
+    private String host;
+    private int priority;
+    private long createTime;
+    //下载任务恢复所需信息
+    private String url;
+    private String rootName;
+    private String dirName;
+    private String fileName;
+    private int threadCount;
+
+    public TransferRecord() {
+    }
+
+    public TransferRecord(String id, String type, Object tag, String host, int priority) {
+        this.id = id != null ? id : UUID.randomUUID().toString();
+        this.type = type;
+        this.tag = tag instanceof String ? (String) tag : null;
+        this.host = host;
+        this.priority = priority;
+        this.createTime = System.currentTimeMillis();
+    }
+
+    public TransferRecord download(String url, String rootName, String dirName, String fileName, int threadCount) {
+        this.url = url;
+        this.rootName = rootName;
+        this.dirName = dirName;
+        this.fileName = fileName;
+        this.threadCount = threadCount;
+        return this;
+    }
+
+    /**
+     * 是否可在进程重启后恢复
+     *
+     * @return
+     */
+    public boolean isRestorable() {
+        return TYPE_DOWNLOAD.equals(type) && url != null && fileName != null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getRootName() {
+        return rootName;
+    }
+
+    public String getDirName() {
+        return dirName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferRecord{" + type + ", id=" + id + ", tag=" + tag + ", host=" + host + ", priority=" + priority + "}";
+    }
+}
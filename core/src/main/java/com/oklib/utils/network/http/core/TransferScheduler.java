@@ -0,0 +1,547 @@
+package com.oklib.utils.network.http.core;
+
+import com.google.gson.reflect.TypeToken;
+import com.oklib.utils.Logger.Logger;
+import com.oklib.utils.network.common.GsonUtil;
+import com.oklib.utils.network.http.ViseHttp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Consumer;
+
+/**
+ * @Description: 上传下载任务调度，按优先级排队，限制全局和每个域名同时执行的任务数，
+ * 支持按Tag暂停、恢复、取消；下载任务记录会持久化，进程重启后可通过getPersistedRecords恢复
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 21:50
+ */
+public class TransferScheduler {
+    public static final int DEFAULT_MAX_CONCURRENT = 3;//默认全局最大同时执行数
+    public static final int DEFAULT_MAX_PER_HOST = 2;//默认每个域名最大同时执行数
+    private static final String QUEUE_FILE = "transfer_queue.json";
+
+    private static TransferScheduler sInstance;
+
+    private final TreeSet<Task> queued = new TreeSet<>(new Comparator<Task>() {
+        @Override
+        public int compare(Task a, Task b) {
+            if (a.record.getPriority() != b.record.getPriority()) {
+                return a.record.getPriority() > b.record.getPriority() ? -1 : 1;
+            }
+            return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+        }
+    });
+    private final List<Task> running = new ArrayList<>();
+    private final List<Task> paused = new ArrayList<>();
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+    //上次进程遗留、尚未恢复的任务记录，在persistExecutor中加载
+    private final Map<String, TransferRecord> persisted = new LinkedHashMap<>();
+    //加载完成前已重新提交或放弃的记录，加载时跳过，加载完成后为null
+    private Set<String> skipOnLoad = new HashSet<>();
+    private final ExecutorService persistExecutor = Executors.newSingleThreadExecutor();
+    private final Future<?> loadFuture;
+    private int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+    private int maxPerHost = DEFAULT_MAX_PER_HOST;
+    private long sequence;
+
+    public static TransferScheduler get() {
+        if (sInstance == null) {
+            synchronized (TransferScheduler.class) {
+                if (sInstance == null) {
+                    sInstance = new TransferScheduler();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private TransferScheduler() {
+        loadFuture = persistExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                List<TransferRecord> records = load();
+                synchronized (TransferScheduler.this) {
+                    for (TransferRecord record : records) {
+                        if (!skipOnLoad.contains(record.getId())) {
+                            persisted.put(record.getId(), record);
+                        }
+                    }
+                    skipOnLoad = null;
+                }
+            }
+        });
+    }
+
+    /**
+     * 设置全局最大同时执行数
+     *
+     * @param maxConcurrent
+     * @return
+     */
+    public TransferScheduler maxConcurrent(int maxConcurrent) {
+        synchronized (this) {
+            this.maxConcurrent = Math.max(1, maxConcurrent);
+        }
+        promote();
+        return this;
+    }
+
+    /**
+     * 设置每个域名最大同时执行数
+     *
+     * @param maxPerHost
+     * @return
+     */
+    public TransferScheduler maxPerHost(int maxPerHost) {
+        synchronized (this) {
+            this.maxPerHost = Math.max(1, maxPerHost);
+        }
+        promote();
+        return this;
+    }
+
+    /**
+     * 将任务加入调度，订阅时排队，轮到时才订阅source；取消订阅即取消任务
+     *
+     * @param record 任务记录
+     * @param tag    任务标签，用于暂停、恢复、取消
+     * @param source 实际执行的任务
+     * @param <T>
+     * @return
+     */
+    public <T> Observable<T> schedule(final TransferRecord record, final Object tag, final Observable<T> source) {
+        return Observable.create(new ObservableOnSubscribe<T>() {
+            @Override
+            public void subscribe(ObservableEmitter<T> emitter) throws Exception {
+                final Task<T> task = new Task<>(record, tag, source, emitter);
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() throws Exception {
+                        remove(task);
+                    }
+                });
+                enqueue(task);
+            }
+        });
+    }
+
+    /**
+     * 暂停指定Tag的任务，执行中的任务会被中断，恢复后重新执行（下载任务从断点继续）
+     *
+     * @param tag
+     */
+    public void pause(Object tag) {
+        List<Task> toStop = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Task> iterator = queued.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.matches(tag)) {
+                    iterator.remove();
+                    paused.add(task);
+                }
+            }
+            iterator = running.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.matches(tag)) {
+                    iterator.remove();
+                    releaseHost(task);
+                    paused.add(task);
+                    toStop.add(task);
+                }
+            }
+        }
+        for (Task task : toStop) {
+            task.stop();
+        }
+        promote();
+    }
+
+    /**
+     * 恢复指定Tag的任务，重新排队
+     *
+     * @param tag
+     */
+    public void resume(Object tag) {
+        synchronized (this) {
+            Iterator<Task> iterator = paused.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.matches(tag)) {
+                    iterator.remove();
+                    queued.add(task);
+                }
+            }
+        }
+        promote();
+    }
+
+    /**
+     * 取消指定Tag的任务，订阅者会收到CancellationException
+     *
+     * @param tag
+     */
+    public void cancel(Object tag) {
+        List<Task> toCancel = new ArrayList<>();
+        synchronized (this) {
+            collect(queued, tag, toCancel);
+            collect(running, tag, toCancel);
+            collect(paused, tag, toCancel);
+        }
+        for (Task task : toCancel) {
+            task.dispose();
+        }
+    }
+
+    public void pauseAll() {
+        pause(null);
+    }
+
+    public void resumeAll() {
+        resume(null);
+    }
+
+    public void cancelAll() {
+        cancel(null);
+    }
+
+    public synchronized int runningCount() {
+        return running.size();
+    }
+
+    public synchronized int queuedCount() {
+        return queued.size();
+    }
+
+    public synchronized int pausedCount() {
+        return paused.size();
+    }
+
+    /**
+     * 上次进程遗留的未完成下载记录，可通过DownloadRequest.restore重新提交；记录尚未加载完成时会等待加载
+     *
+     * @return
+     */
+    public List<TransferRecord> getPersistedRecords() {
+        awaitLoaded();
+        synchronized (this) {
+            return new ArrayList<>(persisted.values());
+        }
+    }
+
+    /**
+     * 放弃恢复遗留的任务记录
+     *
+     * @param id
+     */
+    public void removePersistedRecord(String id) {
+        synchronized (this) {
+            boolean removed = persisted.remove(id) != null;
+            if (skipOnLoad != null) {
+                skipOnLoad.add(id);
+                removed = true;
+            }
+            if (!removed) {
+                return;
+            }
+        }
+        persist();
+    }
+
+    private void enqueue(Task task) {
+        synchronized (this) {
+            task.sequence = sequence++;
+            persisted.remove(task.record.getId());
+            if (skipOnLoad != null && task.record.getId() != null) {
+                skipOnLoad.add(task.record.getId());
+            }
+            queued.add(task);
+        }
+        persist();
+        promote();
+    }
+
+    private void remove(Task task) {
+        boolean removed;
+        synchronized (this) {
+            removed = queued.remove(task) | paused.remove(task);
+            if (running.remove(task)) {
+                releaseHost(task);
+                removed = true;
+            }
+        }
+        if (removed) {
+            task.stop();
+            persist();
+            promote();
+        }
+    }
+
+    private void finish(Task task) {
+        boolean removed;
+        synchronized (this) {
+            removed = running.remove(task);
+            if (removed) {
+                releaseHost(task);
+            }
+        }
+        if (removed) {
+            persist();
+            promote();
+        }
+    }
+
+    /**
+     * 按优先级启动排队的任务，跳过已达到域名并发上限的任务
+     */
+    private void promote() {
+        List<Task> toStart = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Task> iterator = queued.iterator();
+            while (running.size() < maxConcurrent && iterator.hasNext()) {
+                Task task = iterator.next();
+                String host = hostOf(task);
+                Integer count = runningPerHost.get(host);
+                if (count != null && count >= maxPerHost) {
+                    continue;
+                }
+                iterator.remove();
+                running.add(task);
+                runningPerHost.put(host, count == null ? 1 : count + 1);
+                toStart.add(task);
+            }
+        }
+        for (Task task : toStart) {
+            task.start();
+        }
+    }
+
+    private void releaseHost(Task task) {
+        String host = hostOf(task);
+        Integer count = runningPerHost.get(host);
+        if (count == null || count <= 1) {
+            runningPerHost.remove(host);
+        } else {
+            runningPerHost.put(host, count - 1);
+        }
+    }
+
+    private static String hostOf(Task task) {
+        return task.record.getHost() != null ? task.record.getHost() : "";
+    }
+
+    private static void collect(Iterable<Task> tasks, Object tag, List<Task> out) {
+        for (Task task : tasks) {
+            if (task.matches(tag)) {
+                out.add(task);
+            }
+        }
+    }
+
+    private void awaitLoaded() {
+        try {
+            loadFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Logger.e("load transfer queue failed: " + e.getCause());
+        }
+    }
+
+    /**
+     * 在后台线程保存当前可恢复的任务记录，与加载在同一个线程按顺序执行，保存时记录已加载完成
+     */
+    private void persist() {
+        persistExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<TransferRecord> records = new ArrayList<>();
+                synchronized (TransferScheduler.this) {
+                    records.addAll(persisted.values());
+                    addRestorable(records, running);
+                    addRestorable(records, queued);
+                    addRestorable(records, paused);
+                }
+                save(records);
+            }
+        });
+    }
+
+    private static void addRestorable(Iterable<Task> tasks, List<TransferRecord> out) {
+        for (Task task : tasks) {
+            if (task.record.isRestorable()) {
+                out.add(task.record);
+            }
+        }
+    }
+
+    private static File queueFile() {
+        return new File(ViseHttp.getContext().getFilesDir(), QUEUE_FILE);
+    }
+
+    private static List<TransferRecord> load() {
+        Reader reader = null;
+        try {
+            File file = queueFile();
+            if (!file.exists()) {
+                return new ArrayList<>();
+            }
+            reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            List<TransferRecord> records = GsonUtil.gson().fromJson(reader, new TypeToken<List<TransferRecord>>() {
+            }.getType());
+            return records != null ? records : new ArrayList<TransferRecord>();
+        } catch (Exception e) {
+            Logger.e("load transfer queue failed: " + e);
+            return new ArrayList<>();
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private static void save(List<TransferRecord> records) {
+        File file = queueFile();
+        if (records.isEmpty()) {
+            file.delete();
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8");
+            GsonUtil.gson().toJson(records, writer);
+            writer.close();
+            writer = null;
+            if (!temp.renameTo(file)) {
+                file.delete();
+                temp.renameTo(file);
+            }
+        } catch (Exception e) {
+            Logger.e("save transfer queue failed: " + e);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private final class Task<T> {
+        final TransferRecord record;
+        final Object tag;
+        final Observable<T> source;
+        final ObservableEmitter<T> emitter;
+        long sequence;
+        private Disposable upstream;
+        private long generation;//每次start、stop递增，已停止的执行不再回调
+
+        Task(TransferRecord record, Object tag, Observable<T> source, ObservableEmitter<T> emitter) {
+            this.record = record;
+            this.tag = tag;
+            this.source = source;
+            this.emitter = emitter;
+        }
+
+        boolean matches(Object tag) {
+            return tag == null || tag.equals(this.tag);
+        }
+
+        void start() {
+            final long current;
+            synchronized (this) {
+                current = ++generation;
+            }
+            Disposable disposable = source.subscribe(new Consumer<T>() {
+                @Override
+                public void accept(T t) throws Exception {
+                    if (isCurrent(current)) {
+                        emitter.onNext(t);
+                    }
+                }
+            }, new Consumer<Throwable>() {
+                @Override
+                public void accept(Throwable throwable) throws Exception {
+                    if (isCurrent(current)) {
+                        finish(Task.this);
+                        emitter.onError(throwable);
+                    }
+                }
+            }, new Action() {
+                @Override
+                public void run() throws Exception {
+                    if (isCurrent(current)) {
+                        finish(Task.this);
+                        emitter.onComplete();
+                    }
+                }
+            });
+            boolean stopped;
+            synchronized (this) {
+                //subscribe返回前已被暂停或取消时，stop拿不到upstream，在这里释放
+                stopped = generation != current;
+                if (!stopped) {
+                    upstream = disposable;
+                }
+            }
+            if (stopped) {
+                disposable.dispose();
+            }
+        }
+
+        void stop() {
+            Disposable disposable;
+            synchronized (this) {
+                generation++;
+                disposable = upstream;
+                upstream = null;
+            }
+            if (disposable != null) {
+                disposable.dispose();
+            }
+        }
+
+        private synchronized boolean isCurrent(long current) {
+            return generation == current;
+        }
+
+        void dispose() {
+            remove(this);
+            emitter.tryOnError(new CancellationException("transfer cancelled"));
+        }
+    }
+}
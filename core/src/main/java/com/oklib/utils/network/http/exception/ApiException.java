@@ -69,7 +69,11 @@ public class ApiException extends Exception {
             ex = new ApiException(e, ApiCode.Request.PARSE_ERROR);
             ex.message = "PARSE_ERROR";
             return ex;
-        } else if (e instanceof ConnectException) {
+        } else if (e instanceof OfflineQueuedException) {
+            ex = new ApiException(e, ApiCode.Request.OFFLINE_QUEUED);
+            ex.message = "OFFLINE_QUEUED";
+            return ex;
+        } else if (e instanceof ConnectException || e instanceof CircuitOpenException) {
             ex = new ApiException(e, ApiCode.Request.NETWORK_ERROR);
             ex.message = "NETWORK_ERROR";
             return ex;
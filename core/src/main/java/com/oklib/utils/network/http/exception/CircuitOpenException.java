@@ -0,0 +1,27 @@
+package com.oklib.utils.network.http.exception;
+
+import java.io.IOException;
+
+/**
+ * @Description: 域名处于熔断状态，请求未发出
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 22:20
+ */
+public class CircuitOpenException extends IOException {
+    private final String host;
+    private final long remainingMillis;
+
+    public CircuitOpenException(String host, long remainingMillis) {
+        super("Circuit open for " + host + ", retry after " + remainingMillis + "ms");
+        this.host = host;
+        this.remainingMillis = remainingMillis;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public long getRemainingMillis() {
+        return remainingMillis;
+    }
+}
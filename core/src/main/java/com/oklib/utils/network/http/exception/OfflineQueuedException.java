@@ -0,0 +1,27 @@
+package com.oklib.utils.network.http.exception;
+
+import java.io.IOException;
+
+/**
+ * @Description: 无网络，请求已放入离线发件箱，网络恢复后重放
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 22:50
+ */
+public class OfflineQueuedException extends IOException {
+    private final String id;
+    private final String tag;
+
+    public OfflineQueuedException(String id, String tag, Throwable cause) {
+        super("Request queued offline, id " + id, cause);
+        this.id = id;
+        this.tag = tag;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
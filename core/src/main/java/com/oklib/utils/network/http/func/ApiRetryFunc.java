@@ -1,46 +1,140 @@
 package com.oklib.utils.network.http.func;
 
 import com.oklib.utils.Logger.Logger;
+import com.oklib.utils.network.http.config.HttpGlobalConfig;
+import com.oklib.utils.network.http.config.RetryPolicy;
 import com.oklib.utils.network.http.exception.ApiException;
+import com.oklib.utils.network.http.exception.CircuitOpenException;
+import com.oklib.utils.network.http.mode.ApiCode;
 
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Date;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableSource;
 import io.reactivex.functions.Function;
+import okhttp3.Headers;
+import retrofit2.HttpException;
 
 /**
- * @Description: 重试机制
+ * @Description: 重试机制，按RetryPolicy指数退避重试，每次订阅单独计数
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2017-05-04 17:19
  */
 public class ApiRetryFunc implements Function<Observable<? extends Throwable>, Observable<?>> {
+    private static final int TOO_MANY_REQUESTS = 429;
 
     private final int maxRetries;
     private final int retryDelayMillis;
-    private int retryCount;
+    private final RetryPolicy retryPolicy;
+    private final String method;
 
     public ApiRetryFunc(int maxRetries, int retryDelayMillis) {
+        this(maxRetries, retryDelayMillis, HttpGlobalConfig.getInstance().getRetryPolicy(), null);
+    }
+
+    /**
+     * @param maxRetries       最大重试次数
+     * @param retryDelayMillis 首次重试间隔
+     * @param retryPolicy      重试策略
+     * @param method           请求方式，用于判断是否幂等，null表示未知
+     */
+    public ApiRetryFunc(int maxRetries, int retryDelayMillis, RetryPolicy retryPolicy, String method) {
         this.maxRetries = maxRetries;
         this.retryDelayMillis = retryDelayMillis;
+        this.retryPolicy = retryPolicy;
+        this.method = method;
     }
 
     @Override
     public Observable<?> apply(Observable<? extends Throwable> observable) throws Exception {
+        retryPolicy.onRequest();
+        //每次订阅都会调用apply，计数放在这里，复用同一个对象时不会累计
+        final int[] retryCount = new int[1];
         return observable
                 .flatMap(new Function<Throwable, ObservableSource<?>>() {
                     @Override
                     public ObservableSource<?> apply(Throwable throwable) throws Exception {
-                        if (++retryCount <= maxRetries && (throwable instanceof SocketTimeoutException
-                                || throwable instanceof ConnectException)) {
-                            Logger.d("get response data error, it will try after " + retryDelayMillis
-                                    + " millisecond, retry count " + retryCount);
-                            return Observable.timer(retryDelayMillis, TimeUnit.MILLISECONDS);
+                        long delay = retryDelay(throwable, retryCount[0] + 1);
+                        if (delay >= 0 && retryCount[0] < maxRetries && retryPolicy.tryAcquireRetry()) {
+                            retryCount[0]++;
+                            Logger.d("get response data error, it will try after " + delay
+                                    + " millisecond, retry count " + retryCount[0]);
+                            return Observable.timer(delay, TimeUnit.MILLISECONDS);
                         }
                         return Observable.error(ApiException.handleException(throwable));
                     }
                 });
     }
+
+    /**
+     * 计算重试等待时间
+     *
+     * @param throwable
+     * @param retryCount 即将进行的重试次数
+     * @return 不可重试时返回-1
+     */
+    private long retryDelay(Throwable throwable, int retryCount) {
+        if (throwable instanceof CircuitOpenException) {
+            return -1;
+        }
+        boolean idempotent = RetryPolicy.isIdempotent(method) || retryPolicy.isRetryNonIdempotent();
+        if (throwable instanceof ConnectException || throwable instanceof UnknownHostException) {
+            //请求未发出，任何请求方式都可以重试
+            return retryPolicy.delayMillis(retryCount, retryDelayMillis);
+        }
+        if (throwable instanceof SocketTimeoutException) {
+            return idempotent ? retryPolicy.delayMillis(retryCount, retryDelayMillis) : -1;
+        }
+        if (throwable instanceof HttpException) {
+            HttpException httpException = (HttpException) throwable;
+            int code = httpException.code();
+            if (code == TOO_MANY_REQUESTS || code == ApiCode.Http.SERVICE_UNAVAILABLE) {
+                //服务器明确拒绝处理，非幂等请求也可以重试
+                return retryAfterDelay(httpException, retryCount);
+            }
+            if (idempotent && (code == ApiCode.Http.REQUEST_TIMEOUT || code == ApiCode.Http.BAD_GATEWAY
+                    || code == ApiCode.Http.GATEWAY_TIMEOUT)) {
+                return retryAfterDelay(httpException, retryCount);
+            }
+        }
+        return -1;
+    }
+
+    private long retryAfterDelay(HttpException httpException, int retryCount) {
+        long backoff = retryPolicy.delayMillis(retryCount, retryDelayMillis);
+        if (!retryPolicy.isRetryAfter() || httpException.response() == null) {
+            return backoff;
+        }
+        long delay = parseRetryAfter(httpException.response().headers());
+        if (delay < 0) {
+            return backoff;
+        }
+        return delay > retryPolicy.getMaxRetryAfterMillis() ? -1 : Math.max(delay, backoff);
+    }
+
+    /**
+     * 解析Retry-After，支持秒数和HTTP日期两种格式
+     *
+     * @param headers
+     * @return 没有或无法解析时返回-1
+     */
+    private static long parseRetryAfter(Headers headers) {
+        String value = headers.get("Retry-After");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException ignored) {
+        }
+        Date date = headers.getDate("Retry-After");
+        if (date == null) {
+            return -1;
+        }
+        return Math.max(0, date.getTime() - System.currentTimeMillis());
+    }
 }
@@ -0,0 +1,164 @@
+package com.oklib.utils.network.http.func;
+
+import androidx.annotation.NonNull;
+
+import com.oklib.utils.Logger.Logger;
+import com.oklib.utils.network.cache.DiskCache;
+import com.oklib.utils.network.common.GsonUtil;
+import com.oklib.utils.network.http.core.ApiCache;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+import io.reactivex.functions.Function;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * @Description: ResponseBody转T，解析的同时将网络返回的原始数据写入磁盘缓存，数据只读取一次且不会再被序列化
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 18:40
+ */
+public class ApiStreamCacheFunc<T> implements Function<ResponseBody, T> {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ApiCache apiCache;
+    private final String cacheKey;
+    private final Type type;
+
+    public ApiStreamCacheFunc(ApiCache apiCache, String cacheKey, Type type) {
+        this.apiCache = apiCache;
+        this.cacheKey = cacheKey;
+        this.type = type;
+    }
+
+    @Override
+    public T apply(ResponseBody responseBody) throws Exception {
+        try {
+            MediaType contentType = responseBody.contentType();
+            Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+            DiskCache.StreamEditor editor = UTF_8.equals(charset) ? apiCache.openStream(cacheKey) : null;
+            if (editor == null) {
+                //缓存只保存UTF-8数据，配置了编解码器，或同一个Key正在被写入，解析后再写入（经过编解码器）
+                T t = parse(new InputStreamReader(responseBody.byteStream(), charset));
+                if (t != null) {
+                    apiCache.save(cacheKey, t, type);
+                }
+                return t;
+            }
+            TeeInputStream in = new TeeInputStream(responseBody.byteStream(), editor);
+            T t;
+            try {
+                t = parse(new InputStreamReader(in, charset));
+                in.drain();
+            } catch (Exception e) {
+                editor.abort();
+                throw e;
+            }
+            if (t == null || in.isBroken()) {
+                editor.abort();
+            } else {
+                editor.commit();
+                apiCache.putMemory(cacheKey, t, type, editor.size());
+            }
+            return t;
+        } finally {
+            responseBody.close();
+        }
+    }
+
+    private T parse(Reader reader) throws IOException {
+        if (type.equals(String.class)) {
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[4096];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, count);
+            }
+            return (T) builder.toString();
+        }
+        return GsonUtil.gson().fromJson(reader, type);
+    }
+
+    /**
+     * 读取的同时写入缓存，缓存写入失败不影响读取
+     */
+    private static final class TeeInputStream extends FilterInputStream {
+        private final DiskCache.StreamEditor editor;
+        private boolean broken;
+
+        TeeInputStream(InputStream in, DiskCache.StreamEditor editor) {
+            super(in);
+            this.editor = editor;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1 && !broken) {
+                try {
+                    editor.write(b);
+                } catch (IOException e) {
+                    markBroken(e);
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0 && !broken) {
+                try {
+                    editor.write(b, off, count);
+                } catch (IOException e) {
+                    markBroken(e);
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 4096)];
+            long skipped = 0;
+            while (skipped < n) {
+                int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (count == -1) {
+                    break;
+                }
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * 读取剩余数据，保证缓存完整
+         */
+        void drain() throws IOException {
+            byte[] buffer = new byte[4096];
+            while (read(buffer, 0, buffer.length) != -1) {
+                //continue
+            }
+        }
+
+        boolean isBroken() {
+            return broken;
+        }
+
+        private void markBroken(IOException e) {
+            broken = true;
+            Logger.e("stream cache write failed: " + e);
+        }
+    }
+}
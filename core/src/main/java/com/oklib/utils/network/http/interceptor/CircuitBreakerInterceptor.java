@@ -0,0 +1,62 @@
+package com.oklib.utils.network.http.interceptor;
+
+import androidx.annotation.NonNull;
+
+import com.oklib.utils.network.http.core.CircuitBreaker;
+import com.oklib.utils.network.http.exception.CircuitOpenException;
+import com.oklib.utils.network.http.exception.OfflineQueuedException;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * @Description: 熔断拦截，域名熔断期间直接失败，不再向服务器发请求；
+ * 网络异常和5xx响应计为失败，请求被放入离线发件箱时不计入
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 22:20
+ */
+public class CircuitBreakerInterceptor implements Interceptor {
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerInterceptor(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        if (!circuitBreaker.allowRequest(host)) {
+            throw new CircuitOpenException(host, circuitBreaker.remainingOpenMillis(host));
+        }
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (OfflineQueuedException e) {
+            //请求未发到服务器，不能说明该域名不可用
+            circuitBreaker.onCanceled(host);
+            throw e;
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                circuitBreaker.onCanceled(host);
+            } else {
+                circuitBreaker.onFailure(host);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onCanceled(host);
+            throw e;
+        }
+        if (response.code() >= 500) {
+            circuitBreaker.onFailure(host);
+        } else {
+            circuitBreaker.onSuccess(host);
+        }
+        return response;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
@@ -3,51 +3,187 @@ package com.oklib.utils.network.http.interceptor;
 import androidx.annotation.NonNull;
 
 import java.io.IOException;
+import java.util.zip.Deflater;
 
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.Buffer;
 import okio.BufferedSink;
+import okio.DeflaterSink;
 import okio.GzipSink;
 import okio.Okio;
+import okio.Sink;
 
 /**
- * @Description: 包含Gzip压缩的请求拦截
+ * @Description: 请求体压缩拦截，只压缩长度已知且在[minSize, maxSize]之间的请求体，
+ * 压缩结果先写入内存以便设置Content-Length，压缩后没有变小则发送原始数据；
+ * 请求头Content-Encoding为identity时不压缩，该请求头需在本拦截器之前设置（如Retrofit接口的@Headers）；
+ * 通过ViseHttp发出的请求用BaseRequest.compressRequest(false)关闭压缩
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 16/12/31 21:21.
  */
 public class GzipRequestInterceptor implements Interceptor {
+    public static final long DEFAULT_MIN_SIZE = 1024;//默认最小压缩长度
+    public static final long DEFAULT_MAX_SIZE = 4 * 1024 * 1024;//默认最大压缩长度，压缩结果需要放在内存中
+    public static final String IDENTITY = "identity";
+
+    public enum Encoding {
+        GZIP("gzip"),
+        DEFLATE("deflate");//zlib格式，支持预置字典
+
+        private final String value;
+
+        Encoding(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+    }
+
+    private Encoding encoding = Encoding.GZIP;
+    private long minSize = DEFAULT_MIN_SIZE;
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private byte[] dictionary;
+
+    /**
+     * 设置压缩格式，默认gzip
+     *
+     * @param encoding
+     * @return
+     */
+    public GzipRequestInterceptor encoding(Encoding encoding) {
+        if (encoding != null) {
+            this.encoding = encoding;
+        }
+        return this;
+    }
+
+    /**
+     * 设置压缩的请求体长度范围，小于minSize的请求体压缩收益太小，大于maxSize的不在内存中压缩
+     *
+     * @param minSize
+     * @param maxSize
+     * @return
+     */
+    public GzipRequestInterceptor sizeRange(long minSize, long maxSize) {
+        this.minSize = Math.max(0, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        return this;
+    }
+
+    /**
+     * 设置压缩级别，0~9
+     *
+     * @param level
+     * @return
+     */
+    public GzipRequestInterceptor level(int level) {
+        if (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION) {
+            this.level = level;
+        }
+        return this;
+    }
+
+    /**
+     * 设置deflate预置字典，内容为请求中经常出现的字段名和取值，重复度高的小JSON压缩率会明显提升；
+     * 只对Encoding.DEFLATE生效，zlib头中带有字典的Adler32标识，服务端需使用相同字典解压
+     *
+     * @param dictionary
+     * @return
+     */
+    public GzipRequestInterceptor dictionary(byte[] dictionary) {
+        this.dictionary = dictionary;
+        return this;
+    }
+
     @Override
     public Response intercept(@NonNull Chain chain) throws IOException {
         Request originalRequest = chain.request();
-        if (originalRequest.body() == null || originalRequest.header("Content-Encoding") != null) {
+        RequestBody body = originalRequest.body();
+        String contentEncoding = originalRequest.header("Content-Encoding");
+        if (IDENTITY.equalsIgnoreCase(contentEncoding)) {
+            return chain.proceed(originalRequest.newBuilder().removeHeader("Content-Encoding").build());
+        }
+        if (body == null || contentEncoding != null || !isCompressible(body)) {
+            return chain.proceed(originalRequest);
+        }
+        Buffer compressed = compress(body);
+        if (compressed.size() >= body.contentLength()) {
             return chain.proceed(originalRequest);
         }
-        Request compressedRequest = originalRequest.newBuilder().header("Accept-Encoding", "gzip").method(originalRequest.method(), gzip
-                (originalRequest.body())).build();
+        Request compressedRequest = originalRequest.newBuilder()
+                .header("Content-Encoding", encoding.value())
+                .method(originalRequest.method(), new CompressedRequestBody(body.contentType(), compressed))
+                .build();
         return chain.proceed(compressedRequest);
     }
 
-    private RequestBody gzip(final RequestBody body) {
-        return new RequestBody() {
-            @Override
-            public MediaType contentType() {
-                return body.contentType();
-            }
+    private boolean isCompressible(RequestBody body) throws IOException {
+        long length = body.contentLength();
+        if (length < 0 || length < minSize || length > maxSize) {
+            return false;
+        }
+        MediaType contentType = body.contentType();
+        //multipart一般包含文件，且上传进度在写入时回调，不在这里压缩
+        return contentType == null || !"multipart".equals(contentType.type());
+    }
 
-            @Override
-            public long contentLength() {
-                return -1;
+    private Buffer compress(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        Sink sink;
+        Deflater deflater = null;
+        if (encoding == Encoding.DEFLATE) {
+            deflater = new Deflater(level);
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
             }
-
-            @Override
-            public void writeTo(@NonNull BufferedSink sink) throws IOException {
-                BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
-                body.writeTo(gzipSink);
-                gzipSink.close();
+            sink = new DeflaterSink(buffer, deflater);
+        } else {
+            GzipSink gzipSink = new GzipSink(buffer);
+            gzipSink.deflater().setLevel(level);
+            sink = gzipSink;
+        }
+        BufferedSink bufferedSink = Okio.buffer(sink);
+        try {
+            body.writeTo(bufferedSink);
+        } finally {
+            bufferedSink.close();
+            if (deflater != null) {
+                deflater.end();
             }
-        };
+        }
+        return buffer;
+    }
+
+    private static final class CompressedRequestBody extends RequestBody {
+        private final MediaType contentType;
+        private final Buffer content;
+
+        CompressedRequestBody(MediaType contentType, Buffer content) {
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return content.size();
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            //拷贝后写出，重试时可以再次写入
+            sink.write(content.clone(), content.size());
+        }
     }
 }
@@ -8,7 +8,11 @@ import com.oklib.utils.Logger.Logger;
 import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import okhttp3.Connection;
 import okhttp3.Headers;
@@ -21,16 +25,20 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import okhttp3.internal.http.HttpHeaders;
 import okio.Buffer;
+import okio.BufferedSource;
 
 /**
- * @Description: Http日志打印拦截
+ * @Description: Http日志打印拦截，每个请求单独拼接日志，整条日志交给后台线程输出，不阻塞请求线程
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2017-04-08 15:16
  */
 public class HttpLogInterceptor implements Interceptor {
     private static final Charset UTF8 = Charset.forName("UTF-8");
+    public static final long DEFAULT_MAX_BODY_BYTES = 4 * 1024;//默认最多打印的Body字节数
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;//默认日志队列容量
+    private static final AsyncLogSink SINK = new AsyncLogSink(DEFAULT_QUEUE_CAPACITY);
     private volatile Level level = Level.NONE;
-    private StringBuilder showMessage = new StringBuilder();
+    private volatile long maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
 
     public enum Level {
         NONE,       //不打印log
@@ -39,17 +47,8 @@ public class HttpLogInterceptor implements Interceptor {
         BODY        //所有数据全部打印
     }
 
-    private void log(String message) {
-        // 请求或者响应开始
-        if (message.startsWith("--> POST") || message.startsWith("--> GET")) {
-            showMessage.setLength(0);
-        }
-        showMessage.append(message.concat("\n"));
-        // 响应结束，打印整条日志
-        if (message.startsWith("<-- END HTTP")) {
-            Logger.i(showMessage.toString());
-        }
-
+    private static void log(StringBuilder record, String message) {
+        record.append(message).append('\n');
     }
 
     public HttpLogInterceptor setLevel(Level level) {
@@ -60,19 +59,38 @@ public class HttpLogInterceptor implements Interceptor {
         return this;
     }
 
+    /**
+     * 设置最多打印的Body字节数，超出部分截断，响应只预读这部分数据，不会整体读入内存
+     *
+     * @param maxBodyBytes
+     * @return
+     */
+    public HttpLogInterceptor setMaxBodyBytes(long maxBodyBytes) {
+        if (maxBodyBytes >= 0) {
+            this.maxBodyBytes = maxBodyBytes;
+        }
+        return this;
+    }
+
     public Level getLevel() {
         return level;
     }
 
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
     @Override
     public Response intercept(@NonNull Chain chain) throws IOException {
         Request request = chain.request();
+        Level level = this.level;
         if (level == Level.NONE) {
             return chain.proceed(request);
         }
+        StringBuilder record = new StringBuilder(256);
 
         //请求日志拦截
-        logForRequest(request, chain.connection());
+        logForRequest(record, level, request, chain.connection());
 
         //执行请求，计算请求时间
         long startNs = System.nanoTime();
@@ -80,16 +98,19 @@ public class HttpLogInterceptor implements Interceptor {
         try {
             response = chain.proceed(request);
         } catch (Exception e) {
-            Logger.e("<-- HTTP FAILED: " + e);
+            log(record, "<-- HTTP FAILED: " + e);
+            SINK.offer(record.toString(), true);
             throw e;
         }
         long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
 
         //响应日志拦截
-        return logForResponse(response, tookMs);
+        logForResponse(record, level, response, tookMs);
+        SINK.offer(record.toString(), false);
+        return response;
     }
 
-    private void logForRequest(Request request, Connection connection) throws IOException {
+    private void logForRequest(StringBuilder record, Level level, Request request, Connection connection) {
         boolean logBody = (level == Level.BODY);
         boolean logHeaders = (level == Level.BODY || level == Level.HEADERS);
         RequestBody requestBody = request.body();
@@ -97,65 +118,67 @@ public class HttpLogInterceptor implements Interceptor {
         Protocol protocol = connection != null ? connection.protocol() : Protocol.HTTP_1_1;
 
         try {
-            String requestStartMessage = "--> " + request.method() + ' ' + request.url() + ' ' + protocol;
-            log(requestStartMessage);
+            log(record, "--> " + request.method() + ' ' + request.url() + ' ' + protocol);
 
             if (logHeaders) {
                 Headers headers = request.headers();
                 for (int i = 0, count = headers.size(); i < count; i++) {
-                    log("\t" + headers.name(i) + ": " + headers.value(i));
+                    log(record, "\t" + headers.name(i) + ": " + headers.value(i));
                 }
 
-                log(" ");
+                log(record, " ");
                 if (logBody && hasRequestBody) {
                     if (isPlaintext(requestBody.contentType())) {
-                        log("\t" + requestBody.contentType());
-                        bodyToString(request);
+                        log(record, "\t" + requestBody.contentType());
+                        bodyToString(record, requestBody);
                     } else {
-                        log("\tbody: maybe [file part] , too large too print , ignored!");
+                        log(record, "\tbody: maybe [file part] , too large too print , ignored!");
                     }
                 }
             }
         } catch (Exception e) {
-            Logger.e(e);
+            log(record, "\tlog request failed: " + e);
         } finally {
-            log("--> END " + request.method());
+            log(record, "--> END " + request.method());
         }
     }
 
-    private Response logForResponse(Response response, long tookMs) {
-        Response.Builder builder = response.newBuilder();
-        Response clone = builder.build();
-        ResponseBody responseBody = clone.body();
+    private void logForResponse(StringBuilder record, Level level, Response response, long tookMs) {
         boolean logBody = (level == Level.BODY);
         boolean logHeaders = (level == Level.BODY || level == Level.HEADERS);
+        ResponseBody responseBody = response.body();
 
         try {
-            log("<-- " + clone.code() + ' ' + clone.message() + ' ' + clone.request().url() + " (" + tookMs + "ms）");
+            log(record, "<-- " + response.code() + ' ' + response.message() + ' ' + response.request().url() + " (" + tookMs + "ms）");
             if (logHeaders) {
-                Headers headers = clone.headers();
+                Headers headers = response.headers();
                 for (int i = 0, count = headers.size(); i < count; i++) {
-                    log("\t" + headers.name(i) + ": " + headers.value(i));
+                    log(record, "\t" + headers.name(i) + ": " + headers.value(i));
                 }
-                log(" ");
-                if (logBody && HttpHeaders.hasBody(clone)) {
-                    if (responseBody != null && responseBody.contentType() != null
-                            && isPlaintext(responseBody.contentType())) {
-                        String body = responseBody.string();
-                        log("\tbody:" + body);
-                        responseBody = ResponseBody.create(responseBody.contentType(), body);
-                        return response.newBuilder().body(responseBody).build();
+                log(record, " ");
+                if (logBody && HttpHeaders.hasBody(response)) {
+                    if (responseBody != null && isPlaintext(responseBody.contentType())) {
+                        //只预读前maxBodyBytes字节，原响应体仍可被完整读取
+                        long maxBodyBytes = this.maxBodyBytes;
+                        BufferedSource source = responseBody.source();
+                        source.request(maxBodyBytes + 1);
+                        Buffer buffer = source.buffer();
+                        long size = Math.min(buffer.size(), maxBodyBytes);
+                        Buffer peek = new Buffer();
+                        buffer.copyTo(peek, 0, size);
+                        Charset charset = responseBody.contentType().charset(UTF8);
+                        log(record, "\tbody:" + peek.readString(charset != null ? charset : UTF8)
+                                + (buffer.size() > size ? "...(truncated)" : ""));
                     } else {
-                        log("\tbody: maybe [file part] , too large too print , ignored!");
+                        log(record, "\tbody: maybe [file part] , too large too print , ignored!");
                     }
                 }
             }
         } catch (Exception e) {
-            Logger.e(e);
+            log(record, "\tlog response failed: " + e);
         } finally {
-            log("<-- END HTTP");
+            log(record, "<-- END HTTP");
         }
-        return response;
     }
 
     /**
@@ -182,24 +205,99 @@ public class HttpLogInterceptor implements Interceptor {
         return false;
     }
 
-    private void bodyToString(Request request) {
+    private void bodyToString(StringBuilder record, RequestBody requestBody) {
         try {
-            final Request copy = request.newBuilder().build();
+            long maxBodyBytes = this.maxBodyBytes;
             final Buffer buffer = new Buffer();
-            RequestBody requestBody = copy.body();
-            if (requestBody != null) {
-                requestBody.writeTo(buffer);
-                Charset charset = UTF8;
-                MediaType contentType = requestBody.contentType();
-                if (contentType != null) {
-                    charset = contentType.charset(UTF8);
-                }
-                if (charset != null) {
-                    log("\tbody:" + URLDecoder.decode(buffer.readString(charset), UTF8.name()));
+            requestBody.writeTo(buffer);
+            Charset charset = UTF8;
+            MediaType contentType = requestBody.contentType();
+            if (contentType != null) {
+                charset = contentType.charset(UTF8);
+            }
+            if (charset != null) {
+                boolean truncated = buffer.size() > maxBodyBytes;
+                String body = buffer.readString(Math.min(buffer.size(), maxBodyBytes), charset);
+                if (!truncated) {
+                    body = URLDecoder.decode(body, UTF8.name());
                 }
+                log(record, "\tbody:" + body + (truncated ? "...(truncated)" : ""));
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * 有界日志队列，请求线程只入队不等待，队列满时丢弃并在下一条日志中提示丢弃数量；
+     * 后台线程按顺序交给Logger输出
+     */
+    private static final class AsyncLogSink implements Runnable {
+        private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger dropped = new AtomicInteger();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final int capacity;
+        private volatile Thread thread;
+
+        AsyncLogSink(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void offer(String record, boolean error) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                dropped.incrementAndGet();
+                return;
+            }
+            queue.offer(new Record(record, error));
+            if (started.compareAndSet(false, true)) {
+                Thread thread = new Thread(this, "HttpLog");
+                thread.setDaemon(true);
+                this.thread = thread;
+                thread.start();
+            } else {
+                Thread thread = this.thread;
+                if (thread != null) {
+                    LockSupport.unpark(thread);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Record record = queue.poll();
+                if (record == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                size.decrementAndGet();
+                String message = record.message;
+                int count = dropped.getAndSet(0);
+                if (count > 0) {
+                    message = "(" + count + " http logs dropped)\n" + message;
+                }
+                try {
+                    if (record.error) {
+                        Logger.e(message);
+                    } else {
+                        Logger.i(message);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static final class Record {
+        final String message;
+        final boolean error;
+
+        Record(String message, boolean error) {
+            this.message = message;
+            this.error = error;
+        }
+    }
 }
@@ -41,5 +41,7 @@ public class ApiCode {
         public static final int INVOKE_ERROR = 1007;
         //类转换错误
         public static final int CONVERT_ERROR = 1008;
+        //无网络，请求已放入离线发件箱
+        public static final int OFFLINE_QUEUED = 1009;
     }
 }
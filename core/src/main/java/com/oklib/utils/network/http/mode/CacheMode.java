@@ -29,7 +29,13 @@ public enum CacheMode {
     /**
      * 先使用缓存，不管是否存在，仍然请求网络，会回调两次
      */
-    CACHE_AND_REMOTE("CacheAndRemoteStrategy");
+    CACHE_AND_REMOTE("CacheAndRemoteStrategy"),
+
+    /**
+     * 有缓存时直接返回缓存（包括超过缓存时长但仍在staleTime内的陈旧缓存），缓存陈旧时在后台刷新，只会回调一次；
+     * 无缓存时请求网络
+     */
+    STALE_WHILE_REVALIDATE("StaleWhileRevalidateStrategy");
 
     private final String className;
 
@@ -37,6 +43,13 @@ public enum CacheMode {
         this.className = className;
     }
 
+    /**
+     * 内置策略的类名
+     *
+     * @return
+     * @deprecated 策略不再按类名反射创建，使用 {@link com.oklib.utils.network.http.strategy.CacheStrategyRegistry#get(CacheMode)}
+     */
+    @Deprecated
     public String getClassName() {
         return className;
     }
@@ -8,142 +8,388 @@ import com.oklib.utils.Logger.Logger;
 import com.oklib.utils.convert.HexUtil;
 import com.oklib.utils.network.common.ViseConfig;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.Cookie;
 import okhttp3.HttpUrl;
 
 /**
- * @Description: Cookie仓库
+ * @Description: Cookie仓库，持久化Cookie以二进制快照保存在文件中，构造时在后台线程加载，
+ * 修改后延迟批量写入；内存中按倒序域名（如com.example.www）索引，按域名、路径和过期时间匹配
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 16/12/31 17:57.
  */
 public class CookiesStore {
-    private final Map<String, ConcurrentHashMap<String, Cookie>> cookies;
+    private static final int MAGIC = 0x4F4B434B;//OKCK
+    private static final int VERSION = 1;
+    private static final long FLUSH_DELAY_MILLIS = 1000;//修改后延迟写入的时间
+    private static final int FLAG_SECURE = 1;
+    private static final int FLAG_HTTP_ONLY = 1 << 1;
+    private static final int FLAG_HOST_ONLY = 1 << 2;
+
+    //倒序域名 -> (name|path|hostOnly -> Cookie)
+    private final Map<String, Map<String, Cookie>> cookies = new HashMap<>();
     private final SharedPreferences cookiePrefs;
+    private final File cookieFile;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "CookiesStore");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private boolean flushScheduled;//由this保护
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            List<Cookie> snapshot;
+            synchronized (CookiesStore.this) {
+                flushScheduled = false;
+                sweepExpired(System.currentTimeMillis());
+                snapshot = persistentCookies();
+            }
+            write(snapshot);
+        }
+    };
 
     public CookiesStore(Context context) {
         cookiePrefs = context.getSharedPreferences(ViseConfig.COOKIE_PREFS, 0);
-        cookies = new HashMap<>();
-        Map<String, ?> prefsMap = cookiePrefs.getAll();
-        for (Map.Entry<String, ?> entry : prefsMap.entrySet()) {
-            String[] cookieNames = TextUtils.split((String) entry.getValue(), ",");
-            for (String name : cookieNames) {
-                String encodedCookie = cookiePrefs.getString(name, null);
-                if (encodedCookie != null) {
-                    Cookie decodedCookie = decodeCookie(encodedCookie);
-                    if (decodedCookie != null) {
-                        if (!cookies.containsKey(entry.getKey())) {
-                            cookies.put(entry.getKey(), new ConcurrentHashMap<String, Cookie>());
-                        }
-                        cookies.get(entry.getKey()).put(name, decodedCookie);
+        cookieFile = new File(context.getFilesDir(), ViseConfig.COOKIE_FILE);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    public void add(HttpUrl url, Cookie cookie) {
+        awaitLoaded();
+        synchronized (this) {
+            String domain = reverseDomain(cookie.domain());
+            Map<String, Cookie> domainCookies = cookies.get(domain);
+            //服务器下发已过期的Cookie表示删除
+            if (cookie.expiresAt() < System.currentTimeMillis()) {
+                if (domainCookies != null && domainCookies.remove(getCookieToken(cookie)) != null) {
+                    if (domainCookies.isEmpty()) {
+                        cookies.remove(domain);
                     }
+                    scheduleFlush();
                 }
+                return;
+            }
+            if (domainCookies == null) {
+                domainCookies = new LinkedHashMap<>();
+                cookies.put(domain, domainCookies);
+            }
+            Cookie previous = domainCookies.put(getCookieToken(cookie), cookie);
+            if (cookie.persistent() || (previous != null && previous.persistent())) {
+                scheduleFlush();
             }
         }
     }
 
-    private String getCookieToken(Cookie cookie) {
-        return cookie.name() + "@" + cookie.domain();
+    /**
+     * 获取请求地址匹配的Cookie，依次查找域名本身及其各级父域名
+     *
+     * @param url
+     * @return
+     */
+    public List<Cookie> get(HttpUrl url) {
+        awaitLoaded();
+        ArrayList<Cookie> ret = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        String reversed = reverseDomain(url.host());
+        boolean expired = false;
+        synchronized (this) {
+            int end = reversed.length();
+            while (end > 0) {
+                Map<String, Cookie> domainCookies = cookies.get(reversed.substring(0, end));
+                if (domainCookies != null) {
+                    for (Cookie cookie : domainCookies.values()) {
+                        if (cookie.expiresAt() < now) {
+                            expired = true;
+                        } else if (cookie.matches(url)) {
+                            ret.add(cookie);
+                        }
+                    }
+                }
+                end = reversed.lastIndexOf('.', end - 1);
+            }
+            if (expired) {
+                sweepExpired(now);
+                scheduleFlush();
+            }
+        }
+        return ret;
     }
 
-    public void add(HttpUrl url, Cookie cookie) {
-        String name = getCookieToken(cookie);
-
-        if (!cookies.containsKey(url.host())) {
-            cookies.put(url.host(), new ConcurrentHashMap<String, Cookie>());
+    public boolean removeAll() {
+        awaitLoaded();
+        synchronized (this) {
+            cookies.clear();
+            scheduleFlush();
         }
+        return true;
+    }
 
-        //将cookies缓存到内存中 如果缓存过期 就重置此cookie
-        boolean hasExpired = cookie.persistent() && ((cookie.expiresAt() - System.currentTimeMillis()) < 0);
-        if (hasExpired) {//如果过期
-            if (cookies.containsKey(url.host())) {
-                cookies.get(url.host()).remove(name);//删除以前的缓存
+    public boolean remove(HttpUrl url, Cookie cookie) {
+        awaitLoaded();
+        synchronized (this) {
+            String domain = reverseDomain(cookie.domain());
+            Map<String, Cookie> domainCookies = cookies.get(domain);
+            if (domainCookies == null || domainCookies.remove(getCookieToken(cookie)) == null) {
+                return false;
             }
-        } else {//如果没过期
-            cookies.get(url.host()).put(name, cookie);
-        }
-
-        SharedPreferences.Editor prefsWriter = cookiePrefs.edit();
-        if (cookie.persistent()) {//需要持久化
-            //将cookies持久化到本地
-            prefsWriter.putString(url.host(), TextUtils.join(",", cookies.get(url.host()).keySet()));
-            prefsWriter.putString(name, encodeCookie(new OkHttpCookies(cookie)));
-            prefsWriter.apply();
-        } else {//不需要持久化
-            prefsWriter.remove(url.host());
-            prefsWriter.remove(name);
-            prefsWriter.apply();
+            if (domainCookies.isEmpty()) {
+                cookies.remove(domain);
+            }
+            scheduleFlush();
+            return true;
         }
     }
 
-    public List<Cookie> get(HttpUrl url) {
+    public List<Cookie> getCookies() {
+        awaitLoaded();
         ArrayList<Cookie> ret = new ArrayList<>();
-        if (cookies.containsKey(url.host())) {
-            ret.addAll(cookies.get(url.host()).values());
+        synchronized (this) {
+            for (Map<String, Cookie> domainCookies : cookies.values()) {
+                ret.addAll(domainCookies.values());
+            }
         }
         return ret;
     }
 
-    public boolean removeAll() {
-        SharedPreferences.Editor prefsWriter = cookiePrefs.edit();
-        prefsWriter.clear();
-        prefsWriter.apply();
-        cookies.clear();
-        return true;
+    /**
+     * 立即写入待保存的修改
+     */
+    public void flush() {
+        executor.execute(flushTask);
     }
 
-    public boolean remove(HttpUrl url, Cookie cookie) {
-        String name = getCookieToken(cookie);
+    private String getCookieToken(Cookie cookie) {
+        return cookie.name() + "|" + cookie.path() + "|" + cookie.hostOnly();
+    }
+
+    /**
+     * www.example.com -> com.example.www，父域名是子域名的前缀
+     *
+     * @param domain
+     * @return
+     */
+    static String reverseDomain(String domain) {
+        StringBuilder builder = new StringBuilder(domain.length());
+        int end = domain.length();
+        while (end > 0) {
+            int start = domain.lastIndexOf('.', end - 1);
+            if (builder.length() > 0) {
+                builder.append('.');
+            }
+            builder.append(domain, start + 1, end);
+            end = start;
+        }
+        return builder.toString();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(flushTask, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
 
-        if (cookies.containsKey(url.host()) && cookies.get(url.host()).containsKey(name)) {
-            cookies.get(url.host()).remove(name);
+    private void sweepExpired(long now) {
+        Iterator<Map<String, Cookie>> domains = cookies.values().iterator();
+        while (domains.hasNext()) {
+            Map<String, Cookie> domainCookies = domains.next();
+            Iterator<Cookie> iterator = domainCookies.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expiresAt() < now) {
+                    iterator.remove();
+                }
+            }
+            if (domainCookies.isEmpty()) {
+                domains.remove();
+            }
+        }
+    }
 
-            SharedPreferences.Editor prefsWriter = cookiePrefs.edit();
-            if (cookiePrefs.contains(name)) {
-                prefsWriter.remove(name);
+    private List<Cookie> persistentCookies() {
+        List<Cookie> ret = new ArrayList<>();
+        for (Map<String, Cookie> domainCookies : cookies.values()) {
+            for (Cookie cookie : domainCookies.values()) {
+                if (cookie.persistent()) {
+                    ret.add(cookie);
+                }
             }
-            prefsWriter.putString(url.host(), TextUtils.join(",", cookies.get(url.host()).keySet()));
-            prefsWriter.apply();
+        }
+        return ret;
+    }
 
-            return true;
-        } else {
-            return false;
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    public List<Cookie> getCookies() {
-        ArrayList<Cookie> ret = new ArrayList<>();
-        for (String key : cookies.keySet()) {
-            ret.addAll(cookies.get(key).values());
+    private void load() {
+        try {
+            List<Cookie> stored = cookieFile.exists() ? read() : migrate();
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                for (Cookie cookie : stored) {
+                    if (cookie.expiresAt() < now) {
+                        continue;
+                    }
+                    String domain = reverseDomain(cookie.domain());
+                    Map<String, Cookie> domainCookies = cookies.get(domain);
+                    if (domainCookies == null) {
+                        domainCookies = new LinkedHashMap<>();
+                        cookies.put(domain, domainCookies);
+                    }
+                    domainCookies.put(getCookieToken(cookie), cookie);
+                }
+                if (!cookieFile.exists() && !cookies.isEmpty()) {
+                    scheduleFlush();
+                }
+            }
+        } catch (Exception e) {
+            Logger.e("load cookies failed: " + e);
+        } finally {
+            loaded.countDown();
         }
+    }
 
+    private List<Cookie> read() {
+        List<Cookie> ret = new ArrayList<>();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(cookieFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return ret;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                String value = in.readUTF();
+                long expiresAt = in.readLong();
+                String domain = in.readUTF();
+                String path = in.readUTF();
+                int flags = in.readByte();
+                Cookie.Builder builder = new Cookie.Builder().name(name).value(value).expiresAt(expiresAt).path(path);
+                if ((flags & FLAG_HOST_ONLY) != 0) {
+                    builder.hostOnlyDomain(domain);
+                } else {
+                    builder.domain(domain);
+                }
+                if ((flags & FLAG_SECURE) != 0) {
+                    builder.secure();
+                }
+                if ((flags & FLAG_HTTP_ONLY) != 0) {
+                    builder.httpOnly();
+                }
+                ret.add(builder.build());
+            }
+        } catch (IOException | RuntimeException e) {
+            Logger.e("read cookies failed: " + e);
+        } finally {
+            closeQuietly(in);
+        }
         return ret;
     }
 
-    private String encodeCookie(OkHttpCookies cookie) {
-        if (cookie == null) {
-            return null;
+    private void write(List<Cookie> snapshot) {
+        if (snapshot.isEmpty()) {
+            cookieFile.delete();
+            return;
         }
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        File temp = new File(cookieFile.getPath() + ".tmp");
+        DataOutputStream out = null;
         try {
-            ObjectOutputStream outputStream = new ObjectOutputStream(os);
-            outputStream.writeObject(cookie);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Cookie cookie : snapshot) {
+                out.writeUTF(cookie.name());
+                out.writeUTF(cookie.value());
+                out.writeLong(cookie.expiresAt());
+                out.writeUTF(cookie.domain());
+                out.writeUTF(cookie.path());
+                out.writeByte((cookie.secure() ? FLAG_SECURE : 0) | (cookie.httpOnly() ? FLAG_HTTP_ONLY : 0)
+                        | (cookie.hostOnly() ? FLAG_HOST_ONLY : 0));
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(cookieFile)) {
+                cookieFile.delete();
+                temp.renameTo(cookieFile);
+            }
         } catch (IOException e) {
-            Logger.d("IOException in encodeCookie" + e.getMessage());
-            return null;
+            Logger.e("write cookies failed: " + e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
         }
+    }
 
-        return HexUtil.encodeHexStr(os.toByteArray());
+    /**
+     * 读取旧版本保存在SharedPreferences中的Cookie，读取后清除
+     *
+     * @return
+     */
+    private List<Cookie> migrate() {
+        List<Cookie> ret = new ArrayList<>();
+        Map<String, ?> prefsMap = cookiePrefs.getAll();
+        if (prefsMap.isEmpty()) {
+            return ret;
+        }
+        for (Map.Entry<String, ?> entry : prefsMap.entrySet()) {
+            if (!(entry.getValue() instanceof String) || ((String) entry.getValue()).indexOf('@') < 0) {
+                continue;
+            }
+            String[] cookieNames = TextUtils.split((String) entry.getValue(), ",");
+            for (String name : cookieNames) {
+                String encodedCookie = cookiePrefs.getString(name, null);
+                if (encodedCookie != null) {
+                    Cookie decodedCookie = decodeCookie(encodedCookie);
+                    if (decodedCookie != null) {
+                        ret.add(decodedCookie);
+                    }
+                }
+            }
+        }
+        cookiePrefs.edit().clear().apply();
+        return ret;
     }
 
     private Cookie decodeCookie(String cookieString) {
@@ -157,8 +403,19 @@ public class CookiesStore {
             Logger.e("IOException in decodeCookie" + e.getMessage());
         } catch (ClassNotFoundException e) {
             Logger.e("ClassNotFoundException in decodeCookie" + e.getMessage());
+        } catch (RuntimeException e) {
+            Logger.e("RuntimeException in decodeCookie" + e.getMessage());
         }
 
         return cookie;
     }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
 }
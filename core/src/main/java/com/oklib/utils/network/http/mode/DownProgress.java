@@ -12,6 +12,16 @@ import java.text.NumberFormat;
  * @date: 17/1/16 21:49.
  */
 public class DownProgress implements Parcelable {
+    //NumberFormat创建开销大且非线程安全，每个线程缓存一个
+    private static final ThreadLocal<NumberFormat> PERCENT_FORMAT = new ThreadLocal<NumberFormat>() {
+        @Override
+        protected NumberFormat initialValue() {
+            NumberFormat nf = NumberFormat.getPercentInstance();
+            nf.setMinimumFractionDigits(2);//控制保留小数点后几位，2：表示保留2位小数点
+            return nf;
+        }
+    };
+
     private long totalSize;
     private long downloadSize;
 
@@ -96,17 +106,13 @@ public class DownProgress implements Parcelable {
      * @return example: 5.25%
      */
     public String getPercent() {
-        String percent;
-        Double result;
-        if (totalSize == 0L) {
+        double result;
+        if (totalSize <= 0L) {
             result = 0.0;
         } else {
             result = downloadSize * 1.0 / totalSize;
         }
-        NumberFormat nf = NumberFormat.getPercentInstance();
-        nf.setMinimumFractionDigits(2);//控制保留小数点后几位，2：表示保留2位小数点
-        percent = nf.format(result);
-        return percent;
+        return PERCENT_FORMAT.get().format(result);
     }
 
     public static final Creator<DownProgress> CREATOR = new Creator<DownProgress>() {
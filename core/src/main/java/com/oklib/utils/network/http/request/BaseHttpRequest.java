@@ -6,6 +6,11 @@ import com.oklib.utils.network.common.ViseConfig;
 import com.oklib.utils.network.http.ViseHttp;
 import com.oklib.utils.network.http.api.ApiService;
 import com.oklib.utils.network.http.callback.ACallback;
+import com.oklib.utils.network.http.config.RetryPolicy;
+import com.oklib.utils.network.http.core.ApiCache;
+import com.oklib.utils.network.http.core.ApiClientCache;
+import com.oklib.utils.network.http.core.ApiSingleFlight;
+import com.oklib.utils.network.http.core.TransferRecord;
 import com.oklib.utils.network.http.func.ApiFunc;
 import com.oklib.utils.network.http.func.ApiRetryFunc;
 import com.oklib.utils.network.http.mode.ApiHost;
@@ -20,6 +25,7 @@ import io.reactivex.Observable;
 import io.reactivex.ObservableSource;
 import io.reactivex.ObservableTransformer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
 import okhttp3.ResponseBody;
 
@@ -34,11 +40,18 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
     protected String suffixUrl = "";//链接后缀
     protected int retryDelayMillis;//请求失败重试间隔时间
     protected int retryCount;//重试次数
+    protected RetryPolicy retryPolicy;//重试策略
     protected boolean isLocalCache;//是否使用本地缓存
     protected CacheMode cacheMode;//本地缓存类型
+    protected String customCacheMode;//自定义本地缓存类型，通过CacheStrategyRegistry注册
     protected String cacheKey;//本地缓存Key
     protected long cacheTime;//本地缓存时间
+    protected long staleTime;//本地缓存超时后仍可返回陈旧数据的时间
     protected Map<String, String> params = new LinkedHashMap<>();//请求参数
+    protected boolean isSingleFlight;//是否合并执行中的相同请求
+    protected boolean isStreamCache;//是否将网络原始数据边解析边写入本地缓存
+    protected int priority = TransferRecord.PRIORITY_NORMAL;//上传下载任务的调度优先级
+    private ApiCache apiCache;//当前请求使用的本地缓存
 
     public BaseHttpRequest() {
     }
@@ -79,6 +92,9 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
         if (retryDelayMillis <= 0) {
             retryDelayMillis = httpGlobalConfig.getRetryDelayMillis();
         }
+        if (retryPolicy == null) {
+            retryPolicy = httpGlobalConfig.getRetryPolicy();
+        }
         if (isLocalCache) {
             if (cacheKey != null) {
                 ViseHttp.getApiCacheBuilder().cacheKey(cacheKey);
@@ -90,33 +106,114 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
             } else {
                 ViseHttp.getApiCacheBuilder().cacheTime(ViseConfig.CACHE_NEVER_EXPIRE);
             }
+            ViseHttp.getApiCacheBuilder().staleTime(staleTime > 0 ? staleTime : 0);
         }
         if (baseUrl != null && isLocalCache && cacheKey == null) {
             ViseHttp.getApiCacheBuilder().cacheKey(baseUrl);
         }
-        apiService = retrofit.create(ApiService.class);
+        apiService = ApiClientCache.get().create(retrofit, ApiService.class);
     }
 
     protected abstract <T> Observable<T> execute(Type type);
 
+    /**
+     * 请求方式，用于判断失败后是否可以安全重试
+     *
+     * @return
+     */
+    protected String method() {
+        return "GET";
+    }
+
+    protected ApiRetryFunc retryFunc() {
+        return new ApiRetryFunc(retryCount, retryDelayMillis, retryPolicy, method());
+    }
+
     protected abstract <T> Observable<CacheResult<T>> cacheExecute(Type type);
 
     protected abstract <T> void execute(ACallback<T> callback);
 
+    /**
+     * 本地缓存转换器，设置了自定义缓存类型时优先使用自定义类型
+     *
+     * @param type
+     * @return
+     */
+    protected <T> ObservableTransformer<T, CacheResult<T>> cacheTransformer(Type type) {
+        ApiCache apiCache = getApiCache();
+        if (customCacheMode != null) {
+            return apiCache.transformer(customCacheMode, type, isStreamWrite());
+        }
+        return apiCache.transformer(cacheMode, type, isStreamWrite());
+    }
+
+    /**
+     * 网络数据是否由streamFunc边解析边写入缓存，缓存策略中据此不再重复写入
+     *
+     * @return
+     */
+    private boolean isStreamWrite() {
+        return isLocalCache && isStreamCache;
+    }
+
+    /**
+     * 当前请求使用的本地缓存，需在generateLocalConfig之后调用
+     *
+     * @return
+     */
+    protected ApiCache getApiCache() {
+        if (apiCache == null) {
+            apiCache = ViseHttp.getApiCache();
+        }
+        return apiCache;
+    }
+
     protected <T> ObservableTransformer<ResponseBody, T> norTransformer(final Type type) {
+        final Function<ResponseBody, T> func = isStreamWrite()
+                ? getApiCache().<T>streamFunc(type) : new ApiFunc<T>(type);
         return new ObservableTransformer<ResponseBody, T>() {
             @Override
             public ObservableSource<T> apply(Observable<ResponseBody> apiResultObservable) {
                 return apiResultObservable
                         .subscribeOn(Schedulers.io())
                         .unsubscribeOn(Schedulers.io())
-                        .map(new ApiFunc<T>(type))
+                        .map(func)
                         .observeOn(AndroidSchedulers.mainThread())
-                        .retryWhen(new ApiRetryFunc(retryCount, retryDelayMillis));
+                        .retryWhen(retryFunc());
             }
         };
     }
 
+    /**
+     * 合并执行中的相同请求（请求类型、地址、参数、请求头、缓存Key和解析类型都相同），未开启时直接返回原请求
+     *
+     * @param scope  区分同一请求的不同结果形式，如普通结果和缓存结果
+     * @param type
+     * @param source
+     * @return
+     */
+    protected <T> Observable<T> shareFlight(String scope, Type type, Observable<T> source) {
+        if (!isSingleFlight) {
+            return source;
+        }
+        return ApiSingleFlight.get().share(flightKey(scope, type), source);
+    }
+
+    private String flightKey(String scope, Type type) {
+        StringBuilder key = new StringBuilder(getClass().getName());
+        key.append('|').append(scope);
+        key.append('|').append(baseUrl != null ? baseUrl : httpGlobalConfig.getBaseUrl());
+        key.append('|').append(suffixUrl);
+        key.append('|').append(params);
+        key.append('|').append(headers.headersMap);
+        if (isLocalCache) {
+            key.append('|').append(customCacheMode != null ? customCacheMode : cacheMode).append('|').append(cacheKey).append('|').append(cacheTime)
+                    .append('|').append(staleTime);
+        }
+        key.append('|').append(type);
+        return key.toString();
+    }
+
     /**
      * 添加请求参数
      *
@@ -203,6 +300,28 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
         return (R) this;
     }
 
+    /**
+     * 设置是否合并执行中的相同请求，开启后相同请求同时只发起一次网络请求和一次缓存写入
+     *
+     * @param isSingleFlight
+     * @return
+     */
+    public R singleFlight(boolean isSingleFlight) {
+        this.isSingleFlight = isSingleFlight;
+        return (R) this;
+    }
+
+    /**
+     * 设置是否将网络返回的原始数据边解析边写入本地缓存，开启后不再将解析结果序列化后写入，适合数据量大的请求
+     *
+     * @param isStreamCache
+     * @return
+     */
+    public R streamCache(boolean isStreamCache) {
+        this.isStreamCache = isStreamCache;
+        return (R) this;
+    }
+
     /**
      * 设置本地缓存类型
      *
@@ -211,6 +330,18 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
      */
     public R cacheMode(CacheMode cacheMode) {
         this.cacheMode = cacheMode;
+        this.customCacheMode = null;
+        return (R) this;
+    }
+
+    /**
+     * 设置自定义本地缓存类型，需先通过CacheStrategyRegistry.register注册
+     *
+     * @param customCacheMode
+     * @return
+     */
+    public R cacheMode(String customCacheMode) {
+        this.customCacheMode = customCacheMode;
         return (R) this;
     }
 
@@ -236,6 +367,39 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
         return (R) this;
     }
 
+    /**
+     * 设置本地缓存超时后仍可作为陈旧数据返回的时间(毫秒)，配合CacheMode.STALE_WHILE_REVALIDATE使用
+     *
+     * @param staleTime
+     * @return
+     */
+    public R staleTime(long staleTime) {
+        this.staleTime = staleTime;
+        return (R) this;
+    }
+
+    /**
+     * 设置重试策略，不设置时使用全局重试策略
+     *
+     * @param retryPolicy
+     * @return
+     */
+    public R retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return (R) this;
+    }
+
+    /**
+     * 设置上传下载任务的调度优先级，数值越大越先执行，默认TransferRecord.PRIORITY_NORMAL
+     *
+     * @param priority
+     * @return
+     */
+    public R priority(int priority) {
+        this.priority = priority;
+        return (R) this;
+    }
+
     public String getSuffixUrl() {
         return suffixUrl;
     }
@@ -248,6 +412,10 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
         return retryCount;
     }
 
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     public boolean isLocalCache() {
         return isLocalCache;
     }
@@ -256,6 +424,10 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
         return cacheMode;
     }
 
+    public String getCustomCacheMode() {
+        return customCacheMode;
+    }
+
     public String getCacheKey() {
         return cacheKey;
     }
@@ -264,8 +436,24 @@ public abstract class BaseHttpRequest<R extends BaseHttpRequest> extends BaseReq
         return cacheTime;
     }
 
+    public long getStaleTime() {
+        return staleTime;
+    }
+
     public Map<String, String> getParams() {
         return params;
     }
 
+    public boolean isSingleFlight() {
+        return isSingleFlight;
+    }
+
+    public boolean isStreamCache() {
+        return isStreamCache;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
 }
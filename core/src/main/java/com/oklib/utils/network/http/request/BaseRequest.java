@@ -6,9 +6,11 @@ import com.oklib.utils.network.common.ViseConfig;
 import com.oklib.utils.network.http.ViseHttp;
 import com.oklib.utils.network.http.callback.UCallback;
 import com.oklib.utils.network.http.config.HttpGlobalConfig;
+import com.oklib.utils.network.http.core.ApiClientCache;
 import com.oklib.utils.network.http.core.ApiCookie;
+import com.oklib.utils.network.http.core.ApiOutbox;
+import com.oklib.utils.network.http.interceptor.GzipRequestInterceptor;
 import com.oklib.utils.network.http.interceptor.HeadersInterceptor;
-import com.oklib.utils.network.http.interceptor.UploadProgressInterceptor;
 import com.oklib.utils.network.http.mode.ApiHost;
 import com.oklib.utils.network.http.mode.HttpHeaders;
 
@@ -16,6 +18,8 @@ import java.io.File;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -46,6 +50,8 @@ public abstract class BaseRequest<R extends BaseRequest> {
     protected long connectTimeOut;//连接超时时间
     protected boolean isHttpCache;//是否使用Http缓存
     protected UCallback uploadCallback;//上传进度回调
+    protected boolean isOutbox;//无网络时是否放入离线发件箱
+    protected boolean isCompressRequest = true;//全局开启请求体压缩时，当前请求是否压缩
 
     /**
      * 设置基础域名，当前请求会替换全局域名
@@ -118,6 +124,30 @@ public abstract class BaseRequest<R extends BaseRequest> {
         return (R) this;
     }
 
+    /**
+     * 设置是否压缩请求体，全局开启了请求体压缩时，可对服务器不支持压缩的请求关闭；
+     * 全局压缩拦截器先于局部请求头执行，关闭时直接从该请求使用的OkHttpClient中去掉压缩拦截器
+     *
+     * @param isCompress
+     * @return
+     */
+    public R compressRequest(boolean isCompress) {
+        this.isCompressRequest = isCompress;
+        return (R) this;
+    }
+
+    /**
+     * 设置无网络时是否将请求放入离线发件箱，网络恢复后按顺序重放，结果通过ApiOutbox.register按Tag回调；
+     * 适用于POST、PUT、PATCH、DELETE等写操作，放入发件箱的请求以ApiCode.Request.OFFLINE_QUEUED失败返回
+     *
+     * @param isOutbox
+     * @return
+     */
+    public R outbox(boolean isOutbox) {
+        this.isOutbox = isOutbox;
+        return (R) this;
+    }
+
     /**
      * 设置连接超时时间（秒）
      *
@@ -213,14 +243,80 @@ public abstract class BaseRequest<R extends BaseRequest> {
     }
 
     /**
-     * 生成局部配置
+     * 生成局部配置，配置相同的请求复用已创建的OkHttpClient和Retrofit
      */
     protected void generateLocalConfig() {
-        OkHttpClient.Builder newBuilder = ViseHttp.getOkHttpClient().newBuilder();
-
         if (httpGlobalConfig.getGlobalHeaders() != null) {
             headers.put(httpGlobalConfig.getGlobalHeaders());
         }
+        if (isOutbox) {
+            headers.put(ApiOutbox.HEADER_OUTBOX_TAG, tag instanceof String ? (String) tag : "");
+        }
+
+        if (isHttpCache) {
+            try {
+                if (httpGlobalConfig.getHttpCache() == null) {
+                    httpGlobalConfig.httpCache(new Cache(httpGlobalConfig.getHttpCacheDirectory(), ViseConfig.CACHE_MAX_SIZE));
+                }
+                httpGlobalConfig.cacheOnline(httpGlobalConfig.getHttpCache());
+                httpGlobalConfig.cacheOffline(httpGlobalConfig.getHttpCache());
+            } catch (Exception e) {
+                Logger.e("Could not create http cache" + e);
+            }
+        }
+
+        OkHttpClient rootClient = ViseHttp.getOkHttpClient();
+        String effectiveBaseUrl = baseUrl != null ? baseUrl : httpGlobalConfig.getBaseUrl();
+        //上传进度回调每次请求不同，由UploadRequest包装在请求体中，不参与局部配置
+        ApiClientCache.Key key = new ApiClientCache.Key()
+                .value(effectiveBaseUrl)
+                .value(baseUrl != null)
+                .value(new LinkedHashMap<>(headers.headersMap))
+                .value(readTimeOut)
+                .value(writeTimeOut)
+                .value(connectTimeOut)
+                .value(isHttpCache)
+                .value(isOutbox)
+                .value(isCompressRequest)
+                .instance(rootClient)
+                .instance(isHttpCache ? httpGlobalConfig.getHttpCache() : null)
+                .instance(httpGlobalConfig.getConverterFactory())
+                .instance(httpGlobalConfig.getCallAdapterFactory())
+                .instance(httpGlobalConfig.getCallFactory())
+                .instances(interceptors)
+                .instances(networkInterceptors);
+        if (baseUrl == null) {
+            //使用全局域名时由全局Retrofit.Builder创建，应用在其上添加的转换器等也要区分
+            Retrofit.Builder retrofitBuilder = ViseHttp.getRetrofitBuilder();
+            key.instance(retrofitBuilder)
+                    .instances(retrofitBuilder.converterFactories())
+                    .instances(retrofitBuilder.callAdapterFactories());
+        }
+        retrofit = ApiClientCache.get().getRetrofit(key);
+        if (retrofit == null) {
+            retrofit = ApiClientCache.get().putRetrofit(key, buildRetrofit(rootClient, effectiveBaseUrl));
+        }
+    }
+
+    /**
+     * 根据局部配置创建Retrofit，OkHttpClient由全局OkHttpClient派生，共享Dispatcher和ConnectionPool；
+     * 未设置局部域名时与原来一样由全局Retrofit.Builder创建
+     *
+     * @param rootClient
+     * @param effectiveBaseUrl
+     * @return
+     */
+    private Retrofit buildRetrofit(OkHttpClient rootClient, String effectiveBaseUrl) {
+        OkHttpClient.Builder newBuilder = rootClient.newBuilder();
+
+        if (!isCompressRequest) {
+            Iterator<Interceptor> iterator = newBuilder.interceptors().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() instanceof GzipRequestInterceptor) {
+                    iterator.remove();
+                }
+            }
+        }
 
         if (!interceptors.isEmpty()) {
             for (Interceptor interceptor : interceptors) {
@@ -235,11 +331,8 @@ public abstract class BaseRequest<R extends BaseRequest> {
         }
 
         if (headers.headersMap.size() > 0) {
-            newBuilder.addInterceptor(new HeadersInterceptor(headers.headersMap));
-        }
-
-        if (uploadCallback != null) {
-            newBuilder.addNetworkInterceptor(new UploadProgressInterceptor(uploadCallback));
+            //复制请求头，避免缓存的OkHttpClient受后续修改影响
+            newBuilder.addInterceptor(new HeadersInterceptor(new LinkedHashMap<>(headers.headersMap)));
         }
 
         if (readTimeOut > 0) {
@@ -247,45 +340,46 @@ public abstract class BaseRequest<R extends BaseRequest> {
         }
 
         if (writeTimeOut > 0) {
-            newBuilder.readTimeout(writeTimeOut, TimeUnit.SECONDS);
+            newBuilder.writeTimeout(writeTimeOut, TimeUnit.SECONDS);
         }
 
         if (connectTimeOut > 0) {
-            newBuilder.readTimeout(connectTimeOut, TimeUnit.SECONDS);
+            newBuilder.connectTimeout(connectTimeOut, TimeUnit.SECONDS);
         }
 
         if (isHttpCache) {
-            try {
-                if (httpGlobalConfig.getHttpCache() == null) {
-                    httpGlobalConfig.httpCache(new Cache(httpGlobalConfig.getHttpCacheDirectory(), ViseConfig.CACHE_MAX_SIZE));
-                }
-                httpGlobalConfig.cacheOnline(httpGlobalConfig.getHttpCache());
-                httpGlobalConfig.cacheOffline(httpGlobalConfig.getHttpCache());
-            } catch (Exception e) {
-                Logger.e("Could not create http cache" + e);
-            }
             newBuilder.cache(httpGlobalConfig.getHttpCache());
         }
 
         if (baseUrl != null) {
-            Retrofit.Builder newRetrofitBuilder = new Retrofit.Builder();
-            newRetrofitBuilder.baseUrl(baseUrl);
-            if (httpGlobalConfig.getConverterFactory() != null) {
-                newRetrofitBuilder.addConverterFactory(httpGlobalConfig.getConverterFactory());
-            }
-            if (httpGlobalConfig.getCallAdapterFactory() != null) {
-                newRetrofitBuilder.addCallAdapterFactory(httpGlobalConfig.getCallAdapterFactory());
-            }
-            if (httpGlobalConfig.getCallFactory() != null) {
-                newRetrofitBuilder.callFactory(httpGlobalConfig.getCallFactory());
-            }
             newBuilder.hostnameVerifier(new SSLUtil.UnSafeHostnameVerifier(baseUrl));
-            newRetrofitBuilder.client(newBuilder.build());
-            retrofit = newRetrofitBuilder.build();
-        } else {
-            ViseHttp.getRetrofitBuilder().client(newBuilder.build());
-            retrofit = ViseHttp.getRetrofitBuilder().build();
         }
+
+        //发件箱拦截器放在最后，在请求头拦截之后才能读到发件箱标记，重放时沿用这里的配置
+        OkHttpClient client = isOutbox ? ApiOutbox.get().install(newBuilder) : newBuilder.build();
+
+        if (baseUrl == null) {
+            //与全局配置一致，由全局Retrofit.Builder创建
+            Retrofit.Builder retrofitBuilder = ViseHttp.getRetrofitBuilder();
+            synchronized (retrofitBuilder) {
+                retrofitBuilder.client(client);
+                return retrofitBuilder.build();
+            }
+        }
+
+        Retrofit.Builder newRetrofitBuilder = new Retrofit.Builder();
+        newRetrofitBuilder.baseUrl(effectiveBaseUrl);
+        if (httpGlobalConfig.getConverterFactory() != null) {
+            newRetrofitBuilder.addConverterFactory(httpGlobalConfig.getConverterFactory());
+        }
+        if (httpGlobalConfig.getCallAdapterFactory() != null) {
+            newRetrofitBuilder.addCallAdapterFactory(httpGlobalConfig.getCallAdapterFactory());
+        }
+        if (httpGlobalConfig.getCallFactory() != null) {
+            newRetrofitBuilder.callFactory(httpGlobalConfig.getCallFactory());
+        }
+        newRetrofitBuilder.client(client);
+        return newRetrofitBuilder.build();
     }
 
     /**
@@ -302,12 +396,16 @@ public abstract class BaseRequest<R extends BaseRequest> {
         if (httpGlobalConfig.getConverterFactory() == null) {
             httpGlobalConfig.converterFactory(GsonConverterFactory.create());
         }
-        ViseHttp.getRetrofitBuilder().addConverterFactory(httpGlobalConfig.getConverterFactory());
+        if (!ViseHttp.getRetrofitBuilder().converterFactories().contains(httpGlobalConfig.getConverterFactory())) {
+            ViseHttp.getRetrofitBuilder().addConverterFactory(httpGlobalConfig.getConverterFactory());
+        }
 
         if (httpGlobalConfig.getCallAdapterFactory() == null) {
             httpGlobalConfig.callAdapterFactory(RxJava2CallAdapterFactory.create());
         }
-        ViseHttp.getRetrofitBuilder().addCallAdapterFactory(httpGlobalConfig.getCallAdapterFactory());
+        if (!ViseHttp.getRetrofitBuilder().callAdapterFactories().contains(httpGlobalConfig.getCallAdapterFactory())) {
+            ViseHttp.getRetrofitBuilder().addCallAdapterFactory(httpGlobalConfig.getCallAdapterFactory());
+        }
 
         if (httpGlobalConfig.getCallFactory() != null) {
             ViseHttp.getRetrofitBuilder().callFactory(httpGlobalConfig.getCallFactory());
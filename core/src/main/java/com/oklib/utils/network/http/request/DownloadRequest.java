@@ -8,21 +8,19 @@ import android.text.TextUtils;
 import com.oklib.utils.network.common.ViseConfig;
 import com.oklib.utils.network.http.ViseHttp;
 import com.oklib.utils.network.http.callback.ACallback;
+import com.oklib.utils.network.http.core.ApiDownloader;
 import com.oklib.utils.network.http.core.ApiManager;
-import com.oklib.utils.network.http.func.ApiRetryFunc;
+import com.oklib.utils.network.http.core.ProgressDispatcher;
+import com.oklib.utils.network.http.core.TransferRecord;
+import com.oklib.utils.network.http.core.TransferScheduler;
 import com.oklib.utils.network.http.mode.CacheResult;
 import com.oklib.utils.network.http.mode.DownProgress;
 import com.oklib.utils.network.http.subscriber.DownCallbackSubscriber;
 
-import org.reactivestreams.Publisher;
-
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.lang.reflect.Type;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
@@ -30,27 +28,52 @@ import io.reactivex.FlowableEmitter;
 import io.reactivex.FlowableOnSubscribe;
 import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.functions.Function;
+import io.reactivex.functions.Cancellable;
 import io.reactivex.observers.DisposableObserver;
 import io.reactivex.schedulers.Schedulers;
-import okhttp3.ResponseBody;
+import okhttp3.HttpUrl;
 
 /**
- * @Description: 下载请求
+ * @Description: 下载请求，支持断点续传和多分段并行下载
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 17/5/14 21:50.
  */
 public class DownloadRequest extends BaseHttpRequest<DownloadRequest> {
+    private static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 1000;
 
     private String rootName;
     private String dirName = ViseConfig.DEFAULT_DOWNLOAD_DIR;
     private String fileName = ViseConfig.DEFAULT_DOWNLOAD_FILE_NAME;
+    private int threadCount = 1;//并行下载分段数
+    private boolean isResume = true;//是否断点续传
+    private long progressInterval = DEFAULT_PROGRESS_INTERVAL_MILLIS;//进度回调间隔
+    private String transferId;//恢复的任务沿用原记录ID
 
     public DownloadRequest(String suffixUrl) {
         super(suffixUrl);
         rootName = getDiskCachePath(ViseHttp.getContext());
     }
 
+    /**
+     * 根据上次进程遗留的任务记录重建下载请求，记录通过TransferScheduler.getPersistedRecords获取
+     *
+     * @param record
+     * @return
+     */
+    public static DownloadRequest restore(TransferRecord record) {
+        DownloadRequest request = new DownloadRequest(record.getUrl())
+                .setRootName(record.getRootName())
+                .setDirName(record.getDirName())
+                .setFileName(record.getFileName())
+                .threadCount(record.getThreadCount())
+                .priority(record.getPriority());
+        if (record.getTag() != null) {
+            request.tag(record.getTag());
+        }
+        request.transferId = record.getId();
+        return request;
+    }
+
     /**
      * 设置根目录，默认App缓存目录，有外置卡则默认外置卡缓存目录
      *
@@ -90,33 +113,110 @@ public class DownloadRequest extends BaseHttpRequest<DownloadRequest> {
         return this;
     }
 
+    /**
+     * 设置并行下载的分段数，服务器支持Range且文件足够大时生效，默认1
+     *
+     * @param threadCount
+     * @return
+     */
+    public DownloadRequest threadCount(int threadCount) {
+        if (threadCount > 0) {
+            this.threadCount = threadCount;
+        }
+        return this;
+    }
+
+    /**
+     * 设置是否断点续传，默认开启，中断后再次下载同一文件时从断点继续
+     *
+     * @param isResume
+     * @return
+     */
+    public DownloadRequest resume(boolean isResume) {
+        this.isResume = isResume;
+        return this;
+    }
+
+    /**
+     * 设置进度回调的最小间隔（毫秒），默认1秒
+     *
+     * @param progressInterval
+     * @return
+     */
+    public DownloadRequest progressInterval(long progressInterval) {
+        if (progressInterval >= 0) {
+            this.progressInterval = progressInterval;
+        }
+        return this;
+    }
+
     @Override
     protected <T> Observable<T> execute(Type type) {
-        return (Observable<T>) apiService
-                .downFile(suffixUrl, params)
-                .subscribeOn(Schedulers.io())
-                .unsubscribeOn(Schedulers.io())
-                .toFlowable(BackpressureStrategy.LATEST)
-                .flatMap(new Function<ResponseBody, Publisher<?>>() {
+        final HttpUrl url = downloadUrl();
+        TransferRecord record = new TransferRecord(transferId, TransferRecord.TYPE_DOWNLOAD, tag, url.host(), priority)
+                .download(url.toString(), rootName, dirName, fileName, threadCount);
+        Observable<DownProgress> source = Flowable.create(new FlowableOnSubscribe<DownProgress>() {
+            @Override
+            public void subscribe(final FlowableEmitter<DownProgress> subscriber) throws Exception {
+                File file = new File(getDiskCacheDir(rootName, dirName), fileName);
+                final ApiDownloader downloader = new ApiDownloader(retrofit.callFactory(), url, file, threadCount, isResume);
+                subscriber.setCancellable(new Cancellable() {
                     @Override
-                    public Publisher<?> apply(final ResponseBody responseBody) throws Exception {
-                        return Flowable.create(new FlowableOnSubscribe<DownProgress>() {
-                            @Override
-                            public void subscribe(FlowableEmitter<DownProgress> subscriber) throws Exception {
-                                File dir = getDiskCacheDir(rootName, dirName);
-                                if (!dir.exists()) {
-                                    dir.mkdirs();
-                                }
-                                File file = new File(dir.getPath() + File.separator + fileName);
-                                saveFile(subscriber, file, responseBody);
-                            }
-                        }, BackpressureStrategy.LATEST);
+                    public void cancel() throws Exception {
+                        downloader.cancel();
+                    }
+                });
+                final FlowableEmitter<DownProgress> emitter = subscriber.serialize();
+                //按粒度过滤后才生成进度对象，每次发射的进度互不影响
+                final ProgressDispatcher.Transfer transfer = ProgressDispatcher.get().newTransfer(new ProgressDispatcher.Callback() {
+                    @Override
+                    public void onProgress(long current, long total) {
+                        emitter.onNext(new DownProgress(total, current));
+                    }
+                }, progressInterval, 0, false);
+                try {
+                    downloader.download(new ApiDownloader.ProgressListener() {
+                        @Override
+                        public void onProgress(long downloadSize, long totalSize) {
+                            transfer.update(downloadSize, totalSize);
+                        }
+                    });
+                    transfer.finish();
+                    emitter.onComplete();
+                } catch (IOException e) {
+                    if (!downloader.isCanceled()) {
+                        emitter.onError(e);
                     }
-                })
-                .sample(1, TimeUnit.SECONDS)
+                }
+            }
+        }, BackpressureStrategy.LATEST)
+                .subscribeOn(Schedulers.io())
+                .unsubscribeOn(Schedulers.io())
+                .toObservable();
+        //排队等待执行，暂停后恢复时从断点继续
+        return (Observable<T>) TransferScheduler.get().schedule(record, tag, source)
                 .observeOn(AndroidSchedulers.mainThread())
-                .toObservable()
-                .retryWhen(new ApiRetryFunc(retryCount, retryDelayMillis));
+                .retryWhen(retryFunc());
+    }
+
+    /**
+     * 下载地址，由基础域名、链接后缀和请求参数组成
+     *
+     * @return
+     */
+    private HttpUrl downloadUrl() {
+        HttpUrl url = retrofit.baseUrl().resolve(suffixUrl);
+        if (url == null) {
+            throw new IllegalArgumentException("Illegal download url: " + retrofit.baseUrl() + suffixUrl);
+        }
+        if (params.isEmpty()) {
+            return url;
+        }
+        HttpUrl.Builder builder = url.newBuilder();
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            builder.addQueryParameter(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
     }
 
     @Override
@@ -133,46 +233,6 @@ public class DownloadRequest extends BaseHttpRequest<DownloadRequest> {
         this.execute(getType(callback)).subscribe(disposableObserver);
     }
 
-    private void saveFile(FlowableEmitter<? super DownProgress> sub, File saveFile, ResponseBody resp) {
-        InputStream inputStream = null;
-        OutputStream outputStream = null;
-        try {
-            try {
-                int readLen;
-                int downloadSize = 0;
-                byte[] buffer = new byte[8192];
-
-                DownProgress downProgress = new DownProgress();
-                inputStream = resp.byteStream();
-                outputStream = new FileOutputStream(saveFile);
-
-                long contentLength = resp.contentLength();
-                downProgress.setTotalSize(contentLength);
-
-                while ((readLen = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, readLen);
-                    downloadSize += readLen;
-                    downProgress.setDownloadSize(downloadSize);
-                    sub.onNext(downProgress);
-                }
-                outputStream.flush();
-                sub.onComplete();
-            } finally {
-                if (inputStream != null) {
-                    inputStream.close();
-                }
-                if (outputStream != null) {
-                    outputStream.close();
-                }
-                if (resp != null) {
-                    resp.close();
-                }
-            }
-        } catch (IOException e) {
-            sub.onError(e);
-        }
-    }
-
     private File getDiskCacheDir(String rootName, String dirName) {
         return new File(rootName + File.separator + dirName);
     }
@@ -1,7 +1,6 @@
 package com.oklib.utils.network.http.request;
 
 
-import com.oklib.utils.network.http.ViseHttp;
 import com.oklib.utils.network.http.callback.ACallback;
 import com.oklib.utils.network.http.core.ApiManager;
 import com.oklib.utils.network.http.mode.CacheResult;
@@ -20,16 +19,18 @@ import io.reactivex.observers.DisposableObserver;
 public class GetRequest extends BaseHttpRequest<GetRequest> {
     public GetRequest(String suffixUrl) {
         super(suffixUrl);
+        isSingleFlight = true;
     }
 
     @Override
     protected <T> Observable<T> execute(Type type) {
-        return apiService.get(suffixUrl, params).compose(this.<T>norTransformer(type));
+        return shareFlight("remote", type, apiService.get(suffixUrl, params).compose(this.<T>norTransformer(type)));
     }
 
     @Override
     protected <T> Observable<CacheResult<T>> cacheExecute(Type type) {
-        return this.<T>execute(type).compose(ViseHttp.getApiCache().<T>transformer(cacheMode, type));
+        return shareFlight("cache", type,
+                this.<T>execute(type).compose(this.<T>cacheTransformer(type)));
     }
 
     @Override
@@ -1,6 +1,5 @@
 package com.oklib.utils.network.http.request;
 
-import com.oklib.utils.network.http.ViseHttp;
 import com.oklib.utils.network.http.callback.ACallback;
 import com.oklib.utils.network.http.core.ApiManager;
 import com.oklib.utils.network.http.mode.CacheResult;
@@ -21,6 +20,11 @@ public class HeadRequest extends BaseHttpRequest<HeadRequest> {
         super(suffixUrl);
     }
 
+    @Override
+    protected String method() {
+        return "HEAD";
+    }
+
     @Override
     protected <T> Observable<T> execute(Type type) {
         return apiService.head(suffixUrl, params).compose(this.<T>norTransformer(type));
@@ -28,7 +32,7 @@ public class HeadRequest extends BaseHttpRequest<HeadRequest> {
 
     @Override
     protected <T> Observable<CacheResult<T>> cacheExecute(Type type) {
-        return this.<T>execute(type).compose(ViseHttp.getApiCache().<T>transformer(cacheMode, type));
+        return this.<T>execute(type).compose(this.<T>cacheTransformer(type));
     }
 
     @Override
@@ -1,7 +1,6 @@
 package com.oklib.utils.network.http.request;
 
 
-import com.oklib.utils.network.http.ViseHttp;
 import com.oklib.utils.network.http.callback.ACallback;
 import com.oklib.utils.network.http.core.ApiManager;
 import com.oklib.utils.network.http.mode.CacheResult;
@@ -22,6 +21,11 @@ public class OptionsRequest extends BaseHttpRequest<OptionsRequest> {
         super(suffixUrl);
     }
 
+    @Override
+    protected String method() {
+        return "OPTIONS";
+    }
+
     @Override
     protected <T> Observable<T> execute(Type type) {
         return apiService.options(suffixUrl, params).compose(this.<T>norTransformer(type));
@@ -29,7 +33,7 @@ public class OptionsRequest extends BaseHttpRequest<OptionsRequest> {
 
     @Override
     protected <T> Observable<CacheResult<T>> cacheExecute(Type type) {
-        return this.<T>execute(type).compose(ViseHttp.getApiCache().<T>transformer(cacheMode, type));
+        return this.<T>execute(type).compose(this.<T>cacheTransformer(type));
     }
 
     @Override
@@ -1,6 +1,5 @@
 package com.oklib.utils.network.http.request;
 
-import com.oklib.utils.network.http.ViseHttp;
 import com.oklib.utils.network.http.callback.ACallback;
 import com.oklib.utils.network.http.core.ApiManager;
 import com.oklib.utils.network.http.mode.CacheResult;
@@ -37,6 +36,11 @@ public class PostRequest extends BaseHttpRequest<PostRequest> {
         super(suffixUrl);
     }
 
+    @Override
+    protected String method() {
+        return "POST";
+    }
+
     @Override
     protected <T> Observable<T> execute(Type type) {
         if (stringBuilder.length() > 0) {
@@ -67,7 +71,7 @@ public class PostRequest extends BaseHttpRequest<PostRequest> {
 
     @Override
     protected <T> Observable<CacheResult<T>> cacheExecute(Type type) {
-        return this.<T>execute(type).compose(ViseHttp.getApiCache().<T>transformer(cacheMode, type));
+        return this.<T>execute(type).compose(this.<T>cacheTransformer(type));
     }
 
     @Override
@@ -1,5 +1,7 @@
 package com.oklib.utils.network.http.request;
 
+import com.oklib.utils.network.http.core.ApiClientCache;
+
 /**
  * @Description: 传入自定义Retrofit接口的请求类型
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
@@ -14,7 +16,7 @@ public class RetrofitRequest extends BaseRequest<RetrofitRequest> {
     public <T> T create(Class<T> cls) {
         generateGlobalConfig();
         generateLocalConfig();
-        return retrofit.create(cls);
+        return ApiClientCache.get().create(retrofit, cls);
     }
 
 }
@@ -7,6 +7,8 @@ import com.oklib.utils.network.http.body.UploadProgressRequestBody;
 import com.oklib.utils.network.http.callback.ACallback;
 import com.oklib.utils.network.http.callback.UCallback;
 import com.oklib.utils.network.http.core.ApiManager;
+import com.oklib.utils.network.http.core.TransferRecord;
+import com.oklib.utils.network.http.core.TransferScheduler;
 import com.oklib.utils.network.http.mode.CacheResult;
 import com.oklib.utils.network.http.mode.MediaTypes;
 import com.oklib.utils.network.http.subscriber.ApiCallbackSubscriber;
@@ -22,9 +24,11 @@ import java.util.Map;
 
 import io.reactivex.Observable;
 import io.reactivex.observers.DisposableObserver;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import okhttp3.internal.Util;
 import okio.BufferedSink;
 import okio.Okio;
@@ -49,6 +53,11 @@ public class UploadRequest extends BaseHttpRequest<UploadRequest> {
         this.uploadCallback = callback;
     }
 
+    @Override
+    protected String method() {
+        return "POST";
+    }
+
     @Override
     protected <T> Observable<T> execute(Type type) {
         if (stringBuilder.length() > 0) {
@@ -64,7 +73,28 @@ public class UploadRequest extends BaseHttpRequest<UploadRequest> {
                 }
             }
         }
-        return apiService.uploadFiles(suffixUrl, multipartBodyParts).compose(this.<T>norTransformer(type));
+        HttpUrl url = retrofit.baseUrl().resolve(suffixUrl);
+        //上传内容无法在进程重启后重建，只参与排队不持久化
+        TransferRecord record = new TransferRecord(null, TransferRecord.TYPE_UPLOAD, tag, url != null ? url.host() : null, priority);
+        Observable<ResponseBody> source = TransferScheduler.get().schedule(record, tag, upload());
+        return source.compose(this.<T>norTransformer(type));
+    }
+
+    /**
+     * 有上传进度回调时把整个请求体包装为UploadProgressRequestBody，回调只属于本次请求，
+     * 不放入共享的OkHttpClient拦截器中
+     *
+     * @return
+     */
+    private Observable<ResponseBody> upload() {
+        if (uploadCallback == null) {
+            return apiService.uploadFiles(suffixUrl, multipartBodyParts);
+        }
+        MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+        for (MultipartBody.Part part : multipartBodyParts) {
+            builder.addPart(part);
+        }
+        return apiService.postBody(suffixUrl, new UploadProgressRequestBody(builder.build(), uploadCallback));
     }
 
     @Override
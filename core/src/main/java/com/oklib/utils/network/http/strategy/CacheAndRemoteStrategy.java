@@ -18,7 +18,7 @@ public class CacheAndRemoteStrategy<T> extends CacheStrategy<T> {
     @Override
     public <T> Observable<CacheResult<T>> execute(ApiCache apiCache, String cacheKey, Observable<T> source, final Type type) {
         Observable<CacheResult<T>> cache = loadCache(apiCache, cacheKey, type);
-        final Observable<CacheResult<T>> remote = loadRemote(apiCache, cacheKey, source);
+        final Observable<CacheResult<T>> remote = loadRemote(apiCache, cacheKey, source, type);
         return Observable.concat(cache, remote).filter(new Predicate<CacheResult<T>>() {
             @Override
             public boolean test(CacheResult<T> tCacheResult) throws Exception {
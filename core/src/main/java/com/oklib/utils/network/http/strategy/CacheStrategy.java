@@ -1,7 +1,8 @@
 package com.oklib.utils.network.http.strategy;
 
+import android.util.Log;
+
 import com.oklib.utils.Logger.Logger;
-import com.oklib.utils.network.common.GsonUtil;
 import com.oklib.utils.network.http.core.ApiCache;
 import com.oklib.utils.network.http.mode.CacheResult;
 
@@ -10,7 +11,6 @@ import java.lang.reflect.Type;
 import io.reactivex.Observable;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
-import io.reactivex.functions.Predicate;
 import io.reactivex.schedulers.Schedulers;
 
 /**
@@ -20,27 +20,25 @@ import io.reactivex.schedulers.Schedulers;
  */
 abstract class CacheStrategy<T> implements ICacheStrategy<T> {
     <T> Observable<CacheResult<T>> loadCache(final ApiCache apiCache, final String key, final Type type) {
-        return apiCache.<T>get(key).filter(new Predicate<String>() {
-            @Override
-            public boolean test(String s) throws Exception {
-                return s != null;
-            }
-        }).map(new Function<String, CacheResult<T>>() {
+        return apiCache.<T>get(key, type).map(new Function<T, CacheResult<T>>() {
             @Override
-            public CacheResult<T> apply(String s) throws Exception {
-                T t = GsonUtil.gson().fromJson(s, type);
-                Logger.i("loadCache result=" + t);
+            public CacheResult<T> apply(T t) throws Exception {
+                if (Logger.isLoggable(Log.INFO)) {
+                    Logger.i("loadCache result=" + t);
+                }
                 return new CacheResult<>(true, t);
             }
         });
     }
 
-    <T> Observable<CacheResult<T>> loadRemote(final ApiCache apiCache, final String key, Observable<T> source) {
+    <T> Observable<CacheResult<T>> loadRemote(final ApiCache apiCache, final String key, Observable<T> source, final Type type) {
         return source.map(new Function<T, CacheResult<T>>() {
             @Override
             public CacheResult<T> apply(T t) throws Exception {
-                Logger.i("loadRemote result=" + t);
-                apiCache.put(key, t).subscribeOn(Schedulers.io()).subscribe(new Consumer<Boolean>() {
+                if (Logger.isLoggable(Log.INFO)) {
+                    Logger.i("loadRemote result=" + t);
+                }
+                apiCache.put(key, t, type).subscribeOn(Schedulers.io()).subscribe(new Consumer<Boolean>() {
                     @Override
                     public void accept(Boolean status) throws Exception {
                         Logger.i("save status => " + status);
@@ -0,0 +1,91 @@
+package com.oklib.utils.network.http.strategy;
+
+import com.oklib.utils.network.http.mode.CacheMode;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Description: 缓存策略注册表，内置策略均为无状态单例，按CacheMode直接查找，不再每次反射创建；
+ * 应用可注册自定义策略，或替换内置策略
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 16:30
+ */
+public final class CacheStrategyRegistry {
+    private static final ConcurrentHashMap<String, ICacheStrategy> STRATEGIES = new ConcurrentHashMap<>();
+
+    static {
+        STRATEGIES.put(CacheMode.FIRST_REMOTE.name(), new FirstRemoteStrategy());
+        STRATEGIES.put(CacheMode.FIRST_CACHE.name(), new FirstCacheStrategy());
+        STRATEGIES.put(CacheMode.ONLY_REMOTE.name(), new OnlyRemoteStrategy());
+        STRATEGIES.put(CacheMode.ONLY_CACHE.name(), new OnlyCacheStrategy());
+        STRATEGIES.put(CacheMode.CACHE_AND_REMOTE.name(), new CacheAndRemoteStrategy());
+        STRATEGIES.put(CacheMode.STALE_WHILE_REVALIDATE.name(), new StaleWhileRevalidateStrategy());
+        for (CacheMode cacheMode : CacheMode.values()) {
+            if (!STRATEGIES.containsKey(cacheMode.name())) {
+                throw new IllegalStateException("No strategy registered for " + cacheMode);
+            }
+        }
+    }
+
+    private CacheStrategyRegistry() {
+    }
+
+    public static ICacheStrategy get(CacheMode cacheMode) {
+        if (cacheMode == null) {
+            throw new NullPointerException("cacheMode == null");
+        }
+        return STRATEGIES.get(cacheMode.name());
+    }
+
+    public static ICacheStrategy get(String mode) {
+        if (mode == null) {
+            throw new NullPointerException("mode == null");
+        }
+        ICacheStrategy strategy = STRATEGIES.get(mode);
+        if (strategy == null) {
+            throw new IllegalArgumentException("No strategy registered for mode: " + mode);
+        }
+        return strategy;
+    }
+
+    /**
+     * 注册自定义缓存策略，策略会被所有请求共享，必须是无状态的
+     *
+     * @param mode     模式名称，与CacheMode同名时替换内置策略
+     * @param strategy
+     */
+    public static void register(String mode, ICacheStrategy strategy) {
+        if (mode == null || strategy == null) {
+            throw new NullPointerException("mode == null || strategy == null");
+        }
+        STRATEGIES.put(mode, strategy);
+    }
+
+    /**
+     * 移除自定义缓存策略，内置模式只能通过register替换，不能移除
+     *
+     * @param mode
+     */
+    public static void unregister(String mode) {
+        if (mode == null) {
+            return;
+        }
+        if (isBuiltIn(mode)) {
+            throw new IllegalArgumentException("Built-in cache mode can not be unregistered: " + mode);
+        }
+        STRATEGIES.remove(mode);
+    }
+
+    private static boolean isBuiltIn(String mode) {
+        for (CacheMode cacheMode : CacheMode.values()) {
+            if (cacheMode.name().equals(mode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean contains(String mode) {
+        return mode != null && STRATEGIES.containsKey(mode);
+    }
+}
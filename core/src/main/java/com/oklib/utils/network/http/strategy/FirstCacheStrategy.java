@@ -25,7 +25,7 @@ public class FirstCacheStrategy<T> extends CacheStrategy<T> {
                 return null;
             }
         });
-        Observable<CacheResult<T>> remote = loadRemote(apiCache, cacheKey, source);
+        Observable<CacheResult<T>> remote = loadRemote(apiCache, cacheKey, source, type);
         return Observable.concat(cache, remote).filter(new Predicate<CacheResult<T>>() {
             @Override
             public boolean test(CacheResult<T> tCacheResult) throws Exception {
@@ -18,7 +18,7 @@ import io.reactivex.functions.Predicate;
 public class FirstRemoteStrategy<T> extends CacheStrategy<T> {
     @Override
     public <T> Observable<CacheResult<T>> execute(ApiCache apiCache, String cacheKey, Observable<T> source, Type type) {
-        Observable<CacheResult<T>> remote = loadRemote(apiCache, cacheKey, source);
+        Observable<CacheResult<T>> remote = loadRemote(apiCache, cacheKey, source, type);
         remote.onErrorReturn(new Function<Throwable, CacheResult<T>>() {
             @Override
             public CacheResult<T> apply(Throwable throwable) throws Exception {
@@ -16,6 +16,6 @@ import io.reactivex.Observable;
 public class OnlyRemoteStrategy<T> extends CacheStrategy<T> {
     @Override
     public <T> Observable<CacheResult<T>> execute(ApiCache apiCache, String cacheKey, Observable<T> source, Type type) {
-        return loadRemote(apiCache, cacheKey, source);
+        return loadRemote(apiCache, cacheKey, source, type);
     }
 }
@@ -0,0 +1,68 @@
+package com.oklib.utils.network.http.strategy;
+
+import android.util.Log;
+
+import com.oklib.utils.Logger.Logger;
+import com.oklib.utils.network.cache.CacheEntry;
+import com.oklib.utils.network.http.core.ApiCache;
+import com.oklib.utils.network.http.mode.CacheResult;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * @Description: 缓存策略--先返回缓存，缓存陈旧时后台刷新
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 15:42
+ */
+public class StaleWhileRevalidateStrategy<T> extends CacheStrategy<T> {
+    //正在后台刷新的缓存Key，同一Key同时只刷新一次
+    private static final Set<String> REVALIDATING = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Override
+    public <T> Observable<CacheResult<T>> execute(ApiCache apiCache, final String cacheKey, Observable<T> source, Type type) {
+        final Observable<CacheResult<T>> remote = loadRemote(apiCache, cacheKey, source, type);
+        return apiCache.<T>getEntry(cacheKey, type).map(new Function<CacheEntry<T>, CacheResult<T>>() {
+            @Override
+            public CacheResult<T> apply(CacheEntry<T> entry) throws Exception {
+                if (entry.isStale()) {
+                    revalidate(cacheKey, remote);
+                }
+                if (Logger.isLoggable(Log.INFO)) {
+                    Logger.i("loadCache stale=" + entry.isStale() + " result=" + entry.getValue());
+                }
+                return new CacheResult<>(true, entry.getValue());
+            }
+        }).switchIfEmpty(remote);
+    }
+
+    private static <T> void revalidate(final String cacheKey, Observable<CacheResult<T>> remote) {
+        if (!REVALIDATING.add(cacheKey)) {
+            return;
+        }
+        remote.subscribeOn(Schedulers.io()).doFinally(new Action() {
+            @Override
+            public void run() throws Exception {
+                REVALIDATING.remove(cacheKey);
+            }
+        }).subscribe(new Consumer<CacheResult<T>>() {
+            @Override
+            public void accept(CacheResult<T> result) throws Exception {
+                Logger.i("revalidate " + cacheKey + " done");
+            }
+        }, new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable) throws Exception {
+                Logger.e("revalidate " + cacheKey + " failed: " + throwable);
+            }
+        });
+    }
+}
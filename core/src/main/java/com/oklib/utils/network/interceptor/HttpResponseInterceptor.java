@@ -1,16 +1,17 @@
 package com.oklib.utils.network.interceptor;
 
 import androidx.annotation.NonNull;
-import android.text.TextUtils;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.oklib.utils.Logger.Logger;
-import com.oklib.utils.network.common.GsonUtil;
-import com.oklib.utils.network.mode.ApiResult;
+import com.oklib.utils.network.http.interceptor.HttpLogInterceptor;
 import com.oklib.utils.network.response.DefaultResponseState;
 import com.oklib.utils.network.response.IResponseState;
 import com.oklib.utils.network.response.Utils;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 
 import okhttp3.Interceptor;
@@ -28,7 +29,11 @@ import okio.BufferedSource;
  */
 public abstract class HttpResponseInterceptor implements Interceptor {
     private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long DEFAULT_MAX_PEEK_BYTES = 8 * 1024;//默认最多读取的响应字节数
+    private static final String CODE = "code";
     private IResponseState responseState;
+    private volatile HttpLogInterceptor.Level logLevel = HttpLogInterceptor.Level.NONE;
+    private volatile long maxPeekBytes = DEFAULT_MAX_PEEK_BYTES;
 
     public HttpResponseInterceptor() {
         this(new DefaultResponseState());
@@ -44,6 +49,31 @@ public abstract class HttpResponseInterceptor implements Interceptor {
         return process(chain);
     }
 
+    /**
+     * 设置响应体日志级别，只有为BODY时才打印读取到的响应内容
+     *
+     * @param logLevel
+     * @return
+     */
+    public HttpResponseInterceptor logLevel(HttpLogInterceptor.Level logLevel) {
+        Utils.checkIllegalArgument(logLevel, "this logLevel is null.");
+        this.logLevel = logLevel;
+        return this;
+    }
+
+    /**
+     * 设置最多读取的响应字节数，code字段不在这个范围内时不做处理
+     *
+     * @param maxPeekBytes
+     * @return
+     */
+    public HttpResponseInterceptor maxPeekBytes(long maxPeekBytes) {
+        if (maxPeekBytes > 0) {
+            this.maxPeekBytes = maxPeekBytes;
+        }
+        return this;
+    }
+
     private Response process(Chain chain) throws IOException {
         Request request = chain.request();
         Response response = chain.proceed(request);
@@ -51,45 +81,50 @@ public abstract class HttpResponseInterceptor implements Interceptor {
         if (responseBody == null) {
             return response;
         }
-        BufferedSource source = responseBody.source();
-        source.request(Long.MAX_VALUE); // Buffer the entire body.
-        Buffer buffer = source.buffer();
-        Charset charset = UTF8;
         MediaType contentType = responseBody.contentType();
+        if (!isText(contentType)) {
+            return response;
+        }
+        Charset charset = UTF8;
         if (contentType != null) {
             charset = contentType.charset(UTF8);
         }
         if (charset == null) {
             return response;
         }
-        String bodyString = buffer.clone().readString(charset);
-        Logger.i("<-- HTTP Interceptor:" + bodyString + " host:" + request.url().toString());
-        boolean isText = isText(contentType);
-        if (!isText) {
+        //只缓冲响应开头的maxPeekBytes字节，原响应体仍可被完整读取
+        BufferedSource source = responseBody.source();
+        source.request(maxPeekBytes);
+        Buffer buffer = source.buffer();
+        long peekSize = Math.min(buffer.size(), maxPeekBytes);
+        if (peekSize == 0) {
             return response;
         }
-
-        if (!TextUtils.isEmpty(bodyString)) {
-            ApiResult apiResult = GsonUtil.gson().fromJson(bodyString, ApiResult.class);
-            if (apiResult != null) {
-                if (apiResult.getCode() == responseState.accessTokenExpired()) {//AccessToken错误或已过期
-                    return processAccessTokenExpired(chain, request);
-                } else if (apiResult.getCode() == responseState.refreshTokenExpired()) {//RefreshToken错误或已过期
-                    return processRefreshTokenExpired(chain, request);
-                } else if (apiResult.getCode() == responseState.otherPhoneLogin()) {//帐号在其它手机已登录
-                    return processOtherPhoneLogin(chain, request);
-                } else if (apiResult.getCode() == responseState.signError()) {//签名错误
-                    return processSignError(chain, request);
-                } else if (apiResult.getCode() == responseState.timestampError()) {//timestamp过期
-                    return processTimestampError(chain, request);
-                } else if (apiResult.getCode() == responseState.noAccessToken()) {//缺少授权信息
-                    return processNoAccessToken(chain, request);
-                } else {
-                    if (responseState.otherError() != null && responseState.otherError().size() > 0) {
-                        for (int errorCode : responseState.otherError()) {
-                            if (apiResult.getCode() == errorCode) {
-                                return processOtherError(errorCode, chain, request);
-                            }
+        Buffer peek = new Buffer();
+        buffer.copyTo(peek, 0, peekSize);
+        if (logLevel == HttpLogInterceptor.Level.BODY) {
+            Logger.i("<-- HTTP Interceptor:" + peek.clone().readString(charset)
+                    + (peekSize < maxPeekBytes ? "" : "...") + " host:" + request.url().toString());
+        }
+        Integer code = peekCode(peek, charset);
+        if (code != null) {
+            if (code == responseState.accessTokenExpired()) {//AccessToken错误或已过期
+                return processAccessTokenExpired(chain, request);
+            } else if (code == responseState.refreshTokenExpired()) {//RefreshToken错误或已过期
+                return processRefreshTokenExpired(chain, request);
+            } else if (code == responseState.otherPhoneLogin()) {//帐号在其它手机已登录
+                return processOtherPhoneLogin(chain, request);
+            } else if (code == responseState.signError()) {//签名错误
+                return processSignError(chain, request);
+            } else if (code == responseState.timestampError()) {//timestamp过期
+                return processTimestampError(chain, request);
+            } else if (code == responseState.noAccessToken()) {//缺少授权信息
+                return processNoAccessToken(chain, request);
+            } else {
+                if (responseState.otherError() != null && responseState.otherError().size() > 0) {
+                    for (int errorCode : responseState.otherError()) {
+                        if (code == errorCode) {
+                            return processOtherError(errorCode, chain, request);
                         }
                     }
                 }
@@ -98,6 +133,45 @@ public abstract class HttpResponseInterceptor implements Interceptor {
         return response;
     }
 
+    /**
+     * 流式读取最外层对象的code字段，跳过其他字段的值，读到code即返回；
+     * 内容被截断或不是JSON对象时返回null
+     *
+     * @param peek
+     * @param charset
+     * @return
+     */
+    private static Integer peekCode(Buffer peek, Charset charset) {
+        JsonReader reader = new JsonReader(new InputStreamReader(peek.inputStream(), charset));
+        reader.setLenient(true);
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (CODE.equals(reader.nextName())) {
+                    JsonToken token = reader.peek();
+                    if (token == JsonToken.NUMBER) {
+                        return reader.nextInt();
+                    }
+                    if (token == JsonToken.STRING) {
+                        //与原来Gson解析为int一致，"code":"401"也能识别
+                        try {
+                            return Integer.parseInt(reader.nextString().trim());
+                        } catch (NumberFormatException e) {
+                            return null;
+                        }
+                    }
+                }
+                reader.skipValue();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return null;
+    }
+
     private boolean isText(MediaType mediaType) {
         if (mediaType == null) {
             return false;
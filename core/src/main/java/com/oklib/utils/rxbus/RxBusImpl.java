@@ -4,6 +4,7 @@ package com.oklib.utils.rxbus;
 import com.oklib.utils.rxbus.inner.EventBase;
 import com.oklib.utils.rxbus.inner.EventComposite;
 import com.oklib.utils.rxbus.inner.EventFind;
+import com.oklib.utils.rxbus.inner.SubscriberIndex;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -11,7 +12,7 @@ import java.util.concurrent.ConcurrentMap;
 import io.reactivex.disposables.CompositeDisposable;
 
 /**
- * @Description: RxBus事件管理
+ * @Description: RxBus事件管理，事件按类型直接分发给对应订阅者，发送耗时与订阅者总数无关
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2016-12-19 15:07
  */
@@ -19,6 +20,15 @@ public class RxBusImpl extends EventBase implements IBus {
 
     private ConcurrentMap<Object, EventComposite> mEventCompositeMap = new ConcurrentHashMap<>();
 
+    /**
+     * 添加编译期生成的订阅者索引，需在注册订阅者之前调用，未建立索引的类仍使用反射查找
+     *
+     * @param index
+     */
+    public static void addIndex(SubscriberIndex index) {
+        EventFind.addIndex(index);
+    }
+
     /**
      * 注册事件监听
      *
@@ -29,6 +39,11 @@ public class RxBusImpl extends EventBase implements IBus {
         if (object == null) {
             throw new NullPointerException("Object to register must not be null.");
         }
+        //重复注册时先取消之前的订阅再创建新订阅，避免同一事件被处理多次
+        EventComposite previous = mEventCompositeMap.remove(object);
+        if (previous != null) {
+            previous.getCompositeDisposable().dispose();
+        }
         CompositeDisposable compositeDisposable = new CompositeDisposable();
         EventComposite subscriberMethods = EventFind.findAnnotatedSubscriberMethods(object, compositeDisposable);
         mEventCompositeMap.put(object, subscriberMethods);
@@ -62,7 +77,7 @@ public class RxBusImpl extends EventBase implements IBus {
      */
     @Override
     public void post(IEvent event) {
-        SUBJECT.onNext(event);
+        dispatch(event);
     }
 
     /**
@@ -1,34 +1,113 @@
 package com.oklib.utils.rxbus.inner;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-
-import io.reactivex.BackpressureStrategy;
-import io.reactivex.Flowable;
-import io.reactivex.subjects.PublishSubject;
-import io.reactivex.subjects.Subject;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * @Description: 事件处理基类
+ * @Description: 事件处理基类，订阅者按事件类型登记，发送事件时只分发给事件类型及其父类、接口对应的订阅者
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2016-12-29 19:08
  */
 public class EventBase {
     protected final static Map<Class<?>, Object> STICKY_EVENT_MAP;
-    protected final static Subject<Object> SUBJECT;
+    //事件类型 -> 订阅该类型的订阅者
+    private final static ConcurrentHashMap<Class<?>, CopyOnWriteArrayList<EventSubscriber>> SUBSCRIBER_MAP;
+    //事件类型 -> 事件类型自身及其所有父类、接口
+    private final static ConcurrentHashMap<Class<?>, Class<?>[]> EVENT_TYPE_MAP;
 
     static {
-        SUBJECT = PublishSubject.create().toSerialized();
         STICKY_EVENT_MAP = new ConcurrentHashMap<>();
+        SUBSCRIBER_MAP = new ConcurrentHashMap<>();
+        EVENT_TYPE_MAP = new ConcurrentHashMap<>();
     }
 
     protected EventBase() {
     }
 
-    static <T> Flowable<T> toFlowable(Class<T> eventType) {
-        return SUBJECT.ofType(eventType).toFlowable(BackpressureStrategy.BUFFER);
+    /**
+     * 分发事件给事件类型及其父类、接口的订阅者
+     *
+     * @param event
+     */
+    protected static void dispatch(Object event) {
+        for (Class<?> eventType : eventTypes(event.getClass())) {
+            List<EventSubscriber> subscribers = SUBSCRIBER_MAP.get(eventType);
+            if (subscribers == null) {
+                continue;
+            }
+            for (EventSubscriber subscriber : subscribers) {
+                subscriber.enqueue(event);
+            }
+        }
+    }
+
+    static void addSubscriber(EventSubscriber subscriber) {
+        Class<?> eventType = subscriber.getParameter();
+        CopyOnWriteArrayList<EventSubscriber> subscribers = SUBSCRIBER_MAP.get(eventType);
+        if (subscribers == null) {
+            CopyOnWriteArrayList<EventSubscriber> created = new CopyOnWriteArrayList<>();
+            subscribers = SUBSCRIBER_MAP.putIfAbsent(eventType, created);
+            if (subscribers == null) {
+                subscribers = created;
+            }
+        }
+        synchronized (subscribers) {
+            subscribers.add(subscriber);
+        }
+    }
+
+    /**
+     * 按引用移除订阅者，同一对象重复注册时新旧订阅者equals相等，按equals移除可能移除新注册的订阅者
+     *
+     * @param subscriber
+     */
+    static void removeSubscriber(EventSubscriber subscriber) {
+        CopyOnWriteArrayList<EventSubscriber> subscribers = SUBSCRIBER_MAP.get(subscriber.getParameter());
+        if (subscribers == null) {
+            return;
+        }
+        synchronized (subscribers) {
+            for (int i = 0; i < subscribers.size(); i++) {
+                if (subscribers.get(i) == subscriber) {
+                    subscribers.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 事件类型自身及其所有父类、接口，每个类型只计算一次
+     *
+     * @param eventClass
+     * @return
+     */
+    static Class<?>[] eventTypes(Class<?> eventClass) {
+        Class<?>[] eventTypes = EVENT_TYPE_MAP.get(eventClass);
+        if (eventTypes != null) {
+            return eventTypes;
+        }
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> clazz = eventClass; clazz != null; clazz = clazz.getSuperclass()) {
+            types.add(clazz);
+            addInterfaces(types, clazz.getInterfaces());
+        }
+        eventTypes = types.toArray(new Class<?>[types.size()]);
+        Class<?>[] existing = EVENT_TYPE_MAP.putIfAbsent(eventClass, eventTypes);
+        return existing != null ? existing : eventTypes;
+    }
+
+    private static void addInterfaces(Set<Class<?>> types, Class<?>[] interfaces) {
+        for (Class<?> anInterface : interfaces) {
+            if (types.add(anInterface)) {
+                addInterfaces(types, anInterface.getInterfaces());
+            }
+        }
     }
 
     /**
@@ -3,19 +3,46 @@ package com.oklib.utils.rxbus.inner;
 
 import com.oklib.utils.rxbus.Subscribe;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import io.reactivex.disposables.CompositeDisposable;
 
 /**
- * @Description: 根据注解查找事件接收方法
+ * @Description: 根据注解查找事件接收方法，优先使用编译期生成的索引，未建立索引的类使用反射查找；
+ * 每个类只解析一次，解析结果缓存后重复注册不会再扫描
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2016-12-29 19:26
  */
 public class EventFind {
+    private static final ConcurrentHashMap<Class<?>, SubscriberMethod[]> METHOD_CACHE = new ConcurrentHashMap<>();
+    private static final List<SubscriberIndex> SUBSCRIBER_INDEXES = new CopyOnWriteArrayList<>();
+
+    /**
+     * 添加编译期生成的订阅者索引
+     *
+     * @param index
+     */
+    public static void addIndex(SubscriberIndex index) {
+        if (index != null && !SUBSCRIBER_INDEXES.contains(index)) {
+            SUBSCRIBER_INDEXES.add(index);
+        }
+    }
+
+    /**
+     * 清空已缓存的订阅方法
+     */
+    public static void clearCache() {
+        METHOD_CACHE.clear();
+    }
+
     public static EventComposite findAnnotatedSubscriberMethods(Object listenerClass, CompositeDisposable compositeDisposable) {
         Set<EventSubscriber> producerMethods = new HashSet<>();
         return findAnnotatedMethods(listenerClass, producerMethods, compositeDisposable);
@@ -23,7 +50,49 @@ public class EventFind {
 
     private static EventComposite findAnnotatedMethods(Object listenerClass, Set<EventSubscriber> subscriberMethods,
                                                        CompositeDisposable compositeDisposable) {
-        for (Method method : listenerClass.getClass().getDeclaredMethods()) {
+        for (SubscriberMethod method : findSubscriberMethods(listenerClass.getClass())) {
+            EventSubscriber subscriberEvent = new EventSubscriber(listenerClass, method);
+            if (subscriberMethods.add(subscriberEvent)) {//添加事件订阅者
+                compositeDisposable.add(subscriberEvent.getDisposable());//管理订阅，方便取消订阅
+            } else {
+                subscriberEvent.dispose();
+            }
+        }
+        return new EventComposite(compositeDisposable, listenerClass, subscriberMethods);
+    }
+
+    /**
+     * 获取类声明的订阅方法
+     *
+     * @param subscriberClass
+     * @return
+     */
+    public static SubscriberMethod[] findSubscriberMethods(Class<?> subscriberClass) {
+        SubscriberMethod[] methods = METHOD_CACHE.get(subscriberClass);
+        if (methods != null) {
+            return methods;
+        }
+        methods = findUsingIndex(subscriberClass);
+        if (methods == null) {
+            methods = findUsingReflection(subscriberClass);
+        }
+        SubscriberMethod[] existing = METHOD_CACHE.putIfAbsent(subscriberClass, methods);
+        return existing != null ? existing : methods;
+    }
+
+    private static SubscriberMethod[] findUsingIndex(Class<?> subscriberClass) {
+        for (SubscriberIndex index : SUBSCRIBER_INDEXES) {
+            SubscriberMethod[] methods = index.getSubscriberMethods(subscriberClass);
+            if (methods != null) {
+                return methods;
+            }
+        }
+        return null;
+    }
+
+    private static SubscriberMethod[] findUsingReflection(Class<?> subscriberClass) {
+        List<SubscriberMethod> subscriberMethods = new ArrayList<>();
+        for (Method method : subscriberClass.getDeclaredMethods()) {
             if (method.isBridge()) {
                 continue;
             }
@@ -42,14 +111,35 @@ public class EventFind {
 
                 Subscribe annotation = method.getAnnotation(Subscribe.class);
                 ThreadMode thread = annotation.threadMode();
+                subscriberMethods.add(new SubscriberMethod(method.getName(), parameterClazz, thread, new ReflectiveInvoker(method)));
+            }
+        }
+        return subscriberMethods.toArray(new SubscriberMethod[subscriberMethods.size()]);
+    }
+
+    /**
+     * 反射调用订阅方法，用于未建立索引的类
+     */
+    private static final class ReflectiveInvoker implements SubscriberInvoker {
+        private final Method method;
 
-                EventSubscriber subscriberEvent = new EventSubscriber(listenerClass, method, thread);
-                if (!subscriberMethods.contains(subscriberEvent)) {
-                    subscriberMethods.add(subscriberEvent);//添加事件订阅者
-                    compositeDisposable.add(subscriberEvent.getDisposable());//管理订阅，方便取消订阅
+        ReflectiveInvoker(Method method) {
+            this.method = method;
+            this.method.setAccessible(true);
+        }
+
+        @Override
+        public void invoke(Object target, Object event) throws Throwable {
+            try {
+                method.invoke(target, event);
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof Error) {
+                    throw e.getCause();
                 }
+                throw e;
             }
         }
-        return new EventComposite(compositeDisposable, listenerClass, subscriberMethods);
     }
 }
@@ -1,54 +1,53 @@
 package com.oklib.utils.rxbus.inner;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 
+import io.reactivex.Scheduler;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.functions.Consumer;
-import io.reactivex.schedulers.Schedulers;
 
 /**
- * @Description: 事件订阅者
+ * @Description: 事件订阅者，按ThreadMode对应的调度器依次处理事件，同一订阅者的事件按发送顺序执行
  * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
  * @date: 2016-12-29 19:05
  */
-class EventSubscriber extends EventBase {
+class EventSubscriber extends EventBase implements Disposable {
     private final Object target;
-    private final Method method;
-    private final ThreadMode thread;
-    private Disposable disposable;
+    private final SubscriberMethod method;
+    private final Scheduler.Worker worker;
+    private volatile boolean disposed;
 
-    public EventSubscriber(Object target, Method method, ThreadMode thread) {
+    public EventSubscriber(Object target, SubscriberMethod method) {
         if (target == null) {
             throw new NullPointerException("SubscriberEvent target cannot be null.");
         }
         if (method == null) {
             throw new NullPointerException("SubscriberEvent method cannot be null.");
         }
-        if (thread == null) {
-            throw new NullPointerException("SubscriberEvent thread cannot be null.");
-        }
         this.target = target;
         this.method = method;
-        this.thread = thread;
-        this.method.setAccessible(true);
-        subscribeEvent(this.method.getParameterTypes()[0]);
+        this.worker = ThreadMode.getScheduler(method.getThreadMode()).createWorker();
+        addSubscriber(this);
     }
 
     public final Class getParameter() {
-        return this.method.getParameterTypes()[0];
+        return this.method.getEventType();
     }
 
     /**
-     * 订阅事件
+     * 将事件投递到订阅者所在线程
      *
-     * @param aClass
+     * @param event
      */
-    private void subscribeEvent(Class aClass) {
-        disposable = toFlowable(aClass).subscribeOn(Schedulers.io()).observeOn(ThreadMode.getScheduler
-                (thread)).subscribe(new Consumer<Object>() {
+    final void enqueue(final Object event) {
+        if (disposed) {
+            return;
+        }
+        worker.schedule(new Runnable() {
             @Override
-            public void accept(Object event) throws Exception {
+            public void run() {
+                if (disposed) {
+                    return;
+                }
                 try {
                     handleEvent(event);
                     dellSticky(event);
@@ -60,7 +59,21 @@ class EventSubscriber extends EventBase {
     }
 
     public final Disposable getDisposable() {
-        return disposable;
+        return this;
+    }
+
+    @Override
+    public final void dispose() {
+        if (!disposed) {
+            disposed = true;
+            removeSubscriber(this);
+            worker.dispose();
+        }
+    }
+
+    @Override
+    public final boolean isDisposed() {
+        return disposed;
     }
 
     /**
@@ -71,14 +84,16 @@ class EventSubscriber extends EventBase {
      */
     public final void handleEvent(Object event) throws InvocationTargetException {
         try {
-            method.invoke(target, event);
-        } catch (IllegalAccessException e) {
-            throw new AssertionError(e);
+            method.getInvoker().invoke(target, event);
         } catch (InvocationTargetException e) {
             if (e.getCause() instanceof Error) {
                 throw (Error) e.getCause();
             }
             throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
         }
     }
 
@@ -94,7 +109,17 @@ class EventSubscriber extends EventBase {
             return false;
         }
         final EventSubscriber other = (EventSubscriber) obj;
-        return method.equals(other.method) && target == other.target;
+        return method == other.method && target == other.target;
+    }
+
+    @Override
+    public String toString() {
+        return "EventSubscriber{" + target.getClass().getName() + "." + method.getMethodName() + "(" + method.getEventType().getName() + ")}";
+    }
+
+    @Override
+    public final int hashCode() {
+        return 31 * System.identityHashCode(target) + method.hashCode();
     }
 
     private void throwRuntimeException(String msg, InvocationTargetException e) {
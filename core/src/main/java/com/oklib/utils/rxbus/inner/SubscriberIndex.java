@@ -0,0 +1,23 @@
+package com.oklib.utils.rxbus.inner;
+
+/**
+ * @Description: 订阅者索引，由rxbus-compiler在编译期根据@Subscribe注解生成，注册时无需再反射扫描方法。
+ * 使用方式：
+ * <pre>
+ * annotationProcessor project(':rxbus-compiler')
+ * javaCompileOptions.annotationProcessorOptions.arguments = [rxbusIndex: 'com.example.MyRxBusIndex']
+ *
+ * RxBusImpl.addIndex(new MyRxBusIndex());
+ * </pre>
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 19:10
+ */
+public interface SubscriberIndex {
+    /**
+     * 获取指定类声明的订阅方法
+     *
+     * @param subscriberClass 订阅者类型
+     * @return 未建立索引时返回null
+     */
+    SubscriberMethod[] getSubscriberMethods(Class<?> subscriberClass);
+}
@@ -0,0 +1,17 @@
+package com.oklib.utils.rxbus.inner;
+
+/**
+ * @Description: 事件分发器，由注解处理器生成直接调用订阅方法的实现，未建立索引的类使用反射实现
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 19:10
+ */
+public interface SubscriberInvoker {
+    /**
+     * 调用订阅方法
+     *
+     * @param target 订阅者
+     * @param event  事件
+     * @throws Throwable 订阅方法抛出的异常
+     */
+    void invoke(Object target, Object event) throws Throwable;
+}
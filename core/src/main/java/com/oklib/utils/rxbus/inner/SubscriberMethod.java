@@ -0,0 +1,50 @@
+package com.oklib.utils.rxbus.inner;
+
+/**
+ * @Description: 订阅方法元数据，同一个类只解析一次，所有实例共享
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 19:10
+ */
+public final class SubscriberMethod {
+    private final String methodName;
+    private final Class<?> eventType;
+    private final ThreadMode threadMode;
+    private final SubscriberInvoker invoker;
+
+    public SubscriberMethod(String methodName, Class<?> eventType, ThreadMode threadMode, SubscriberInvoker invoker) {
+        if (eventType == null) {
+            throw new NullPointerException("SubscriberMethod eventType cannot be null.");
+        }
+        if (threadMode == null) {
+            throw new NullPointerException("SubscriberMethod threadMode cannot be null.");
+        }
+        if (invoker == null) {
+            throw new NullPointerException("SubscriberMethod invoker cannot be null.");
+        }
+        this.methodName = methodName;
+        this.eventType = eventType;
+        this.threadMode = threadMode;
+        this.invoker = invoker;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Class<?> getEventType() {
+        return eventType;
+    }
+
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    public SubscriberInvoker getInvoker() {
+        return invoker;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriberMethod{" + methodName + "(" + eventType.getName() + "), " + threadMode + "}";
+    }
+}
@@ -0,0 +1,271 @@
+package com.oklib.rxbus.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * @Description: 根据@Subscribe注解在编译期生成订阅者索引和直接调用的事件分发器，运行时注册订阅者无需反射。
+ * 通过注解处理器参数rxbusIndex指定生成的索引类全名，无法直接访问的类不会写入索引，运行时回退到反射
+ * @author: <a href="http://www.xiaoyaoyou1212.com">DAWI</a>
+ * @date: 2026-10-18 19:30
+ */
+public class SubscriberIndexProcessor extends AbstractProcessor {
+    public static final String OPTION_INDEX = "rxbusIndex";
+
+    private static final String SUBSCRIBE = "com.oklib.utils.rxbus.Subscribe";
+    private static final String INNER_PACKAGE = "com.oklib.utils.rxbus.inner";
+    private static final String DEFAULT_THREAD_MODE = "MAIN_THREAD";
+
+    private final Map<TypeElement, List<ExecutableElement>> subscribers = new LinkedHashMap<>();
+    private boolean written;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(SUBSCRIBE);
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_INDEX);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (annotations.isEmpty() || written) {
+            return false;
+        }
+        Messager messager = processingEnv.getMessager();
+        String index = processingEnv.getOptions().get(OPTION_INDEX);
+        if (index == null || index.isEmpty()) {
+            messager.printMessage(Diagnostic.Kind.NOTE, "No option " + OPTION_INDEX + " passed to annotation processor, " +
+                    "@Subscribe methods will be found by reflection at runtime.");
+            return false;
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.METHOD || !checkMethod((ExecutableElement) element)) {
+                    continue;
+                }
+                TypeElement subscriber = (TypeElement) element.getEnclosingElement();
+                List<ExecutableElement> methods = subscribers.get(subscriber);
+                if (methods == null) {
+                    methods = new ArrayList<>();
+                    subscribers.put(subscriber, methods);
+                }
+                methods.add((ExecutableElement) element);
+            }
+        }
+        int separator = index.lastIndexOf('.');
+        String indexPackage = separator > 0 ? index.substring(0, separator) : "";
+        removeInaccessible(indexPackage);
+        try {
+            writeIndex(index, indexPackage, separator > 0 ? index.substring(separator + 1) : index);
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Could not write subscriber index " + index + ": " + e);
+        }
+        written = true;
+        return false;
+    }
+
+    /**
+     * 与运行时反射查找保持一致的校验：只能有一个参数且必须是public方法
+     */
+    private boolean checkMethod(ExecutableElement method) {
+        Messager messager = processingEnv.getMessager();
+        if (method.getParameters().size() != 1) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Method has @Subscribe annotation but requires " +
+                    method.getParameters().size() + " arguments.  Methods must require a single argument.", method);
+            return false;
+        }
+        if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Method has @Subscribe annotation but is not 'public'.", method);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 生成的索引类无法访问的订阅者整体不写入索引，运行时由反射查找
+     */
+    private void removeInaccessible(String indexPackage) {
+        List<TypeElement> skipped = new ArrayList<>();
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : subscribers.entrySet()) {
+            if (!isAccessible(entry.getKey(), indexPackage)) {
+                skipped.add(entry.getKey());
+                continue;
+            }
+            for (ExecutableElement method : entry.getValue()) {
+                TypeMirror eventType = eventType(method);
+                if (eventType.getKind().isPrimitive() || !isAccessible(eventType, indexPackage)) {
+                    skipped.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        for (TypeElement subscriber : skipped) {
+            subscribers.remove(subscriber);
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Subscriber " + subscriber +
+                    " is not accessible from the index, it will be found by reflection at runtime.", subscriber);
+        }
+    }
+
+    private boolean isAccessible(TypeMirror type, String indexPackage) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return isAccessible(((ArrayType) type).getComponentType(), indexPackage);
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return isAccessible((TypeElement) ((DeclaredType) type).asElement(), indexPackage);
+        }
+        return type.getKind().isPrimitive();
+    }
+
+    private boolean isAccessible(TypeElement type, String indexPackage) {
+        String packageName = packageOf(type).getQualifiedName().toString();
+        Element element = type;
+        while (element instanceof TypeElement) {
+            TypeElement typeElement = (TypeElement) element;
+            if (typeElement.getNestingKind() != NestingKind.TOP_LEVEL && typeElement.getNestingKind() != NestingKind.MEMBER) {
+                return false;
+            }
+            Set<Modifier> modifiers = typeElement.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!modifiers.contains(Modifier.PUBLIC) && !packageName.equals(indexPackage)) {
+                return false;
+            }
+            element = typeElement.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private PackageElement packageOf(Element element) {
+        while (element.getKind() != ElementKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    private TypeMirror eventType(ExecutableElement method) {
+        return processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType());
+    }
+
+    private String threadMode(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (!SUBSCRIBE.equals(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if ("threadMode".contentEquals(entry.getKey().getSimpleName())) {
+                    return ((VariableElement) entry.getValue().getValue()).getSimpleName().toString();
+                }
+            }
+        }
+        return DEFAULT_THREAD_MODE;
+    }
+
+    private String rawName(TypeElement type) {
+        return processingEnv.getTypeUtils().erasure(type.asType()).toString();
+    }
+
+    private void writeIndex(String index, String indexPackage, String indexName) throws IOException {
+        List<TypeElement> origins = new ArrayList<>(subscribers.keySet());
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(index, origins.toArray(new Element[origins.size()]));
+        StringBuilder invokes = new StringBuilder();
+        StringBuilder methods = new StringBuilder();
+        int id = 0;
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : subscribers.entrySet()) {
+            String subscriber = rawName(entry.getKey());
+            methods.append("        INDEX.put(").append(subscriber).append(".class, new SubscriberMethod[]{\n");
+            for (ExecutableElement method : entry.getValue()) {
+                String eventType = eventType(method).toString();
+                String methodName = method.getSimpleName().toString();
+                methods.append("                new SubscriberMethod(\"").append(methodName).append("\", ")
+                        .append(eventType).append(".class, ThreadMode.").append(threadMode(method))
+                        .append(", new Dispatcher(").append(id).append(")),\n");
+                invokes.append("                case ").append(id).append(":\n                    ");
+                if (method.getModifiers().contains(Modifier.STATIC)) {
+                    invokes.append(subscriber);
+                } else {
+                    invokes.append("((").append(subscriber).append(") target)");
+                }
+                invokes.append('.').append(methodName).append("((").append(eventType).append(") event);\n")
+                        .append("                    break;\n");
+                id++;
+            }
+            methods.append("        });\n");
+        }
+
+        Writer writer = file.openWriter();
+        try {
+            if (!indexPackage.isEmpty()) {
+                writer.write("package " + indexPackage + ";\n\n");
+            }
+            writer.write("import " + INNER_PACKAGE + ".SubscriberIndex;\n");
+            writer.write("import " + INNER_PACKAGE + ".SubscriberInvoker;\n");
+            writer.write("import " + INNER_PACKAGE + ".SubscriberMethod;\n");
+            writer.write("import " + INNER_PACKAGE + ".ThreadMode;\n\n");
+            writer.write("import java.util.HashMap;\n");
+            writer.write("import java.util.Map;\n\n");
+            writer.write("/**\n * This class is generated by rxbus-compiler, do not edit.\n */\n");
+            writer.write("public final class " + indexName + " implements SubscriberIndex {\n");
+            writer.write("    private static final Map<Class<?>, SubscriberMethod[]> INDEX = new HashMap<>();\n\n");
+            writer.write("    static {\n");
+            writer.write(methods.toString());
+            writer.write("    }\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public SubscriberMethod[] getSubscriberMethods(Class<?> subscriberClass) {\n");
+            writer.write("        return INDEX.get(subscriberClass);\n");
+            writer.write("    }\n\n");
+            writer.write("    private static final class Dispatcher implements SubscriberInvoker {\n");
+            writer.write("        private final int id;\n\n");
+            writer.write("        Dispatcher(int id) {\n");
+            writer.write("            this.id = id;\n");
+            writer.write("        }\n\n");
+            writer.write("        @Override\n");
+            writer.write("        public void invoke(Object target, Object event) throws Throwable {\n");
+            writer.write("            switch (id) {\n");
+            writer.write(invokes.toString());
+            writer.write("                default:\n");
+            writer.write("                    throw new IllegalStateException(\"Unknown subscriber method: \" + id);\n");
+            writer.write("            }\n");
+            writer.write("        }\n");
+            writer.write("    }\n");
+            writer.write("}\n");
+        } finally {
+            writer.close();
+        }
+    }
+}